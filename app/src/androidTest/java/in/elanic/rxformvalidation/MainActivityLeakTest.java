@@ -0,0 +1,81 @@
+package in.elanic.rxformvalidation;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Intent;
+import android.content.pm.ActivityInfo;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.test.runner.lifecycle.ActivityLifecycleMonitorRegistry;
+import android.support.test.runner.lifecycle.Stage;
+import android.widget.EditText;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Rotates MainActivity while its validation pipelines are busy and checks that the destroyed
+ * instance can be garbage collected, i.e. no TextWatcher, subject or scheduler keeps it.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainActivityLeakTest {
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+
+    @Test
+    public void rotationDoesNotRetainTheOldActivity() throws InterruptedException {
+        WeakReference<MainActivity> destroyed = typeAndRotate();
+        Activity current = resumedActivity();
+        assertNotNull(current);
+
+        // Pending debounce timers may hold a pipeline for a moment, give them time to fire.
+        for (int i = 0; i < 50 && destroyed.get() != null; i++) {
+            Runtime.getRuntime().gc();
+            System.runFinalization();
+            Thread.sleep(100);
+        }
+
+        assertNull("MainActivity retained after rotation", destroyed.get());
+        current.finish();
+    }
+
+    // In its own frame so no local keeps the first instance reachable. Started without an
+    // ActivityTestRule, which would hold on to it.
+    private WeakReference<MainActivity> typeAndRotate() {
+        Intent intent = new Intent(InstrumentationRegistry.getTargetContext(), MainActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        final MainActivity activity = (MainActivity) instrumentation.startActivitySync(intent);
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                ((EditText) activity.findViewById(R.id.email_view)).setText("john@example.com");
+                ((EditText) activity.findViewById(R.id.username_view)).setText("john");
+            }
+        });
+
+        activity.setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE);
+        instrumentation.waitForIdleSync();
+
+        return new WeakReference<>(activity);
+    }
+
+    private Activity resumedActivity() {
+        final Activity[] resumed = new Activity[1];
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                Collection<Activity> activities = ActivityLifecycleMonitorRegistry.getInstance()
+                        .getActivitiesInStage(Stage.RESUMED);
+                resumed[0] = activities.isEmpty() ? null : activities.iterator().next();
+            }
+        });
+
+        return resumed[0];
+    }
+}
@@ -0,0 +1,112 @@
+package in.elanic.rxformvalidation;
+
+import android.app.Instrumentation;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.widget.EditText;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TextChangeSourceTest {
+
+    private Instrumentation instrumentation;
+    private EditText view;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                view = new EditText(InstrumentationRegistry.getTargetContext());
+            }
+        });
+    }
+
+    @Test
+    public void subscribersShareOneWatcherWhichIsRemovedWithTheLast() {
+        final TestSubscriber<String> first = new TestSubscriber<>();
+        final TestSubscriber<String> second = new TestSubscriber<>();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                TextChangeSource.texts(view).subscribe(first);
+                TextChangeSource.texts(view).subscribe(second);
+                view.setText("abc");
+            }
+        });
+
+        assertEquals(2, TextChangeSource.getSubscriberCount(view));
+        assertTrue(TextChangeSource.isAttached(view));
+        assertEquals(Arrays.asList("abc"), first.getOnNextEvents());
+        assertEquals(Arrays.asList("abc"), second.getOnNextEvents());
+
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                first.unsubscribe();
+                view.setText("abcd");
+            }
+        });
+        assertTrue(TextChangeSource.isAttached(view));
+        assertEquals(Arrays.asList("abc", "abcd"), second.getOnNextEvents());
+
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                second.unsubscribe();
+                view.setText("abcde");
+            }
+        });
+        assertFalse(TextChangeSource.isAttached(view));
+        assertEquals(0, TextChangeSource.getSubscriberCount(view));
+        assertEquals(1, first.getOnNextEvents().size());
+        assertEquals(2, second.getOnNextEvents().size());
+    }
+
+    @Test
+    public void unsubscribingOffTheMainThreadRemovesTheWatcher() {
+        final TestSubscriber<TextChangeSource.TextChange> subscriber = new TestSubscriber<>();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                TextChangeSource.changes(view).subscribe(subscriber);
+            }
+        });
+
+        subscriber.unsubscribe();
+        instrumentation.waitForIdleSync();
+        assertFalse(TextChangeSource.isAttached(view));
+    }
+
+    @Test
+    public void changesCarryTheEditAndReadTheTextOnDemand() {
+        final TestSubscriber<TextChangeSource.TextChange> subscriber = new TestSubscriber<>();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                view.setText("john");
+                TextChangeSource.changes(view).subscribe(subscriber);
+                view.getText().insert(4, "@x");
+            }
+        });
+
+        TextChangeSource.TextChange change = subscriber.getOnNextEvents().get(0);
+        assertEquals(4, change.getStart());
+        assertEquals(0, change.getBefore());
+        assertEquals(2, change.getCount());
+        assertEquals("john@x", change.text());
+        subscriber.unsubscribe();
+    }
+}
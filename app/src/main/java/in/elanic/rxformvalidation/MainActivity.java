@@ -2,11 +2,16 @@ package in.elanic.rxformvalidation;
 
 import android.support.annotation.NonNull;
 import android.support.v7.app.AppCompatActivity;
+import android.content.res.Resources;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.Choreographer;
+import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 import butterknife.Bind;
@@ -20,10 +25,21 @@ import rx.functions.Func1;
 import rx.functions.Func3;
 import rx.schedulers.Schedulers;
 import rx.subjects.PublishSubject;
+import rx.subscriptions.CompositeSubscription;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "MainActivity";
+    private static final int AVAILABILITY_CACHE_SIZE = 64;
+    private static final String AVAILABILITY_CACHE_FILE = "availability.cache";
+    private static final long AVAILABILITY_TIMEOUT_SECONDS = 8;
+    private static final long MIN_DEBOUNCE_MS = 250;
+    private static final long MAX_DEBOUNCE_MS = 1500;
+    private static final long PREFETCH_DELAY_MS = 200;
+    // Short enough that local errors still show while typing, long enough to merge key repeat,
+    // paste and autofill bursts into one text read.
+    private static final long TEXT_SETTLE_MS = 50;
+
     @Bind(R.id.email_view) EditText emailView;
     @Bind(R.id.username_view) EditText usernameView;
     @Bind(R.id.phone_view) EditText phoneView;
@@ -31,6 +47,17 @@ public class MainActivity extends AppCompatActivity {
 
     private Subscription _subscription;
     private AvailabilityChecker availabilityChecker;
+    // Set from the io thread that opens it; guarded by storeLock so onDestroy closes it exactly once.
+    private final Object storeLock = new Object();
+    private PersistentAvailabilityChecker availabilityStore;
+    private boolean destroyed;
+    private RateLimitedAvailabilityChecker rateLimiter;
+    // Bounded lanes for local rules and API calls; the focused field's work goes first.
+    private final ValidationSchedulers validationSchedulers = ValidationSchedulers.createDefault();
+    private final ValidationMetrics metrics = new ValidationMetrics();
+    private ResultApplier resultApplier;
+    // One prefetch at a time for the whole form, after the text has been stable for a moment.
+    private final PrefetchBudget prefetchBudget = new PrefetchBudget(PREFETCH_DELAY_MS, TimeUnit.MILLISECONDS, 1);
 
     // API subscriptions
     private Subscription emailApiSubscription;
@@ -45,8 +72,38 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         ButterKnife.bind(this);
-        availabilityChecker = new RandomAvailabilityChecker();
-        setupObservables5();
+        // Resilience goes outside the cache so "could not verify" answers are never cached. No
+        // hedging: the coalescing checker would just join the hedge to the slow call in flight.
+        // The rate limiter sits next to the backend, so only lookups that really go out use
+        // tokens.
+        rateLimiter = new RateLimitedAvailabilityChecker.Builder(new RandomAvailabilityChecker())
+                .rate(2, 4)
+                .maxInFlight(2)
+                .build();
+        availabilityChecker = new ResilientAvailabilityChecker.Builder(
+                createAvailabilityCache(new CoalescingAvailabilityChecker(rateLimiter)))
+                .timeout(AVAILABILITY_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .retries(2, 250, 2000, TimeUnit.MILLISECONDS)
+                .circuitBreaker(5, 30, TimeUnit.SECONDS)
+                .build();
+        useLocalizedMessages();
+        // The main thread's Choreographer; posting to it is safe from any thread.
+        final Choreographer choreographer = Choreographer.getInstance();
+        resultApplier = new ResultApplier(new ResultApplier.FrameScheduler() {
+            @Override
+            public void postFrame(@NonNull final Runnable frame) {
+                choreographer.postFrameCallback(new Choreographer.FrameCallback() {
+                    @Override
+                    public void doFrame(long frameTimeNanos) {
+                        frame.run();
+                    }
+                });
+            }
+        }, metrics);
+        trackFocus(emailView, "email");
+        trackFocus(usernameView, "username");
+        trackFocus(phoneView, "phone");
+        setupObservables7();
     }
 
     @Override
@@ -66,6 +123,95 @@ public class MainActivity extends AppCompatActivity {
 
         cancelEmailApiCall();
         cancelUsernameApiCall();
+
+        validationSchedulers.shutdown();
+        rateLimiter.close();
+
+        synchronized (storeLock) {
+            destroyed = true;
+            if (availabilityStore != null) {
+                closeAvailabilityStore(availabilityStore);
+            }
+        }
+
+        Log.i(TAG, "validation metrics: " + metrics.snapshot());
+        Log.i(TAG, "availability lookups: " + rateLimiter.getStartedCount() + " sent, "
+                + rateLimiter.getThrottledCount() + " throttled, " + rateLimiter.getDroppedCount() + " dropped");
+        Log.i(TAG, "ui updates: " + resultApplier.getAppliedCount() + " applied, "
+                + resultApplier.getAvoidedCount() + " avoided");
+    }
+
+    // Reasons are resolved to messages only when a view shows them, so the string resources are
+    // looked up then, in the current locale.
+    private void useLocalizedMessages() {
+        ValidationReason.setMessageResolver(new LocalizedMessages(getApplicationContext().getResources()));
+    }
+
+    private void trackFocus(@NonNull EditText view, @NonNull final String field) {
+        view.setOnFocusChangeListener(new View.OnFocusChangeListener() {
+            @Override
+            public void onFocusChange(View v, boolean hasFocus) {
+                if (hasFocus) {
+                    validationSchedulers.setFocusedField(field);
+                }
+            }
+        });
+    }
+
+    // Results survive restarts in a small file under the cache dir. Reading it is disk I/O, so
+    // it is opened on the io scheduler; until then, and if it cannot be opened, we cache in memory.
+    private AvailabilityChecker createAvailabilityCache(@NonNull final AvailabilityChecker backend) {
+        final SwitchableAvailabilityChecker cache = new SwitchableAvailabilityChecker(
+                new CachingAvailabilityChecker(backend, AVAILABILITY_CACHE_SIZE, 1, 10, TimeUnit.MINUTES));
+        Observable.create(new Observable.OnSubscribe<PersistentAvailabilityChecker>() {
+            @Override
+            public void call(Subscriber<? super PersistentAvailabilityChecker> subscriber) {
+                try {
+                    subscriber.onNext(new PersistentAvailabilityChecker(backend,
+                            new File(getCacheDir(), AVAILABILITY_CACHE_FILE), AVAILABILITY_CACHE_SIZE,
+                            1, 10, TimeUnit.MINUTES));
+                    subscriber.onCompleted();
+                } catch (IOException e) {
+                    subscriber.onError(e);
+                }
+            }
+        }).subscribeOn(Schedulers.io()).subscribe(new Subscriber<PersistentAvailabilityChecker>() {
+            @Override
+            public void onCompleted() {
+
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                Log.w(TAG, "could not open availability cache", e);
+            }
+
+            @Override
+            public void onNext(PersistentAvailabilityChecker store) {
+                synchronized (storeLock) {
+                    if (destroyed) {
+                        closeAvailabilityStore(store);
+                        return;
+                    }
+
+                    availabilityStore = store;
+                    cache.switchTo(store);
+                }
+
+                Log.d(TAG, "availability cache loaded " + store.size() + " entries in "
+                        + store.getLoadTime(TimeUnit.MICROSECONDS) + " us");
+            }
+        });
+
+        return cache;
+    }
+
+    private void closeAvailabilityStore(@NonNull PersistentAvailabilityChecker store) {
+        try {
+            store.close();
+        } catch (IOException e) {
+            Log.w(TAG, "could not close availability cache", e);
+        }
     }
 
     // No validations. Just testing, if we are getting the data or not
@@ -111,8 +257,7 @@ public class MainActivity extends AppCompatActivity {
         // Also, debounce by default goes on Scheduler thread, so it is important to add observeOn
         // and observe it on main thread.
 
-        Observable<Boolean> emailObservable = RxHelper.getTextWatcherObservable(emailView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        Observable<Boolean> emailObservable = TextChangeSource.debouncedTexts(emailView, 800, TimeUnit.MILLISECONDS)
                 .observeOn(AndroidSchedulers.mainThread())
                 .map(new Func1<String, Boolean>() {
                     @Override
@@ -124,8 +269,7 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
-        Observable<Boolean> usernameObservable = RxHelper.getTextWatcherObservable(usernameView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        Observable<Boolean> usernameObservable = TextChangeSource.debouncedTexts(usernameView, 800, TimeUnit.MILLISECONDS)
                 .observeOn(AndroidSchedulers.mainThread())
                 .map(new Func1<String, Boolean>() {
                     @Override
@@ -136,8 +280,7 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
-        Observable<Boolean> phoneObservable = RxHelper.getTextWatcherObservable(phoneView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        Observable<Boolean> phoneObservable = TextChangeSource.debouncedTexts(phoneView, 800, TimeUnit.MILLISECONDS)
                 .observeOn(AndroidSchedulers.mainThread())
                 .map(new Func1<String, Boolean>() {
                     @Override
@@ -164,9 +307,8 @@ public class MainActivity extends AppCompatActivity {
 
     // Validate input data (pattern and from server) with debounce
     private void setupObservables2() {
-        Observable<Boolean> emailObservable = RxHelper.getTextWatcherObservable(emailView)
-                .debounce(800, TimeUnit.MILLISECONDS)
-                .subscribeOn(Schedulers.io())
+        Observable<Boolean> emailObservable = TextChangeSource.debouncedTexts(emailView, 800, TimeUnit.MILLISECONDS)
+                .observeOn(validationSchedulers.io("email"))
                 .map(new Func1<String, ValidationResult<String>>() {
                     @Override
                     public ValidationResult<String> call(String s) {
@@ -193,9 +335,8 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
-        Observable<Boolean> usernameObservable = RxHelper.getTextWatcherObservable(usernameView)
-                .debounce(800, TimeUnit.MILLISECONDS)
-                .subscribeOn(Schedulers.io())
+        Observable<Boolean> usernameObservable = TextChangeSource.debouncedTexts(usernameView, 800, TimeUnit.MILLISECONDS)
+                .observeOn(validationSchedulers.io("username"))
                 .map(new Func1<String, ValidationResult<String>>() {
                     @Override
                     public ValidationResult<String> call(String s) {
@@ -223,8 +364,7 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
-        Observable<Boolean> phoneObservable = RxHelper.getTextWatcherObservable(phoneView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        Observable<Boolean> phoneObservable = TextChangeSource.debouncedTexts(phoneView, 800, TimeUnit.MILLISECONDS)
                 .observeOn(AndroidSchedulers.mainThread())
                 .map(new Func1<String, Boolean>() {
                     @Override
@@ -258,8 +398,8 @@ public class MainActivity extends AppCompatActivity {
         emailSubject = PublishSubject.create();
         usernameSubject = PublishSubject.create();
 
-        RxHelper.getTextWatcherObservable(emailView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        TextChangeSource.debouncedTexts(emailView, 800, TimeUnit.MILLISECONDS)
+                .observeOn(validationSchedulers.cpu("email"))
                 .map(new Func1<String, ValidationResult<String>>() {
                     @Override
                     public ValidationResult<String> call(String s) {
@@ -268,7 +408,6 @@ public class MainActivity extends AppCompatActivity {
                         return validateEmail(s);
                     }
                 })
-                .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Action1<ValidationResult<String>>() {
                     @Override
@@ -286,8 +425,8 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
-        RxHelper.getTextWatcherObservable(usernameView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        TextChangeSource.debouncedTexts(usernameView, 800, TimeUnit.MILLISECONDS)
+                .observeOn(validationSchedulers.cpu("username"))
                 .map(new Func1<String, ValidationResult<String>>() {
                     @Override
                     public ValidationResult<String> call(String s) {
@@ -296,7 +435,6 @@ public class MainActivity extends AppCompatActivity {
                         return validateUsername(s);
                     }
                 })
-                .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Action1<ValidationResult<String>>() {
                     @Override
@@ -313,8 +451,7 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
-        Observable<Boolean> phoneObservable = RxHelper.getTextWatcherObservable(phoneView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        Observable<Boolean> phoneObservable = TextChangeSource.debouncedTexts(phoneView, 800, TimeUnit.MILLISECONDS)
                 .observeOn(AndroidSchedulers.mainThread())
                 .map(new Func1<String, Boolean>() {
                     @Override
@@ -355,6 +492,7 @@ public class MainActivity extends AppCompatActivity {
                     }
                 })
                 .debounce(800, TimeUnit.MILLISECONDS)
+                .observeOn(validationSchedulers.cpu("email"))
                 .map(new Func1<String, ValidationResult<String>>() {
                     @Override
                     public ValidationResult<String> call(String s) {
@@ -362,7 +500,6 @@ public class MainActivity extends AppCompatActivity {
                         return validateEmail(s);
                     }
                 })
-                .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Action1<ValidationResult<String>>() {
                     @Override
@@ -389,6 +526,7 @@ public class MainActivity extends AppCompatActivity {
                     }
                 })
                 .debounce(800, TimeUnit.MILLISECONDS)
+                .observeOn(validationSchedulers.cpu("username"))
                 .map(new Func1<String, ValidationResult<String>>() {
                     @Override
                     public ValidationResult<String> call(String s) {
@@ -396,7 +534,6 @@ public class MainActivity extends AppCompatActivity {
                         return validateUsername(s);
                     }
                 })
-                .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Action1<ValidationResult<String>>() {
                     @Override
@@ -413,8 +550,7 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
 
-        Observable<Boolean> phoneObservable = RxHelper.getTextWatcherObservable(phoneView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        Observable<Boolean> phoneObservable = TextChangeSource.debouncedTexts(phoneView, 800, TimeUnit.MILLISECONDS)
                 .observeOn(AndroidSchedulers.mainThread())
                 .map(new Func1<String, Boolean>() {
                     @Override
@@ -452,8 +588,7 @@ public class MainActivity extends AppCompatActivity {
 
         final Observable<ValidationResult<String>> emailApiObservable = Observable.switchOnNext(emailSubject);
 
-        RxHelper.getTextWatcherObservable(emailView)
-                .debounce(800, TimeUnit.MILLISECONDS)
+        TextChangeSource.debouncedTexts(emailView, 800, TimeUnit.MILLISECONDS)
                 .doOnNext(new Action1<String>() {
                     @Override
                     public void call(String s) {
@@ -532,25 +667,193 @@ public class MainActivity extends AppCompatActivity {
 */
     }
 
-    private ValidationResult<String> validateEmail(@NonNull String email) {
-        return ValidationUtils.isValidEmailAddress(email);
+    // Regex checks are cheap, so they now run as the user types and pattern errors show right
+    // away. Only text which passes them is debounced before the API call, and the debounce
+    // window follows how fast the user types (and how slow the API is) instead of a fixed 800 ms.
+    // Like setupObservables4, any text change cancels the pending API call, but without keeping
+    // subscriptions around by hand: switchMap drops the previous call and its late results.
+    private void setupObservables6() {
+        Observable<Boolean> emailObservable = settledTexts(emailView)
+                .compose(RemoteValidation.latestOnly(
+                        new Func1<String, ValidationResult<String>>() {
+                            @Override
+                            public ValidationResult<String> call(String s) {
+                                return validateEmail(s);
+                            }
+                        },
+                        new Func1<String, Observable<ValidationResult<String>>>() {
+                            @Override
+                            public Observable<ValidationResult<String>> call(String s) {
+                                return availabilityChecker.isEmailAvailable(s);
+                            }
+                        }, newDebouncePolicy(), Schedulers.computation()))
+                .observeOn(AndroidSchedulers.mainThread())
+                .map(new Func1<ValidationResult<String>, Boolean>() {
+                    @Override
+                    public Boolean call(ValidationResult<String> result) {
+                        Log.i(TAG, "email validation result: " + result.isValid() + " email: " + result.getData());
+                        emailView.setError(result.getReason());
+                        return result.isValid();
+                    }
+                });
+
+        Observable<Boolean> usernameObservable = settledTexts(usernameView)
+                .compose(RemoteValidation.latestOnly(
+                        new Func1<String, ValidationResult<String>>() {
+                            @Override
+                            public ValidationResult<String> call(String s) {
+                                return validateUsername(s);
+                            }
+                        },
+                        new Func1<String, Observable<ValidationResult<String>>>() {
+                            @Override
+                            public Observable<ValidationResult<String>> call(String s) {
+                                return availabilityChecker.isUsernameAvailable(s);
+                            }
+                        }, newDebouncePolicy(), Schedulers.computation()))
+                .observeOn(AndroidSchedulers.mainThread())
+                .map(new Func1<ValidationResult<String>, Boolean>() {
+                    @Override
+                    public Boolean call(ValidationResult<String> result) {
+                        Log.i(TAG, "username validation result: " + result.isValid() + " username: " + result.getData());
+                        usernameView.setError(result.getReason());
+                        return result.isValid();
+                    }
+                });
+
+        // No API call for phone, so nothing to debounce beyond the settle delay.
+        Observable<Boolean> phoneObservable = settledTexts(phoneView)
+                .map(new Func1<String, Boolean>() {
+                    @Override
+                    public Boolean call(String s) {
+                        ValidationResult result = validatePhone(s);
+                        phoneView.setError(result.getReason());
+                        return result.isValid();
+                    }
+                });
+
+        _subscription = Observable.combineLatest(usernameObservable, emailObservable, phoneObservable, new Func3<Boolean, Boolean, Boolean, Boolean>() {
+            @Override
+            public Boolean call(Boolean validUsername, Boolean validEmail, Boolean validPhone) {
+                Log.i(TAG, "email: " + validEmail + ", username: " + validUsername + ", phone: " + validPhone);
+                return validUsername && validEmail && validPhone;
+            }
+        }).subscribe(new Action1<Boolean>() {
+            @Override
+            public void call(Boolean aBoolean) {
+                submitButton.setEnabled(aBoolean);
+            }
+        });
     }
 
-    private ValidationResult<String> validateUsername(@NonNull String username) {
-        return ValidationUtils.isValidUsername(username);
+    // Same pipelines as setupObservables6, but registered with a FormValidator instead of being
+    // wired by hand. Adding a field is one more addField call (no Func3 to grow), and the submit
+    // button is only touched when the form goes from valid to invalid or back. Local rules and
+    // debounce timers run on the CPU lane, with the focused field's work first.
+    private void setupObservables7() {
+        FormValidator validator = new FormValidator(validationSchedulers.cpu(), metrics);
+
+        FormValidator.Field email = validator.addField("email",
+                settledTexts(emailView).observeOn(validationSchedulers.cpu("email")),
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return validateEmail(s);
+                    }
+                },
+                new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        return availabilityChecker.isEmailAvailable(s).subscribeOn(validationSchedulers.io("email"));
+                    }
+                }, newDebouncePolicy(), prefetchBudget);
+
+        FormValidator.Field username = validator.addField("username",
+                settledTexts(usernameView).observeOn(validationSchedulers.cpu("username")),
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return validateUsername(s);
+                    }
+                },
+                new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        return availabilityChecker.isUsernameAvailable(s).subscribeOn(validationSchedulers.io("username"));
+                    }
+                }, newDebouncePolicy(), prefetchBudget);
+
+        FormValidator.Field phone = validator.addField("phone",
+                settledTexts(phoneView).observeOn(validationSchedulers.cpu("phone")),
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return validatePhone(s);
+                    }
+                });
+
+        // Results reach the views through the applier: at most one post per frame, and no
+        // setError() / setEnabled() when the view already shows that state.
+        CompositeSubscription subscriptions = new CompositeSubscription();
+        subscriptions.add(showErrors(email, emailView));
+        subscriptions.add(showErrors(username, usernameView));
+        subscriptions.add(showErrors(phone, phoneView));
+        subscriptions.add(validator.submitEnabled()
+                .subscribe(resultApplier.slot("submit", new ResultApplier.Target<Boolean>() {
+                    @Override
+                    public void apply(Boolean enabled) {
+                        Log.i(TAG, "submit button enabled: " + enabled);
+                        submitButton.setEnabled(enabled);
+                    }
+                }).setter()));
+
+        _subscription = subscriptions;
     }
 
-    private ValidationResult validatePhone(@NonNull String phone) {
-        if (phone.isEmpty()) {
-            return ValidationResult.failure(null, phone);
-        }
+    private Subscription showErrors(@NonNull FormValidator.Field field, @NonNull final EditText view) {
+        // Compared with what the view shows, since it clears its own error on key events.
+        final ResultApplier.Slot<String> error = resultApplier.slot(field.getName(), new ResultApplier.ReadableTarget<String>() {
+            @Override
+            public String current() {
+                CharSequence shown = view.getError();
+                return shown == null ? null : shown.toString();
+            }
 
-        boolean isValid = ValidationUtils.isValidMobileNumber(phone);
-        if (isValid) {
-            return ValidationResult.success(phone);
-        }
+            @Override
+            public void apply(String reason) {
+                view.setError(reason);
+            }
+        });
+
+        return field.results()
+                .subscribe(new Action1<ValidationResult<String>>() {
+                    @Override
+                    public void call(ValidationResult<String> result) {
+                        error.set(result.getReason());
+                    }
+                });
+    }
+
+    // The text is only copied into a String once the view has been left alone for a moment,
+    // not on every keystroke.
+    private Observable<String> settledTexts(@NonNull EditText view) {
+        return TextChangeSource.debouncedTexts(view, TEXT_SETTLE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private DebouncePolicy newDebouncePolicy() {
+        return new DebouncePolicy(MIN_DEBOUNCE_MS, MAX_DEBOUNCE_MS, 800, TimeUnit.MILLISECONDS);
+    }
 
-        return ValidationResult.failure("Phone should be exactly 10 numbers", phone);
+    private ValidationResult<String> validateEmail(@NonNull String email) {
+        return FieldRules.EMAIL_ADDRESS.validate(email);
+    }
+
+    private ValidationResult<String> validateUsername(@NonNull String username) {
+        return FieldRules.USERNAME.validate(username);
+    }
+
+    private ValidationResult<String> validatePhone(@NonNull String phone) {
+        return FieldRules.PHONE_NUMBER.validate(phone);
     }
 
     private void cancelEmailApiCall() {
@@ -565,7 +868,7 @@ public class MainActivity extends AppCompatActivity {
         cancelEmailApiCall();
 
         Observable<ValidationResult<String>> observable = availabilityChecker.isEmailAvailable(email)
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(validationSchedulers.io("email"))
                 .observeOn(AndroidSchedulers.mainThread());
 
         emailApiSubscription = observable.subscribe(new Action1<ValidationResult<String>>() {
@@ -592,7 +895,7 @@ public class MainActivity extends AppCompatActivity {
         cancelEmailApiCall();
 
         emailApiSubscription = availabilityChecker.isEmailAvailable(email)
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(validationSchedulers.io("email"))
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Action1<ValidationResult<String>>() {
                     @Override
@@ -615,7 +918,7 @@ public class MainActivity extends AppCompatActivity {
         cancelUsernameApiCall();
 
         usernameApiSubscription = availabilityChecker.isUsernameAvailable(username)
-                .subscribeOn(Schedulers.io())
+                .subscribeOn(validationSchedulers.io("username"))
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Action1<ValidationResult<String>>() {
                     @Override
@@ -626,4 +929,41 @@ public class MainActivity extends AppCompatActivity {
                     }
                 });
     }
+
+    // Static and holding only the application's resources: the resolver is kept in a static
+    // field and would otherwise keep the activity alive after it finishes.
+    private static class LocalizedMessages implements ValidationReason.MessageResolver {
+
+        private final Resources resources;
+
+        LocalizedMessages(@NonNull Resources resources) {
+            this.resources = resources;
+        }
+
+        @Override
+        public String getMessage(@NonNull ValidationReason reason) {
+            switch (reason) {
+                case USERNAME_TOO_SHORT:
+                    return resources.getString(R.string.error_username_too_short);
+                case USERNAME_INVALID_CHARACTERS:
+                    return resources.getString(R.string.error_username_invalid_characters);
+                case EMAIL_INVALID:
+                    return resources.getString(R.string.error_email_invalid);
+                case PHONE_INVALID:
+                    return resources.getString(R.string.error_phone_invalid);
+                case EMAIL_TAKEN:
+                    return resources.getString(R.string.error_email_taken);
+                case USERNAME_TAKEN:
+                    return resources.getString(R.string.error_username_taken);
+                case EMAIL_NOT_VERIFIED:
+                    return resources.getString(R.string.error_email_not_verified);
+                case USERNAME_NOT_VERIFIED:
+                    return resources.getString(R.string.error_username_not_verified);
+                case CONTACT_INFO:
+                    return resources.getString(R.string.error_contact_info);
+                default:
+                    return reason.getDefaultMessage();
+            }
+        }
+    }
 }
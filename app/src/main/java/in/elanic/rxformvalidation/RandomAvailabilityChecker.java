@@ -3,6 +3,9 @@ package in.elanic.rxformvalidation;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
@@ -12,7 +15,7 @@ import rx.functions.Func0;
 /**
  * Created by Jay Rambhia on 5/26/16.
  */
-public class RandomAvailabilityChecker implements AvailabilityChecker {
+public class RandomAvailabilityChecker implements AvailabilityChecker, BatchAvailabilityChecker {
 
     private static final String TAG = "RandAvailabilityChecker";
     private Random random;
@@ -49,7 +52,7 @@ public class RandomAvailabilityChecker implements AvailabilityChecker {
             return ValidationResult.success(email);
         }
 
-        return ValidationResult.failure("Email is already taken", email);
+        return ValidationResult.failure(ValidationReason.EMAIL_TAKEN, email);
     }
 
     @Override
@@ -59,6 +62,38 @@ public class RandomAvailabilityChecker implements AvailabilityChecker {
             return ValidationResult.success(username);
         }
 
-        return ValidationResult.failure("Username is already taken", username);
+        return ValidationResult.failure(ValidationReason.USERNAME_TAKEN, username);
+    }
+
+    // One simulated round trip for the whole batch, same as for a single value.
+    @Override
+    public Observable<Map<String, ValidationResult<String>>> isEmailsAvailable(@NonNull final Collection<String> emails) {
+        return Observable.defer(new Func0<Observable<Map<String, ValidationResult<String>>>>() {
+            @Override
+            public Observable<Map<String, ValidationResult<String>>> call() {
+                Log.d(TAG, "validate emails api call: " + emails.size());
+                Map<String, ValidationResult<String>> results = new HashMap<>();
+                for (String email : emails) {
+                    results.put(email, isEmailAvailableSync(email));
+                }
+
+                return Observable.just(results);
+            }
+        }).delay(1200, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Observable<Map<String, ValidationResult<String>>> isUsernamesAvailable(@NonNull final Collection<String> usernames) {
+        return Observable.defer(new Func0<Observable<Map<String, ValidationResult<String>>>>() {
+            @Override
+            public Observable<Map<String, ValidationResult<String>>> call() {
+                Map<String, ValidationResult<String>> results = new HashMap<>();
+                for (String username : usernames) {
+                    results.put(username, isUsernameAvailableSync(username));
+                }
+
+                return Observable.just(results);
+            }
+        }).delay(3000, TimeUnit.MILLISECONDS);
     }
 }
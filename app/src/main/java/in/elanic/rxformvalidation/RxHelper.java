@@ -1,38 +1,22 @@
 package in.elanic.rxformvalidation;
 
 import android.support.annotation.NonNull;
-import android.text.Editable;
-import android.text.TextWatcher;
 import android.widget.EditText;
 
 import rx.Observable;
-import rx.subjects.PublishSubject;
 
 /**
  * Created by Jay Rambhia on 5/26/16.
  */
 public class RxHelper {
 
+    /**
+     * The text after every edit. The TextWatcher is shared per view and removed once every
+     * subscriber has unsubscribed, see {@link TextChangeSource}. Every keystroke pays for a
+     * String; pipelines which only need the settled text should use
+     * {@link TextChangeSource#debouncedTexts}.
+     */
     public static Observable<String> getTextWatcherObservable(@NonNull final EditText editText) {
-
-        final PublishSubject<String> subject = PublishSubject.create();
-        editText.addTextChangedListener(new TextWatcher() {
-            @Override
-            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
-
-            }
-
-            @Override
-            public void onTextChanged(CharSequence s, int start, int before, int count) {
-
-            }
-
-            @Override
-            public void afterTextChanged(Editable s) {
-                subject.onNext(s.toString());
-            }
-        });
-
-        return subject;
+        return TextChangeSource.texts(editText);
     }
 }
@@ -0,0 +1,43 @@
+package in.elanic.rxformvalidation;
+
+import android.support.annotation.NonNull;
+
+import rx.Observable;
+
+/**
+ * Forwards to a delegate that can be replaced while lookups are running, e.g. an in-memory
+ * cache until the persistent one has been opened in the background. Lookups already started
+ * stay on the delegate they started with.
+ */
+public class SwitchableAvailabilityChecker implements AvailabilityChecker {
+
+    private volatile AvailabilityChecker delegate;
+
+    public SwitchableAvailabilityChecker(@NonNull AvailabilityChecker delegate) {
+        this.delegate = delegate;
+    }
+
+    public void switchTo(@NonNull AvailabilityChecker delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@NonNull String email) {
+        return delegate.isEmailAvailable(email);
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@NonNull String username) {
+        return delegate.isUsernameAvailable(username);
+    }
+
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@NonNull String email) {
+        return delegate.isEmailAvailableSync(email);
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@NonNull String username) {
+        return delegate.isUsernameAvailableSync(username);
+    }
+}
@@ -0,0 +1,216 @@
+package in.elanic.rxformvalidation;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.widget.EditText;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.functions.Action0;
+import rx.functions.Func1;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Text changes of an EditText as an Observable, without leaking the view.
+ *
+ * There is one TextWatcher per view, shared by all subscribers (the source is kept in a view
+ * tag). It is added with the first subscriber and removed when the last one unsubscribes, so
+ * unsubscribing in onDestroy() leaves nothing behind that points at the activity. Listener
+ * changes always happen on the main thread, whichever thread subscribes or unsubscribes.
+ *
+ * Events are {@link TextChange}s, which do not copy the text: only the events which survive
+ * debounce and friends pay for a String, see {@link #debouncedTexts}.
+ */
+public class TextChangeSource {
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private final EditText view;
+    private final List<Subscriber<? super TextChange>> subscribers = new CopyOnWriteArrayList<>();
+    private final TextWatcher watcher = new TextWatcher() {
+        private int start;
+        private int before;
+        private int count;
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+            this.start = start;
+            this.before = before;
+            this.count = count;
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            TextChange change = new TextChange(s, start, before, count);
+            for (Subscriber<? super TextChange> subscriber : subscribers) {
+                subscriber.onNext(change);
+            }
+        }
+    };
+    private boolean attached;
+
+    private TextChangeSource(@NonNull EditText view) {
+        this.view = view;
+    }
+
+    /**
+     * Every edit of {@code view}, as it happens, on the main thread.
+     */
+    @NonNull
+    public static Observable<TextChange> changes(@NonNull EditText view) {
+        final TextChangeSource source = of(view);
+        return Observable.create(new Observable.OnSubscribe<TextChange>() {
+            @Override
+            public void call(final Subscriber<? super TextChange> subscriber) {
+                source.subscribers.add(subscriber);
+                onMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        source.updateListener();
+                    }
+                });
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        source.subscribers.remove(subscriber);
+                        onMainThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                source.updateListener();
+                            }
+                        });
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * The text after every edit. Same cost as the old TextWatcher: a String per keystroke.
+     */
+    @NonNull
+    public static Observable<String> texts(@NonNull EditText view) {
+        return changes(view).map(TextChange.TO_STRING);
+    }
+
+    /**
+     * The text once it has been left alone for {@code timeout}. The debounce timer runs on the
+     * main thread, so the text is read there, and only once per burst of typing.
+     */
+    @NonNull
+    public static Observable<String> debouncedTexts(@NonNull EditText view, long timeout, @NonNull TimeUnit unit) {
+        return changes(view)
+                .debounce(timeout, unit, AndroidSchedulers.mainThread())
+                .map(TextChange.TO_STRING);
+    }
+
+    /**
+     * Number of subscribers sharing the view's watcher, for tests.
+     */
+    static int getSubscriberCount(@NonNull EditText view) {
+        return of(view).subscribers.size();
+    }
+
+    /**
+     * Whether the view's watcher is currently added, for tests.
+     */
+    static boolean isAttached(@NonNull EditText view) {
+        return of(view).attached;
+    }
+
+    @NonNull
+    private static TextChangeSource of(@NonNull EditText view) {
+        Object tag = view.getTag(R.id.text_change_source);
+        if (tag instanceof TextChangeSource) {
+            return (TextChangeSource) tag;
+        }
+
+        TextChangeSource source = new TextChangeSource(view);
+        view.setTag(R.id.text_change_source, source);
+        return source;
+    }
+
+    // Main thread only, so attached and the listener list of the view cannot race.
+    private void updateListener() {
+        boolean wanted = !subscribers.isEmpty();
+        if (wanted == attached) {
+            return;
+        }
+
+        if (wanted) {
+            view.addTextChangedListener(watcher);
+        } else {
+            view.removeTextChangedListener(watcher);
+        }
+        attached = wanted;
+    }
+
+    private static void onMainThread(@NonNull Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            MAIN.post(runnable);
+        }
+    }
+
+    /**
+     * One edit: {@code before} characters at {@code start} were replaced by {@code count} new
+     * ones. {@link #text()} reads the view's text when first called and keeps it; call it on the
+     * main thread, and expect the current text if the view has changed since.
+     */
+    public static class TextChange {
+
+        static final Func1<TextChange, String> TO_STRING = new Func1<TextChange, String>() {
+            @Override
+            public String call(TextChange change) {
+                return change.text();
+            }
+        };
+
+        private final CharSequence editable;
+        private final int start;
+        private final int before;
+        private final int count;
+        private String text;
+
+        TextChange(@NonNull CharSequence editable, int start, int before, int count) {
+            this.editable = editable;
+            this.start = start;
+            this.before = before;
+            this.count = count;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getBefore() {
+            return before;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @NonNull
+        public String text() {
+            if (text == null) {
+                text = editable.toString();
+            }
+
+            return text;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package in.elanic.rxformvalidation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import in.elanic.rxformvalidation.HttpAvailabilityChecker;
+import in.elanic.rxformvalidation.LocalAvailabilityServer;
+import in.elanic.rxformvalidation.ValidationResult;
+import rx.Subscriber;
+
+/**
+ * Per-lookup overhead of {@link HttpAvailabilityChecker} against the loopback
+ * {@link LocalAvailabilityServer}: one operation is a burst of concurrent lookups, as when a
+ * form with several fields is validated at once.
+ *
+ * "close" makes the server drop every connection after one response, which shows what
+ * connection churn costs compared to keep-alive. Connections opened per operation are printed at
+ * the end of each trial.
+ */
+@State(Scope.Benchmark)
+public class HttpAvailabilityCheckerBenchmark {
+
+    private static final int BURST = 16;
+
+    @Param({"1", "4"})
+    public int maxConnections;
+
+    @Param({"1", "8"})
+    public int maxPipelineDepth;
+
+    @Param({"keep-alive", "close"})
+    public String connection;
+
+    private LocalAvailabilityServer server;
+    private HttpAvailabilityChecker checker;
+    private long operations;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        server = new LocalAvailabilityServer();
+        if ("close".equals(connection)) {
+            server.setMaxRequestsPerConnection(1);
+        }
+
+        checker = new HttpAvailabilityChecker(server.getHost(), server.getPort(), maxConnections, maxPipelineDepth);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println("connections opened per operation: "
+                + (double) checker.getConnectionsOpenedCount() / Math.max(1, operations)
+                + ", pipelined requests: " + checker.getPipelinedCount());
+        checker.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void burst() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(BURST);
+        for (int i = 0; i < BURST; i++) {
+            checker.isUsernameAvailable("user" + i).subscribe(new Subscriber<ValidationResult<String>>() {
+                @Override
+                public void onCompleted() {
+                    done.countDown();
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onNext(ValidationResult<String> result) {
+                }
+            });
+        }
+
+        done.await(10, TimeUnit.SECONDS);
+        operations++;
+    }
+}
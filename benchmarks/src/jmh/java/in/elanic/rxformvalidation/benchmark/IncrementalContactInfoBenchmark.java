@@ -0,0 +1,56 @@
+package in.elanic.rxformvalidation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import in.elanic.rxformvalidation.IncrementalContactInfoValidator;
+import in.elanic.rxformvalidation.ValidationReason;
+import in.elanic.rxformvalidation.ValidationUtils;
+
+/**
+ * One keystroke in the middle of a long free-text field: a full rescan versus
+ * {@link IncrementalContactInfoValidator}. The full rescan should grow with the length, the
+ * incremental update should not.
+ */
+@State(Scope.Thread)
+public class IncrementalContactInfoBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    public int length;
+
+    private StringBuilder text;
+    private IncrementalContactInfoValidator validator;
+    private int position;
+
+    @Setup
+    public void setup() {
+        String words = "Barely used jacket, size M. Pick up near the station after 6pm. ";
+        text = new StringBuilder(ValidationUtilsBenchmark.repeat(words, length / words.length() + 1));
+        text.setLength(length);
+        validator = new IncrementalContactInfoValidator();
+        validator.reset(text);
+        position = length / 2;
+    }
+
+    // Types a character and deletes it again, so the text stays the same size.
+    @Benchmark
+    public ValidationReason fullRescan() {
+        text.insert(position, 'x');
+        ValidationUtils.checkNoContactInfo(text);
+        text.deleteCharAt(position);
+
+        return ValidationUtils.checkNoContactInfo(text);
+    }
+
+    @Benchmark
+    public ValidationReason incremental() {
+        text.insert(position, 'x');
+        validator.update(text, position, 0, 1);
+        text.deleteCharAt(position);
+
+        return validator.update(text, position, 1, 0);
+    }
+}
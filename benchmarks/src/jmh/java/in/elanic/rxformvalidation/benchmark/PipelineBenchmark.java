@@ -0,0 +1,86 @@
+package in.elanic.rxformvalidation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import in.elanic.rxformvalidation.ValidationResult;
+import in.elanic.rxformvalidation.ValidationUtils;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+/**
+ * The text -> debounce -> validate chain MainActivity builds for each field, driven on a
+ * TestScheduler so one operation types a whole email address in virtual time without sleeping.
+ */
+@State(Scope.Thread)
+public class PipelineBenchmark {
+
+    private static final String EMAIL = "john.doe@example.com";
+    private static final long KEYSTROKE_INTERVAL_MS = 120;
+    private static final long DEBOUNCE_MS = 800;
+
+    private TestScheduler scheduler;
+    private PublishSubject<String> textSubject;
+    private Subscription subscription;
+    private String[] keystrokes;
+    private int validCount;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keystrokes = new String[EMAIL.length()];
+        for (int i = 0; i < keystrokes.length; i++) {
+            keystrokes[i] = EMAIL.substring(0, i + 1);
+        }
+
+        scheduler = new TestScheduler();
+        textSubject = PublishSubject.create();
+        subscription = textSubject
+                .debounce(DEBOUNCE_MS, TimeUnit.MILLISECONDS, scheduler)
+                .map(new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return ValidationUtils.isValidEmailAddress(s);
+                    }
+                })
+                .subscribe(new Action1<ValidationResult<String>>() {
+                    @Override
+                    public void call(ValidationResult<String> result) {
+                        if (result.isValid()) {
+                            validCount++;
+                        }
+                    }
+                });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        subscription.unsubscribe();
+    }
+
+    @Benchmark
+    public int typeEmail() {
+        for (String keystroke : keystrokes) {
+            textSubject.onNext(keystroke);
+            scheduler.advanceTimeBy(KEYSTROKE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        scheduler.advanceTimeBy(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        return validCount;
+    }
+
+    @Benchmark
+    public int singleKeystroke() {
+        textSubject.onNext(EMAIL);
+        scheduler.advanceTimeBy(DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        return validCount;
+    }
+}
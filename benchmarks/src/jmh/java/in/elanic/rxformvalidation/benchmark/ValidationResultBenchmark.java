@@ -0,0 +1,112 @@
+package in.elanic.rxformvalidation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import in.elanic.rxformvalidation.ValidationReason;
+import in.elanic.rxformvalidation.ValidationResult;
+import in.elanic.rxformvalidation.ValidationUtils;
+
+/**
+ * Cost of the {@link ValidationResult} factories every validation goes through. Run with the gc
+ * profiler to see the bytes allocated per result.
+ *
+ * The legacy* benchmarks use a copy of the class as it was before reason codes, the check*
+ * benchmarks the code-only rules, which should show 0 B/op.
+ */
+@State(Scope.Thread)
+public class ValidationResultBenchmark {
+
+    private String data = "john.doe@example.com";
+    private String invalid = "john.doe@example";
+    private String empty = "";
+    private String reason = "Please enter correct email address";
+
+    @Benchmark
+    public ValidationResult<String> success() {
+        return ValidationResult.success(data);
+    }
+
+    @Benchmark
+    public ValidationResult<String> failure() {
+        return ValidationResult.failure(ValidationReason.EMAIL_INVALID, data);
+    }
+
+    @Benchmark
+    public boolean successRoundTrip() {
+        ValidationResult<String> result = ValidationResult.success(data);
+        return result.isValid() && result.getReason() == null;
+    }
+
+    @Benchmark
+    public String failureMessage() {
+        return ValidationResult.failure(ValidationReason.EMAIL_INVALID, data).getReason();
+    }
+
+    @Benchmark
+    public LegacyValidationResult<String> legacySuccess() {
+        return LegacyValidationResult.success(data);
+    }
+
+    @Benchmark
+    public LegacyValidationResult<String> legacyFailure() {
+        return LegacyValidationResult.failure(reason, data);
+    }
+
+    @Benchmark
+    public ValidationResult<String> isValidEmailAddress() {
+        return ValidationUtils.isValidEmailAddress(data);
+    }
+
+    @Benchmark
+    public ValidationResult<String> isValidEmailAddressEmpty() {
+        return ValidationUtils.isValidEmailAddress(empty);
+    }
+
+    @Benchmark
+    public ValidationReason checkEmailAddress() {
+        return ValidationUtils.checkEmailAddress(data);
+    }
+
+    @Benchmark
+    public ValidationReason checkEmailAddressInvalid() {
+        return ValidationUtils.checkEmailAddress(invalid);
+    }
+
+    /**
+     * ValidationResult before reason codes: a free-text reason per result.
+     */
+    public static class LegacyValidationResult<T> {
+
+        private boolean valid;
+        private String reason;
+        private T data;
+
+        static <T> LegacyValidationResult<T> success(T t) {
+            return new LegacyValidationResult<>(true, null, t);
+        }
+
+        static <T> LegacyValidationResult<T> failure(String reason, T t) {
+            return new LegacyValidationResult<>(false, reason, t);
+        }
+
+        private LegacyValidationResult(boolean valid, String reason, T t) {
+            this.valid = valid;
+            this.reason = reason;
+            this.data = t;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        public T getData() {
+            return data;
+        }
+    }
+}
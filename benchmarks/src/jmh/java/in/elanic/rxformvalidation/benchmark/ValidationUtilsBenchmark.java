@@ -0,0 +1,103 @@
+package in.elanic.rxformvalidation.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import in.elanic.rxformvalidation.ValidationResult;
+import in.elanic.rxformvalidation.ValidationUtils;
+
+/**
+ * Every rule in {@link ValidationUtils} with short, typical and adversarial inputs.
+ * Adversarial inputs are long texts that almost match, which is where the old ".*" regexes
+ * used to backtrack.
+ */
+@State(Scope.Benchmark)
+public class ValidationUtilsBenchmark {
+
+    @Param({"short", "typical", "adversarial"})
+    public String input;
+
+    private String email;
+    private String username;
+    private String mobileNumber;
+    private String text;
+
+    @Setup
+    public void setup() {
+        switch (input) {
+            case "short":
+                email = "a@b";
+                username = "ab";
+                mobileNumber = "98";
+                text = "hi";
+                break;
+
+            case "typical":
+                email = "john.doe+news@example.com";
+                username = "john_doe.91";
+                mobileNumber = "9876543210";
+                text = "Barely used jacket, size M. Pick up near the station or call me after 6pm.";
+                break;
+
+            case "adversarial":
+                email = repeat("john.doe", 128) + "@" + repeat("x", 2048);
+                username = "j" + repeat("_", 18) + "!";
+                mobileNumber = repeat("987654321 ", 100);
+                text = repeat("call 98765 4321 or 1234 ", 200);
+                break;
+
+            default:
+                throw new IllegalArgumentException("Unknown input: " + input);
+        }
+    }
+
+    @Benchmark
+    public ValidationResult<String> isValidEmailAddress() {
+        return ValidationUtils.isValidEmailAddress(email);
+    }
+
+    @Benchmark
+    public ValidationResult<String> isValidUsername() {
+        return ValidationUtils.isValidUsername(username);
+    }
+
+    @Benchmark
+    public boolean isValidMobileNumber() {
+        return ValidationUtils.isValidMobileNumber(mobileNumber);
+    }
+
+    @Benchmark
+    public boolean containsMobileNumber() {
+        return ValidationUtils.containsMobileNumber(text);
+    }
+
+    @Benchmark
+    public boolean containsFourConsecutiveNumbers() {
+        return ValidationUtils.containsFourConsecutiveNumbers(text);
+    }
+
+    // The three separate checks above versus one pass of the ContactInfoScanner.
+    @Benchmark
+    public boolean containsContactInfoSeparately() {
+        return ValidationUtils.containsMobileNumber(text)
+                || ValidationUtils.containsFourConsecutiveNumbers(text)
+                || ValidationUtils.containsEmailAddress(text);
+    }
+
+    @Benchmark
+    public boolean containsContactInfo() {
+        return ValidationUtils.containsContactInfo(text);
+    }
+
+    static String repeat(String s, int count) {
+        StringBuilder builder = new StringBuilder(s.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(s);
+        }
+
+        return builder.toString();
+    }
+}
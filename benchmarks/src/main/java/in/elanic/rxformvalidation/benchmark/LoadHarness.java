@@ -0,0 +1,184 @@
+package in.elanic.rxformvalidation.benchmark;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import in.elanic.rxformvalidation.AvailabilityChecker;
+import in.elanic.rxformvalidation.CachingAvailabilityChecker;
+import in.elanic.rxformvalidation.CoalescingAvailabilityChecker;
+import in.elanic.rxformvalidation.DebouncePolicy;
+import in.elanic.rxformvalidation.LatencyDistribution;
+import in.elanic.rxformvalidation.LatencyHistogram;
+import in.elanic.rxformvalidation.RemoteValidation;
+import in.elanic.rxformvalidation.SimulatedAvailabilityChecker;
+import in.elanic.rxformvalidation.ValidationResult;
+import in.elanic.rxformvalidation.ValidationUtils;
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.functions.Func1;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+/**
+ * Drives many simulated signup forms against a {@link SimulatedAvailabilityChecker} in virtual
+ * time and reports what the backend and the users see:
+ * <ul>
+ * <li>API calls per form, including calls cancelled by later keystrokes</li>
+ * <li>p50/p99 time-to-valid: from the last keystroke until the field shows a valid result</li>
+ * <li>cancellation ratio: calls cancelled before answering / calls made</li>
+ * </ul>
+ * Each form types an email address with seeded, human-like keystroke timing (including the odd
+ * pause) through the same latest-only pipeline the app uses. Everything runs on one
+ * TestScheduler, so a run is deterministic and takes seconds even for thousands of forms.
+ *
+ * Usage: LoadHarness [forms] [seed] [fixed|lognormal|bimodal] [plain|cached] [maxConcurrentCalls]
+ */
+public class LoadHarness {
+
+    private static final long ARRIVAL_WINDOW_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MEAN_KEYSTROKE_MS = 140;
+    private static final double PAUSE_PROBABILITY = 0.08;
+
+    private final int forms;
+    private final long seed;
+    private final String stack;
+    private final TestScheduler scheduler = new TestScheduler();
+    private final SimulatedAvailabilityChecker backend;
+    private final AvailabilityChecker checker;
+    private final LatencyHistogram timeToValid = new LatencyHistogram();
+    private int validForms;
+    private int failedForms;
+
+    LoadHarness(int forms, long seed, LatencyDistribution latency, String stack, int maxConcurrentCalls) {
+        this.forms = forms;
+        this.seed = seed;
+        this.stack = stack;
+        this.backend = new SimulatedAvailabilityChecker.Builder()
+                .seed(seed)
+                .latency(latency)
+                // Time-to-valid needs every finished address to be available.
+                .takenFraction(0)
+                .errorRate(0.01)
+                .timeouts(0.005, 10, TimeUnit.SECONDS)
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .scheduler(scheduler)
+                .build();
+        this.checker = "cached".equals(stack)
+                ? new CachingAvailabilityChecker(new CoalescingAvailabilityChecker(backend), 1024,
+                        1, 10, TimeUnit.MINUTES, scheduler)
+                : backend;
+    }
+
+    void run() {
+        Random random = new Random(seed);
+        for (int i = 0; i < forms; i++) {
+            startForm(i, random.nextInt(20) == 0 ? "user" + random.nextInt(10) : "user" + i, random);
+        }
+
+        scheduler.advanceTimeBy(ARRIVAL_WINDOW_MS + TimeUnit.MINUTES.toMillis(5), TimeUnit.MILLISECONDS);
+    }
+
+    private void startForm(int index, String user, Random random) {
+        final String email = user + "@example.com";
+        final PublishSubject<String> text = PublishSubject.create();
+        final DebouncePolicy policy = new DebouncePolicy(250, 1500, 800, TimeUnit.MILLISECONDS);
+        final long[] lastKeystrokeMs = new long[1];
+
+        text.compose(RemoteValidation.latestOnly(
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return ValidationUtils.isValidEmailAddress(s);
+                    }
+                },
+                new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        return checker.isEmailAvailable(s);
+                    }
+                },
+                policy, scheduler))
+                .subscribe(new Subscriber<ValidationResult<String>>() {
+                    @Override
+                    public void onCompleted() {
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        // No retries yet, the field is stuck.
+                        failedForms++;
+                    }
+
+                    @Override
+                    public void onNext(ValidationResult<String> result) {
+                        if (result.isValid() && email.equals(result.getData())) {
+                            validForms++;
+                            timeToValid.recordMillis(scheduler.now() - lastKeystrokeMs[0]);
+                            unsubscribe();
+                        }
+                    }
+                });
+
+        long time = (long) (random.nextDouble() * ARRIVAL_WINDOW_MS);
+        for (int i = 1; i <= email.length(); i++) {
+            final String typed = email.substring(0, i);
+            final long at = time;
+            scheduler.createWorker().schedule(new Action0() {
+                @Override
+                public void call() {
+                    lastKeystrokeMs[0] = at;
+                    text.onNext(typed);
+                }
+            }, at, TimeUnit.MILLISECONDS);
+
+            time += random.nextDouble() < PAUSE_PROBABILITY
+                    ? 400 + random.nextInt(1200)
+                    : Math.max(30, (long) (MEAN_KEYSTROKE_MS + 50 * random.nextGaussian()));
+        }
+    }
+
+    void report() {
+        LatencyHistogram.Snapshot snapshot = timeToValid.snapshot();
+        long calls = backend.getCallCount();
+        System.out.println(String.format(Locale.US, "forms=%d stack=%s seed=%d", forms, stack, seed));
+        System.out.println(String.format(Locale.US, "api calls/form      %.2f (%d calls)",
+                (double) calls / forms, calls));
+        System.out.println(String.format(Locale.US, "time-to-valid p50   %d ms",
+                snapshot.getPercentile(50) / 1000));
+        System.out.println(String.format(Locale.US, "time-to-valid p99   %d ms",
+                snapshot.getPercentile(99) / 1000));
+        System.out.println(String.format(Locale.US, "cancellation ratio  %.3f (%d cancelled)",
+                calls == 0 ? 0 : (double) backend.getCancelledCount() / calls, backend.getCancelledCount()));
+        System.out.println(String.format(Locale.US, "valid forms         %d, failed %d, errors %d, timeouts %d",
+                validForms, failedForms, backend.getErrorCount(), backend.getTimeoutCount()));
+        System.out.println(String.format(Locale.US, "peak backend queue  %d", backend.getPeakQueueLength()));
+    }
+
+    public static void main(String[] args) {
+        int forms = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        String profile = args.length > 2 ? args[2] : "bimodal";
+        String stack = args.length > 3 ? args[3] : "plain";
+        int maxConcurrentCalls = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+
+        LoadHarness harness = new LoadHarness(forms, seed, latency(profile), stack, maxConcurrentCalls);
+        harness.run();
+        harness.report();
+    }
+
+    private static LatencyDistribution latency(String profile) {
+        switch (profile) {
+            case "fixed":
+                return LatencyDistribution.fixed(1200);
+            case "lognormal":
+                return LatencyDistribution.lognormal(300, 1500);
+            case "bimodal":
+                return LatencyDistribution.bimodal(LatencyDistribution.lognormal(250, 800),
+                        LatencyDistribution.lognormal(2500, 6000), 0.05);
+            default:
+                throw new IllegalArgumentException("Unknown latency profile: " + profile);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package in.elanic.rxformvalidation.batch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals for one bulk validation run. The failures themselves are streamed to the output file.
+ */
+public class BulkValidationReport {
+
+    static final int EMAIL = 0;
+    static final int USERNAME = 1;
+    static final int PHONE = 2;
+    static final String[] FIELDS = {"email", "username", "phone"};
+
+    private long lines;
+    private long records;
+    private long failures;
+    private final long[] failedFields = new long[FIELDS.length];
+    private long bytes;
+    private long elapsedNanos;
+
+    void add(ChunkResult result) {
+        lines += result.lines;
+        records += result.records;
+        failures += result.failureCount;
+        for (int i = 0; i < failedFields.length; i++) {
+            failedFields[i] += result.failedFields[i];
+        }
+    }
+
+    void addHeader() {
+        lines++;
+    }
+
+    void finish(long bytes, long elapsedNanos) {
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * All lines in the file, including the header and blank lines.
+     */
+    public long getLineCount() {
+        return lines;
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    public long getFailureCount() {
+        return failures;
+    }
+
+    public long getEmailFailureCount() {
+        return failedFields[EMAIL];
+    }
+
+    public long getUsernameFailureCount() {
+        return failedFields[USERNAME];
+    }
+
+    public long getPhoneFailureCount() {
+        return failedFields[PHONE];
+    }
+
+    public long getByteCount() {
+        return bytes;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkValidationReport{" +
+                "records=" + records +
+                ", lines=" + lines +
+                ", failures=" + failures +
+                " (email=" + failedFields[EMAIL] +
+                ", username=" + failedFields[USERNAME] +
+                ", phone=" + failedFields[PHONE] + ")" +
+                ", bytes=" + bytes +
+                ", elapsedMs=" + getElapsed(TimeUnit.MILLISECONDS) +
+                ", recordsPerSecond=" + Math.round(getRecordsPerSecond()) +
+                '}';
+    }
+}
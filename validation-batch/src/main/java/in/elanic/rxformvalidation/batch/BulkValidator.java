@@ -0,0 +1,172 @@
+package in.elanic.rxformvalidation.batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Validates large CSV / NDJSON exports with the same rules as the signup form.
+ *
+ * The input is memory-mapped one window at a time. Each window is cut back to its last complete
+ * line and validated in parallel by a fork/join pool; the failures of a window are written out,
+ * in line order, before the next window is mapped, so memory stays bounded by the window size.
+ * Windows and chunks are cut at any '\n', so quoted CSV fields with line breaks in them are not
+ * supported.
+ *
+ * Failures are written as tab separated "line, field, value, reason" rows under a header row.
+ */
+public class BulkValidator {
+
+    static final int DEFAULT_WINDOW_BYTES = 64 * 1024 * 1024;
+    static final int DEFAULT_CHUNK_BYTES = 256 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int windowBytes;
+    private final int chunkBytes;
+
+    public BulkValidator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public BulkValidator(int parallelism) {
+        this(parallelism, DEFAULT_WINDOW_BYTES, DEFAULT_CHUNK_BYTES);
+    }
+
+    BulkValidator(int parallelism, int windowBytes, int chunkBytes) {
+        if (windowBytes <= 0 || chunkBytes <= 0) {
+            throw new IllegalArgumentException("windowBytes and chunkBytes must be positive");
+        }
+
+        this.pool = new ForkJoinPool(parallelism);
+        this.windowBytes = windowBytes;
+        this.chunkBytes = chunkBytes;
+    }
+
+    @Nonnull
+    public BulkValidationReport validate(@Nonnull File input, @Nonnull RecordFormat format,
+                                         @Nonnull File output) throws IOException {
+        long startNanos = System.nanoTime();
+        BulkValidationReport report = new BulkValidationReport();
+        try (RandomAccessFile file = new RandomAccessFile(input, "r");
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(output), RecordFormat.UTF_8))) {
+            writer.write("line\tfield\tvalue\treason\n");
+
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            long position = 0;
+            long lineBase = 0;
+            RecordFormat.Columns columns = null;
+            while (position < size) {
+                long length = Math.min(windowBytes, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < size) {
+                    end = lastLineEnd(window, end);
+                    if (end == 0) {
+                        throw new IOException("Line at byte " + position + " is longer than "
+                                + windowBytes + " bytes");
+                    }
+                }
+
+                int start = 0;
+                if (format.hasHeader() && columns == null) {
+                    start = nextLineStart(window, 0, end);
+                    columns = RecordFormat.Columns.parse(new Worker().decode(window, 0, start).trim());
+                    report.addHeader();
+                    lineBase++;
+                }
+
+                ChunkResult result = pool.invoke(
+                        new ChunkTask(window, start, end, chunkBytes, format, columns));
+                for (ValidationFailure failure : result.failures(lineBase)) {
+                    write(writer, failure);
+                }
+
+                report.add(result);
+                lineBase += result.lines;
+                position += end;
+            }
+
+            report.finish(size, System.nanoTime() - startNanos);
+        }
+
+        return report;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private static void write(@Nonnull Writer writer, @Nonnull ValidationFailure failure)
+            throws IOException {
+        writer.write(Long.toString(failure.getLine()));
+        writer.write('\t');
+        writer.write(failure.getField());
+        writer.write('\t');
+        writer.write(escape(failure.getValue()));
+        writer.write('\t');
+        writer.write(failure.getReason());
+        writer.write('\n');
+    }
+
+    // Keeps every failure on one row of the report.
+    private static String escape(@Nonnull String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /**
+     * Index just after the first '\n' at or after from, or end if there is none.
+     */
+    static int nextLineStart(@Nonnull ByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+
+        return end;
+    }
+
+    /**
+     * Index just after the last '\n' before end, or 0 if there is none.
+     */
+    static int lastLineEnd(@Nonnull ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+
+        return 0;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: BulkValidator <csv|ndjson> <input> <failures.tsv> [parallelism]");
+            System.exit(2);
+        }
+
+        RecordFormat format = RecordFormat.valueOf(args[0].toUpperCase(Locale.US));
+        BulkValidator validator = args.length > 3
+                ? new BulkValidator(Integer.parseInt(args[3]))
+                : new BulkValidator();
+        try {
+            BulkValidationReport report = validator.validate(new File(args[1]), format, new File(args[2]));
+            System.out.println(report);
+        } finally {
+            validator.shutdown();
+        }
+    }
+}
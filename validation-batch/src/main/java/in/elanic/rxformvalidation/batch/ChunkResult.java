@@ -0,0 +1,85 @@
+package in.elanic.rxformvalidation.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+/**
+ * What a chunk task found. Failures are kept per validated chunk, with line numbers relative to
+ * that chunk; merging only records where each chunk starts, and {@link #failures(long)} applies
+ * the offsets once when the merged result is read.
+ */
+class ChunkResult {
+
+    int lines;
+    int records;
+    int failureCount;
+    final int[] failedFields = new int[BulkValidationReport.FIELDS.length];
+    // Line offset of each chunk's failures from the start of this result, in line order
+    private final List<Segment> segments = new ArrayList<>();
+
+    void fail(int line, int field, @Nonnull String value, @Nonnull String reason) {
+        if (segments.isEmpty()) {
+            segments.add(new Segment(0));
+        }
+
+        failedFields[field]++;
+        failureCount++;
+        segments.get(0).failures.add(new ValidationFailure(line, BulkValidationReport.FIELDS[field], value, reason));
+    }
+
+    /**
+     * Appends the result of the chunk directly after this one, keeping failures in line order.
+     * Copies no failures, only one entry per chunk.
+     */
+    ChunkResult merge(@Nonnull ChunkResult next) {
+        for (Segment segment : next.segments) {
+            segments.add(segment.shift(lines));
+        }
+
+        for (int i = 0; i < failedFields.length; i++) {
+            failedFields[i] += next.failedFields[i];
+        }
+
+        lines += next.lines;
+        records += next.records;
+        failureCount += next.failureCount;
+
+        return this;
+    }
+
+    /**
+     * The failures in line order, numbered from {@code lineBase}.
+     */
+    @Nonnull
+    List<ValidationFailure> failures(long lineBase) {
+        List<ValidationFailure> all = new ArrayList<>(failureCount);
+        for (Segment segment : segments) {
+            for (ValidationFailure failure : segment.failures) {
+                all.add(failure.offset(lineBase + segment.offset));
+            }
+        }
+
+        return all;
+    }
+
+    private static class Segment {
+
+        final int offset;
+        final List<ValidationFailure> failures;
+
+        Segment(int offset) {
+            this(offset, new ArrayList<ValidationFailure>());
+        }
+
+        private Segment(int offset, @Nonnull List<ValidationFailure> failures) {
+            this.offset = offset;
+            this.failures = failures;
+        }
+
+        Segment shift(int lines) {
+            return new Segment(offset + lines, failures);
+        }
+    }
+}
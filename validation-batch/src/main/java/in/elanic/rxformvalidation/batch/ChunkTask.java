@@ -0,0 +1,112 @@
+package in.elanic.rxformvalidation.batch;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.Nonnull;
+
+import in.elanic.rxformvalidation.ValidationReason;
+import in.elanic.rxformvalidation.ValidationUtils;
+
+/**
+ * Validates the complete lines in [start, end) of a mapped window, splitting in halves at line
+ * boundaries until the pieces are at most chunkBytes long.
+ */
+class ChunkTask extends RecursiveTask<ChunkResult> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int end;
+    private final int chunkBytes;
+    private final RecordFormat format;
+    private final RecordFormat.Columns columns;
+
+    ChunkTask(@Nonnull ByteBuffer buffer, int start, int end, int chunkBytes,
+              @Nonnull RecordFormat format, RecordFormat.Columns columns) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+        this.chunkBytes = chunkBytes;
+        this.format = format;
+        this.columns = columns;
+    }
+
+    @Override
+    protected ChunkResult compute() {
+        if (end - start > chunkBytes) {
+            int middle = BulkValidator.nextLineStart(buffer, start + (end - start) / 2, end);
+            if (middle < end) {
+                ChunkTask left = new ChunkTask(buffer, start, middle, chunkBytes, format, columns);
+                left.fork();
+                ChunkResult right = new ChunkTask(buffer, middle, end, chunkBytes, format, columns)
+                        .compute();
+
+                return left.join().merge(right);
+            }
+        }
+
+        return validateLines();
+    }
+
+    private ChunkResult validateLines() {
+        Worker worker = Worker.get();
+        Record record = worker.record;
+        ChunkResult result = new ChunkResult();
+        int lineStart = start;
+        while (lineStart < end) {
+            int lineEnd = BulkValidator.nextLineStart(buffer, lineStart, end);
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\n') {
+                contentEnd--;
+            }
+
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+
+            // Line numbers within the chunk are 1-based.
+            result.lines++;
+            if (contentEnd > lineStart) {
+                record.clear();
+                format.read(buffer, lineStart, contentEnd, columns, worker);
+                validate(record, result.lines, result);
+                result.records++;
+            }
+
+            lineStart = lineEnd;
+        }
+
+        return result;
+    }
+
+    /**
+     * Uses the reason codes rather than ValidationResult, so valid values allocate nothing.
+     */
+    static void validate(@Nonnull Record record, int line, @Nonnull ChunkResult result) {
+        if (record.email != null) {
+            check(ValidationUtils.checkEmailAddress(record.email), record.email, line,
+                    BulkValidationReport.EMAIL, result);
+        }
+
+        if (record.username != null) {
+            check(ValidationUtils.checkUsername(record.username), record.username, line,
+                    BulkValidationReport.USERNAME, result);
+        }
+
+        if (record.phone != null) {
+            check(ValidationUtils.checkPhoneNumber(record.phone), record.phone, line,
+                    BulkValidationReport.PHONE, result);
+        }
+    }
+
+    private static void check(@Nonnull ValidationReason reason, @Nonnull String value, int line, int field,
+                              @Nonnull ChunkResult result) {
+        if (!reason.isValid()) {
+            String message = reason.getMessage();
+            result.fail(line, field, value,
+                    message != null ? message : BulkValidationReport.FIELDS[field] + " is required");
+        }
+    }
+}
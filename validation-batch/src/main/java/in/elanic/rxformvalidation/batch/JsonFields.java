@@ -0,0 +1,130 @@
+package in.elanic.rxformvalidation.batch;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Just enough JSON to pull top-level string members out of a flat object, without a parser
+ * dependency. Nested objects and arrays are skipped, non-string values read as absent.
+ */
+final class JsonFields {
+
+    private JsonFields() {
+    }
+
+    @Nullable
+    static String stringMember(@Nonnull String json, @Nonnull String name) {
+        int depth = 0;
+        int i = 0;
+        int length = json.length();
+        while (i < length) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                int close = stringEnd(json, i);
+                if (close < 0) {
+                    return null;
+                }
+
+                if (depth == 1 && isKey(json, close + 1) && regionIs(json, i + 1, close, name)) {
+                    int value = skipWhitespace(json, skipWhitespace(json, close + 1) + 1);
+                    if (value < length && json.charAt(value) == '"') {
+                        int valueEnd = stringEnd(json, value);
+
+                        return valueEnd < 0 ? null : unescape(json, value + 1, valueEnd);
+                    }
+
+                    return null;
+                }
+
+                i = close + 1;
+            } else {
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                i++;
+            }
+        }
+
+        return null;
+    }
+
+    // Index of the quote closing the string opened at start, or -1.
+    private static int stringEnd(String json, int start) {
+        for (int i = start + 1; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '"') {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean isKey(String json, int afterString) {
+        int i = skipWhitespace(json, afterString);
+
+        return i < json.length() && json.charAt(i) == ':';
+    }
+
+    private static int skipWhitespace(String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+
+        return i;
+    }
+
+    // Compares the raw (escaped) key with the name, which never needs escaping here.
+    private static boolean regionIs(String json, int start, int end, String name) {
+        return end - start == name.length() && json.regionMatches(start, name, 0, name.length());
+    }
+
+    private static String unescape(String json, int start, int end) {
+        if (json.indexOf('\\', start) < 0 || json.indexOf('\\', start) >= end) {
+            return json.substring(start, end);
+        }
+
+        StringBuilder sb = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = json.charAt(i);
+            if (c != '\\' || i + 1 >= end) {
+                sb.append(c);
+                continue;
+            }
+
+            char e = json.charAt(++i);
+            switch (e) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 < end) {
+                        sb.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                        i += 4;
+                    }
+                    break;
+                default:
+                    sb.append(e);
+                    break;
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package in.elanic.rxformvalidation.batch;
+
+/**
+ * Fields of one input line. A field is null when the line (or the whole file) does not have it.
+ * Each worker reuses one instance for all of its lines.
+ */
+class Record {
+
+    String email;
+    String username;
+    String phone;
+
+    void clear() {
+        email = null;
+        username = null;
+        phone = null;
+    }
+}
@@ -0,0 +1,178 @@
+package in.elanic.rxformvalidation.batch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Supported input formats. Lines are UTF-8 and end with '\n' (an optional '\r' before it is
+ * dropped).
+ */
+public enum RecordFormat {
+
+    /**
+     * Comma separated values with a header line naming the "email", "username" and "phone"
+     * columns (in any order, other columns are ignored). Fields may be double quoted, with ""
+     * for a quote inside them, and may contain commas but not line breaks: lines are split on
+     * every '\n' before their fields are read.
+     */
+    CSV {
+        @Override
+        boolean hasHeader() {
+            return true;
+        }
+
+        @Override
+        void read(@Nonnull ByteBuffer buffer, int start, int end, @Nullable Columns columns,
+                  @Nonnull Worker worker) {
+            int column = 0;
+            int i = start;
+            while (i <= end) {
+                // One field per iteration, copied (unquoted) into the scratch buffer only if we
+                // need it.
+                boolean wanted = columns.isWanted(column);
+                int length = 0;
+                if (i < end && buffer.get(i) == '"') {
+                    i++;
+                    while (i < end) {
+                        byte b = buffer.get(i++);
+                        if (b == '"') {
+                            if (i < end && buffer.get(i) == '"') {
+                                i++;
+                            } else {
+                                break;
+                            }
+                        }
+
+                        if (wanted) {
+                            worker.scratch(length + 1)[length++] = b;
+                        }
+                    }
+
+                    // Skip anything between the closing quote and the separator.
+                    while (i < end && buffer.get(i) != ',') {
+                        i++;
+                    }
+                } else {
+                    while (i < end && buffer.get(i) != ',') {
+                        if (wanted) {
+                            worker.scratch(length + 1)[length++] = buffer.get(i);
+                        }
+                        i++;
+                    }
+                }
+
+                if (wanted) {
+                    columns.set(worker.record, column, new String(worker.scratch(length), 0, length, UTF_8));
+                }
+
+                column++;
+                i++;
+            }
+
+            columns.fillMissing(worker.record);
+        }
+    },
+
+    /**
+     * One JSON object per line with optional "email", "username" and "phone" string members.
+     */
+    NDJSON {
+        @Override
+        boolean hasHeader() {
+            return false;
+        }
+
+        @Override
+        void read(@Nonnull ByteBuffer buffer, int start, int end, @Nullable Columns columns,
+                  @Nonnull Worker worker) {
+            String line = worker.decode(buffer, start, end);
+            Record record = worker.record;
+            record.email = JsonFields.stringMember(line, "email");
+            record.username = JsonFields.stringMember(line, "username");
+            record.phone = JsonFields.stringMember(line, "phone");
+        }
+    };
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Whether the first line is a header, to be read with {@link Columns#parse(String)}.
+     */
+    abstract boolean hasHeader();
+
+    /**
+     * Reads the line [start, end) (without its line terminator) into the worker's record.
+     */
+    abstract void read(@Nonnull ByteBuffer buffer, int start, int end, @Nullable Columns columns,
+                       @Nonnull Worker worker);
+
+    private static String unquote(@Nonnull String s) {
+        if (s.length() >= 2 && s.charAt(0) == '"' && s.charAt(s.length() - 1) == '"') {
+            return s.substring(1, s.length() - 1).replace("\"\"", "\"");
+        }
+
+        return s;
+    }
+
+    /**
+     * Indexes of the CSV columns we validate, -1 when the file does not have them.
+     */
+    static class Columns {
+
+        int email = -1;
+        int username = -1;
+        int phone = -1;
+
+        static Columns parse(@Nonnull String header) {
+            Columns columns = new Columns();
+            String[] names = header.split(",", -1);
+            for (int i = 0; i < names.length; i++) {
+                String name = unquote(names[i].trim()).toLowerCase(Locale.US);
+                if ("email".equals(name)) {
+                    columns.email = i;
+                } else if ("username".equals(name)) {
+                    columns.username = i;
+                } else if ("phone".equals(name)) {
+                    columns.phone = i;
+                }
+            }
+
+            return columns;
+        }
+
+        boolean isWanted(int column) {
+            return column == email || column == username || column == phone;
+        }
+
+        void set(@Nonnull Record record, int column, @Nonnull String value) {
+            if (column == email) {
+                record.email = value;
+            } else if (column == username) {
+                record.username = value;
+            } else if (column == phone) {
+                record.phone = value;
+            }
+        }
+
+        /**
+         * A line without some of the columns still has to report them as empty.
+         */
+        void fillMissing(@Nonnull Record record) {
+            if (email >= 0 && record.email == null) {
+                record.email = "";
+            }
+
+            if (username >= 0 && record.username == null) {
+                record.username = "";
+            }
+
+            if (phone >= 0 && record.phone == null) {
+                record.phone = "";
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package in.elanic.rxformvalidation.batch;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A field that failed validation. Line numbers are 1-based and count every line of the file,
+ * including the header and blank lines.
+ */
+public class ValidationFailure {
+
+    private final long line;
+    private final String field;
+    private final String value;
+    private final String reason;
+
+    public ValidationFailure(long line, @Nonnull String field, @Nonnull String value,
+                             @Nonnull String reason) {
+        this.line = line;
+        this.field = field;
+        this.value = value;
+        this.reason = reason;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    @Nonnull
+    public String getField() {
+        return field;
+    }
+
+    @Nonnull
+    public String getValue() {
+        return value;
+    }
+
+    @Nonnull
+    public String getReason() {
+        return reason;
+    }
+
+    ValidationFailure offset(long lines) {
+        return lines == 0 ? this : new ValidationFailure(line + lines, field, value, reason);
+    }
+
+    @Override
+    public String toString() {
+        return line + "\t" + field + "\t" + value + "\t" + reason;
+    }
+}
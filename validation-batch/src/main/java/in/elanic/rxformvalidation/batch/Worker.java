@@ -0,0 +1,49 @@
+package in.elanic.rxformvalidation.batch;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Per-thread state for the chunk tasks: a scratch buffer for decoding fields and the record
+ * being filled. Validation rules no longer allocate Matchers, so this is all a worker needs.
+ */
+class Worker {
+
+    private static final ThreadLocal<Worker> WORKERS = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+            return new Worker();
+        }
+    };
+
+    final Record record = new Record();
+    private byte[] scratch = new byte[256];
+
+    static Worker get() {
+        return WORKERS.get();
+    }
+
+    /**
+     * Returns the scratch buffer, grown to at least the given capacity (keeping its contents).
+     */
+    byte[] scratch(int capacity) {
+        if (scratch.length < capacity) {
+            byte[] grown = new byte[Math.max(capacity, scratch.length * 2)];
+            System.arraycopy(scratch, 0, grown, 0, scratch.length);
+            scratch = grown;
+        }
+
+        return scratch;
+    }
+
+    String decode(@Nonnull ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        byte[] bytes = scratch(length);
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+
+        return new String(bytes, 0, length, RecordFormat.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package in.elanic.rxformvalidation.batch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class BulkValidatorTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private BulkValidator validator;
+
+    @Before
+    public void setUp() {
+        // Tiny windows and chunks so that every file crosses many window and split boundaries.
+        validator = new BulkValidator(4, 256, 32);
+    }
+
+    @After
+    public void tearDown() {
+        validator.shutdown();
+    }
+
+    @Test
+    public void reportsCsvFailuresInLineOrder() throws IOException {
+        File input = write("id,phone,email,username\n"
+                + "1,9876543210,john@example.com,john\n"
+                + "2,12345,\"jo,hn@example\",j\n"
+                + "\n"
+                + "3,\"9876543210\",\"a\"\"b@example\",\"jo hn\"\r\n"
+                + "4,,,\n");
+
+        BulkValidationReport report = validate(input, RecordFormat.CSV);
+
+        assertEquals(6, report.getLineCount());
+        assertEquals(4, report.getRecordCount());
+        assertEquals(3, report.getEmailFailureCount());
+        assertEquals(3, report.getUsernameFailureCount());
+        assertEquals(2, report.getPhoneFailureCount());
+        List<String> rows = failures();
+        assertEquals("3\temail\tjo,hn@example\tPlease enter correct email address", rows.get(0));
+        assertEquals("3\tusername\tj\tusername should have 3 or more characters", rows.get(1));
+        assertEquals("3\tphone\t12345\tPhone should be exactly 10 numbers", rows.get(2));
+        assertEquals("5\temail\ta\"b@example\tPlease enter correct email address", rows.get(3));
+        assertEquals("5\tusername\tjo hn\tusername should contain only alphanumeric characters",
+                rows.get(4));
+        assertEquals("6\temail\t\temail is required", rows.get(5));
+        assertEquals("6\tphone\t\tphone is required", rows.get(7));
+        assertEquals(8, rows.size());
+    }
+
+    @Test
+    public void readsNdjsonStringMembers() throws IOException {
+        File input = write("{\"email\":\"john@example.com\",\"meta\":{\"email\":\"x\"},\"phone\":\"9876543210\"}\n"
+                + "{\"username\": \"a\\u0062\", \"phone\": 12}\n");
+
+        BulkValidationReport report = validate(input, RecordFormat.NDJSON);
+
+        assertEquals(2, report.getRecordCount());
+        List<String> rows = failures();
+        assertEquals(1, rows.size());
+        assertEquals("2\tusername\tab\tusername should have 3 or more characters", rows.get(0));
+    }
+
+    @Test
+    public void matchesSequentialValidationOnLargeFile() throws IOException {
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder("email,username\n");
+        List<String> expected = new ArrayList<>();
+        for (int line = 2; line < 5000; line++) {
+            boolean goodEmail = random.nextInt(10) > 0;
+            boolean goodUsername = random.nextInt(10) > 0;
+            String email = goodEmail ? "user" + line + "@example.com" : "user" + line + "@";
+            String username = goodUsername ? "user" + line : "u-" + line;
+            sb.append(email).append(',').append(username).append('\n');
+            if (!goodEmail) {
+                expected.add(line + "\temail\t" + email);
+            }
+
+            if (!goodUsername) {
+                expected.add(line + "\tusername\t" + username);
+            }
+        }
+
+        BulkValidationReport report = validate(write(sb.toString()), RecordFormat.CSV);
+
+        assertEquals(4998, report.getRecordCount());
+        List<String> rows = failures();
+        assertEquals(expected.size(), rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            String row = rows.get(i);
+            assertEquals(expected.get(i), row.substring(0, row.lastIndexOf('\t')));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsLinesLongerThanTheWindow() throws IOException {
+        StringBuilder sb = new StringBuilder("email\n");
+        for (int i = 0; i < 300; i++) {
+            sb.append('a');
+        }
+        sb.append("@example.com\nb@example.com\n");
+
+        validate(write(sb.toString()), RecordFormat.CSV);
+    }
+
+    private BulkValidationReport validate(File input, RecordFormat format) throws IOException {
+        return validator.validate(input, format, new File(folder.getRoot(), "failures.tsv"));
+    }
+
+    private File write(String content) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+
+        return file;
+    }
+
+    // Failure rows without the header row.
+    private List<String> failures() throws IOException {
+        List<String> rows = Files.readAllLines(new File(folder.getRoot(), "failures.tsv").toPath(), UTF_8);
+
+        return rows.subList(1, rows.size());
+    }
+}
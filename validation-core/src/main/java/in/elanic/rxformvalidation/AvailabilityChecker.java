@@ -0,0 +1,16 @@
+package in.elanic.rxformvalidation;
+
+import javax.annotation.Nonnull;
+
+import rx.Observable;
+
+/**
+ * Created by Jay Rambhia on 5/26/16.
+ */
+public interface AvailabilityChecker {
+    Observable<ValidationResult<String>> isEmailAvailable(@Nonnull String email);
+    Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull String email);
+
+    ValidationResult<String> isEmailAvailableSync(@Nonnull String email);
+    ValidationResult<String> isUsernameAvailableSync(@Nonnull String email);
+}
@@ -0,0 +1,44 @@
+package in.elanic.rxformvalidation;
+
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Shared helpers for the {@link AvailabilityChecker} decorators.
+ */
+final class AvailabilityKeys {
+
+    static final String EMAIL_PREFIX = "e:";
+    static final String USERNAME_PREFIX = "u:";
+
+    private AvailabilityKeys() {
+    }
+
+    /**
+     * Emails are case insensitive for our backend, so "John@Example.com" and "john@example.com"
+     * share one key.
+     */
+    @Nonnull
+    static String email(@Nonnull String email) {
+        return EMAIL_PREFIX + email.trim().toLowerCase(Locale.US);
+    }
+
+    @Nonnull
+    static String username(@Nonnull String username) {
+        return USERNAME_PREFIX + username.trim();
+    }
+
+    /**
+     * Results are shared by normalized key, so they may carry another spelling of the same
+     * value. Callers always get back exactly what they asked for.
+     */
+    @Nonnull
+    static ValidationResult<String> rebind(@Nonnull ValidationResult<String> result, @Nonnull String data) {
+        if (data.equals(result.getData())) {
+            return result;
+        }
+
+        return result.withData(data);
+    }
+}
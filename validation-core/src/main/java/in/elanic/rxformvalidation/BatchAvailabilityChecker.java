@@ -0,0 +1,17 @@
+package in.elanic.rxformvalidation;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+
+import rx.Observable;
+
+/**
+ * Checks many values in one backend call. The emitted map is keyed by the values exactly as
+ * they were passed in and should contain a result for each of them.
+ */
+public interface BatchAvailabilityChecker {
+    Observable<Map<String, ValidationResult<String>>> isEmailsAvailable(@Nonnull Collection<String> emails);
+    Observable<Map<String, ValidationResult<String>>> isUsernamesAvailable(@Nonnull Collection<String> usernames);
+}
@@ -0,0 +1,240 @@
+package in.elanic.rxformvalidation;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+/**
+ * {@link AvailabilityChecker} decorator which remembers results in a bounded LRU cache.
+ *
+ * Available and taken values get separate TTLs: a taken email rarely becomes free again, while
+ * an available one may be claimed by someone else at any time. Keys are normalized
+ * (see {@link AvailabilityKeys}), so retyping the same email with different case is a hit.
+ */
+public class CachingAvailabilityChecker implements AvailabilityChecker {
+
+    private final AvailabilityChecker delegate;
+    private final Scheduler clock;
+    private final long positiveTtlMs;
+    private final long negativeTtlMs;
+    private final LruMap entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public CachingAvailabilityChecker(@Nonnull AvailabilityChecker delegate, int maxEntries,
+                                      long positiveTtl, long negativeTtl, @Nonnull TimeUnit unit) {
+        this(delegate, maxEntries, positiveTtl, negativeTtl, unit, Schedulers.immediate());
+    }
+
+    /**
+     * @param clock only used for {@link Scheduler#now()}, so tests can pass a TestScheduler.
+     */
+    public CachingAvailabilityChecker(@Nonnull AvailabilityChecker delegate, int maxEntries,
+                                      long positiveTtl, long negativeTtl, @Nonnull TimeUnit unit,
+                                      @Nonnull Scheduler clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries should be positive: " + maxEntries);
+        }
+
+        this.delegate = delegate;
+        this.clock = clock;
+        this.positiveTtlMs = unit.toMillis(positiveTtl);
+        this.negativeTtlMs = unit.toMillis(negativeTtl);
+        this.entries = new LruMap(maxEntries);
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull final String email) {
+        return cached(AvailabilityKeys.email(email), email, new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                return delegate.isEmailAvailable(email);
+            }
+        });
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull final String username) {
+        return cached(AvailabilityKeys.username(username), username, new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                return delegate.isUsernameAvailable(username);
+            }
+        });
+    }
+
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+        String key = AvailabilityKeys.email(email);
+        ValidationResult<String> result = get(key, email);
+        if (result != null) {
+            return result;
+        }
+
+        result = delegate.isEmailAvailableSync(email);
+        put(key, result);
+        return result;
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+        String key = AvailabilityKeys.username(username);
+        ValidationResult<String> result = get(key, username);
+        if (result != null) {
+            return result;
+        }
+
+        result = delegate.isUsernameAvailableSync(username);
+        put(key, result);
+        return result;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Entries dropped because the cache was full.
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Entries dropped because their TTL ran out.
+     */
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Drops expired entries now instead of waiting for them to be looked up or evicted.
+     */
+    public void purgeExpired() {
+        long now = clock.now();
+        synchronized (entries) {
+            Iterator<CacheEntry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().expiresAt <= now) {
+                    iterator.remove();
+                    expirations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private Observable<ValidationResult<String>> cached(@Nonnull final String key, @Nonnull final String data,
+                                                        @Nonnull final Func0<Observable<ValidationResult<String>>> upstream) {
+        return Observable.defer(new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                ValidationResult<String> result = get(key, data);
+                if (result != null) {
+                    return Observable.just(result);
+                }
+
+                return upstream.call().doOnNext(new Action1<ValidationResult<String>>() {
+                    @Override
+                    public void call(ValidationResult<String> result) {
+                        put(key, result);
+                    }
+                });
+            }
+        });
+    }
+
+    @Nullable
+    private ValidationResult<String> get(@Nonnull String key, @Nonnull String data) {
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= clock.now()) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return AvailabilityKeys.rebind(entry.result, data);
+    }
+
+    private void put(@Nonnull String key, @Nonnull ValidationResult<String> result) {
+        long ttl = result.isValid() ? positiveTtlMs : negativeTtlMs;
+        if (ttl <= 0) {
+            return;
+        }
+
+        CacheEntry entry = new CacheEntry(result, clock.now() + ttl);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private static class CacheEntry {
+        final ValidationResult<String> result;
+        final long expiresAt;
+
+        CacheEntry(@Nonnull ValidationResult<String> result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private class LruMap extends LinkedHashMap<String, CacheEntry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        LruMap(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            if (size() > maxEntries) {
+                evictions.incrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package in.elanic.rxformvalidation;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An immutable set of ASCII characters for {@link FieldRule}, kept as a 128 bit mask so a
+ * membership test is one shift. Characters outside ASCII are never members.
+ */
+public final class CharClass {
+
+    public static final CharClass DIGITS = range('0', '9');
+    public static final CharClass LETTERS = range('a', 'z').or(range('A', 'Z'));
+    public static final CharClass LETTERS_OR_DIGITS = LETTERS.or(DIGITS);
+
+    private final long low;
+    private final long high;
+
+    private CharClass(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /**
+     * The characters from {@code first} to {@code last}, both included.
+     */
+    @Nonnull
+    public static CharClass range(char first, char last) {
+        checkAscii(first);
+        checkAscii(last);
+        if (first > last) {
+            throw new IllegalArgumentException("Empty range: " + first + "-" + last);
+        }
+
+        long low = 0;
+        long high = 0;
+        for (char c = first; c <= last; c++) {
+            if (c < 64) {
+                low |= 1L << c;
+            } else {
+                high |= 1L << (c - 64);
+            }
+        }
+
+        return new CharClass(low, high);
+    }
+
+    /**
+     * Exactly the characters of {@code chars}.
+     */
+    @Nonnull
+    public static CharClass of(@Nonnull String chars) {
+        CharClass result = new CharClass(0, 0);
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            result = result.or(range(c, c));
+        }
+
+        return result;
+    }
+
+    @Nonnull
+    public CharClass or(@Nonnull CharClass other) {
+        return new CharClass(low | other.low, high | other.high);
+    }
+
+    @Nonnull
+    public CharClass or(@Nonnull String chars) {
+        return or(of(chars));
+    }
+
+    public boolean contains(char c) {
+        if (c < 64) {
+            return (low & (1L << c)) != 0;
+        }
+
+        return c < 128 && (high & (1L << (c - 64))) != 0;
+    }
+
+    long low() {
+        return low;
+    }
+
+    long high() {
+        return high;
+    }
+
+    private static void checkAscii(char c) {
+        if (c >= 128) {
+            throw new IllegalArgumentException("Not an ASCII character: " + (int) c);
+        }
+    }
+}
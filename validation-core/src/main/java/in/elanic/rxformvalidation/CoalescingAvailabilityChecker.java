@@ -0,0 +1,155 @@
+package in.elanic.rxformvalidation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import rx.Observable;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+/**
+ * {@link AvailabilityChecker} decorator which shares in-flight lookups.
+ *
+ * While a lookup for a normalized key is running, every other lookup for the same key subscribes
+ * to the same upstream call instead of starting a new one. The shared call is ref-counted: it is
+ * only cancelled once all of its subscribers have unsubscribed, and it is forgotten as soon as it
+ * terminates, so results are never reused after the fact (that is what
+ * {@link CachingAvailabilityChecker} is for).
+ *
+ * Sync lookups block anyway and are passed straight through.
+ */
+public class CoalescingAvailabilityChecker implements AvailabilityChecker {
+
+    private final AvailabilityChecker delegate;
+    private final Map<String, Observable<ValidationResult<String>>> inFlight = new HashMap<>();
+
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong coalescedCalls = new AtomicLong();
+
+    public CoalescingAvailabilityChecker(@Nonnull AvailabilityChecker delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull final String email) {
+        return coalesced(AvailabilityKeys.email(email), email, new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                return delegate.isEmailAvailable(email);
+            }
+        });
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull final String username) {
+        return coalesced(AvailabilityKeys.username(username), username, new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                return delegate.isUsernameAvailable(username);
+            }
+        });
+    }
+
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+        return delegate.isEmailAvailableSync(email);
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+        return delegate.isUsernameAvailableSync(username);
+    }
+
+    /**
+     * Lookups which started a new upstream call.
+     */
+    public long getUpstreamCallCount() {
+        return upstreamCalls.get();
+    }
+
+    /**
+     * Lookups which joined a call that was already in flight.
+     */
+    public long getCoalescedCallCount() {
+        return coalescedCalls.get();
+    }
+
+    public int getInFlightCount() {
+        synchronized (inFlight) {
+            return inFlight.size();
+        }
+    }
+
+    private Observable<ValidationResult<String>> coalesced(@Nonnull final String key, @Nonnull final String data,
+                                                           @Nonnull final Func0<Observable<ValidationResult<String>>> upstream) {
+        return Observable.defer(new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                Observable<ValidationResult<String>> shared;
+                synchronized (inFlight) {
+                    shared = inFlight.get(key);
+                }
+
+                boolean joined = shared != null;
+                if (shared == null) {
+                    // Built outside the lock, so a slow factory does not hold up other keys. If
+                    // another lookup published a call meanwhile, ours is dropped unsubscribed.
+                    Release release = new Release(key);
+                    Observable<ValidationResult<String>> created = upstream.call()
+                            .doOnTerminate(release)
+                            .doOnUnsubscribe(release)
+                            .share();
+                    release.shared = created;
+                    synchronized (inFlight) {
+                        shared = inFlight.get(key);
+                        joined = shared != null;
+                        if (!joined) {
+                            shared = created;
+                            inFlight.put(key, shared);
+                        }
+                    }
+                }
+
+                if (joined) {
+                    coalescedCalls.incrementAndGet();
+                } else {
+                    upstreamCalls.incrementAndGet();
+                }
+
+                return shared.map(new Func1<ValidationResult<String>, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(ValidationResult<String> result) {
+                        return AvailabilityKeys.rebind(result, data);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Forgets a shared call once it terminates or its last subscriber leaves. Only removes the
+     * mapping if it still points to this call, a newer one may have replaced it already.
+     */
+    private class Release implements Action0 {
+
+        private final String key;
+        Observable<ValidationResult<String>> shared;
+
+        Release(@Nonnull String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void call() {
+            synchronized (inFlight) {
+                if (inFlight.get(key) == shared) {
+                    inFlight.remove(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package in.elanic.rxformvalidation;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Streaming scanner for contact details in free text (listing descriptions, chat messages).
+ *
+ * Mobile numbers, long digit runs and email addresses are all found in one linear pass, one
+ * character at a time, so a {@link Reader} is never read into memory. Each kind reports the
+ * same spans as repeated {@link java.util.regex.Matcher#find()} with its regex:
+ * <ul>
+ * <li>{@link Kind#MOBILE_NUMBER}: "[7-9][0-9]{9}"</li>
+ * <li>{@link Kind#DIGIT_RUN}: "[0-9]{5,}"</li>
+ * <li>{@link Kind#EMAIL_ADDRESS}: "[a-zA-Z0-9\+\.\_\%\-\+]{1,256}\@[a-zA-Z0-9]{1,64}\.[a-zA-Z0-9]{1,25}"</li>
+ * </ul>
+ * A scanner is not thread safe; use one per text.
+ */
+public class ContactInfoScanner {
+
+    public enum Kind {
+        MOBILE_NUMBER,
+        DIGIT_RUN,
+        EMAIL_ADDRESS
+    }
+
+    public interface Listener {
+
+        /**
+         * Called with the span [start, end) of every match, in the order the matches end.
+         *
+         * @return false to stop scanning
+         */
+        boolean onMatch(@Nonnull Kind kind, long start, long end);
+    }
+
+    static final int MIN_DIGIT_RUN = ValidationUtils.MIN_CONSECUTIVE_NUMBERS;
+    static final int EMAIL_MAX_LOCAL_LENGTH = 256;
+    static final int EMAIL_MAX_TLD_LENGTH = 25;
+
+    private static final int MOBILE_NUMBER_MASK = (1 << TextScanner.MOBILE_NUMBER_LENGTH) - 1;
+    private static final int MOBILE_NUMBER_PREFIX_BIT = 1 << (TextScanner.MOBILE_NUMBER_LENGTH - 1);
+
+    private static final int EMAIL_IDLE = 0;
+    private static final int EMAIL_DOMAIN = 1;
+    private static final int EMAIL_TLD = 2;
+
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    private final Listener listener;
+
+    private long position;
+    private boolean stopped;
+
+    // Digits
+    private long digitRunStart;
+    private int digitRunLength;
+    // Bit i is set when the digit i places back is a mobile number prefix.
+    private int prefixBits;
+    private long mobileNumberAllowedFrom;
+
+    // Email addresses
+    private long localRunStart;
+    private boolean inLocalRun;
+    private int emailState = EMAIL_IDLE;
+    private long emailStart;
+    private int emailPartLength;
+    private long emailAllowedFrom;
+
+    public ContactInfoScanner(@Nonnull Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Scans the whole text and flushes matches at its end.
+     */
+    public static void scan(@Nonnull CharSequence text, @Nonnull Listener listener) {
+        ContactInfoScanner scanner = new ContactInfoScanner(listener);
+        scanner.feed(text);
+        scanner.finish();
+    }
+
+    /**
+     * Scans the reader to its end through a small buffer. The reader is not closed.
+     */
+    public static void scan(@Nonnull Reader reader, @Nonnull Listener listener) throws IOException {
+        ContactInfoScanner scanner = new ContactInfoScanner(listener);
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int read;
+        while (!scanner.isStopped() && (read = reader.read(buffer)) != -1) {
+            for (int i = 0; i < read && !scanner.isStopped(); i++) {
+                scanner.feed(buffer[i]);
+            }
+        }
+
+        scanner.finish();
+    }
+
+    public void feed(@Nonnull CharSequence text) {
+        for (int i = 0, length = text.length(); i < length && !stopped; i++) {
+            feed(text.charAt(i));
+        }
+    }
+
+    public void feed(char c) {
+        if (stopped) {
+            return;
+        }
+
+        feedDigits(c);
+        feedEmail(c);
+        position++;
+    }
+
+    /**
+     * Reports the matches that run up to the end of the text. Feeding more text afterwards
+     * continues as if the text had been split at this point.
+     */
+    public void finish() {
+        if (digitRunLength >= MIN_DIGIT_RUN) {
+            report(Kind.DIGIT_RUN, digitRunStart, position);
+        }
+
+        digitRunLength = 0;
+        prefixBits = 0;
+        if (emailState == EMAIL_TLD && emailPartLength > 0) {
+            reportEmail(position);
+        }
+
+        emailState = EMAIL_IDLE;
+        inLocalRun = false;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Number of characters scanned so far.
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    private void feedDigits(char c) {
+        if (!TextScanner.isDigit(c)) {
+            if (digitRunLength >= MIN_DIGIT_RUN) {
+                report(Kind.DIGIT_RUN, digitRunStart, position);
+            }
+
+            digitRunLength = 0;
+            prefixBits = 0;
+            return;
+        }
+
+        if (digitRunLength == 0) {
+            digitRunStart = position;
+        }
+
+        // Saturates instead of overflowing on absurdly long runs.
+        if (digitRunLength < Integer.MAX_VALUE) {
+            digitRunLength++;
+        }
+
+        prefixBits = ((prefixBits << 1) | (TextScanner.isMobileNumberPrefix(c) ? 1 : 0))
+                & MOBILE_NUMBER_MASK;
+        long start = position - TextScanner.MOBILE_NUMBER_LENGTH + 1;
+        if (digitRunLength >= TextScanner.MOBILE_NUMBER_LENGTH && start >= mobileNumberAllowedFrom
+                && (prefixBits & MOBILE_NUMBER_PREFIX_BIT) != 0) {
+            mobileNumberAllowedFrom = position + 1;
+            report(Kind.MOBILE_NUMBER, start, position + 1);
+        }
+    }
+
+    private void feedEmail(char c) {
+        switch (emailState) {
+            case EMAIL_DOMAIN:
+                if (TextScanner.isLetterOrDigit(c)) {
+                    if (++emailPartLength > TextScanner.EMAIL_MAX_DOMAIN_LENGTH) {
+                        emailState = EMAIL_IDLE;
+                    }
+                } else if (c == '.' && emailPartLength > 0) {
+                    emailState = EMAIL_TLD;
+                    emailPartLength = 0;
+                } else {
+                    emailState = EMAIL_IDLE;
+                }
+                break;
+            case EMAIL_TLD:
+                if (TextScanner.isLetterOrDigit(c)) {
+                    if (++emailPartLength == EMAIL_MAX_TLD_LENGTH) {
+                        reportEmail(position + 1);
+                    }
+                } else if (emailPartLength > 0) {
+                    reportEmail(position);
+                } else {
+                    emailState = EMAIL_IDLE;
+                }
+                break;
+            default:
+                break;
+        }
+
+        // An '@' can start a new address as soon as the previous attempt is over. The local part
+        // is the run of local characters right before it, which is still being tracked even
+        // while a domain is scanned, since domains only contain local characters.
+        if (emailState == EMAIL_IDLE && c == '@' && inLocalRun) {
+            long start = Math.max(Math.max(localRunStart, position - EMAIL_MAX_LOCAL_LENGTH),
+                    emailAllowedFrom);
+            if (start < position) {
+                emailState = EMAIL_DOMAIN;
+                emailStart = start;
+                emailPartLength = 0;
+            }
+        }
+
+        if (TextScanner.isEmailLocalChar(c)) {
+            if (!inLocalRun) {
+                inLocalRun = true;
+                localRunStart = position;
+            }
+        } else {
+            inLocalRun = false;
+        }
+    }
+
+    private void reportEmail(long end) {
+        emailState = EMAIL_IDLE;
+        emailAllowedFrom = end;
+        report(Kind.EMAIL_ADDRESS, emailStart, end);
+    }
+
+    private void report(Kind kind, long start, long end) {
+        if (!stopped && !listener.onMatch(kind, start, end)) {
+            stopped = true;
+        }
+    }
+}
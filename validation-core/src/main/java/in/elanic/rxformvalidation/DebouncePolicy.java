@@ -0,0 +1,95 @@
+package in.elanic.rxformvalidation;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Picks a debounce window from how fast the user types and how slow the remote check is.
+ *
+ * The window is a multiple of the user's average pause between keystrokes, so a fast typist
+ * is answered quickly and a slow one does not trigger a remote call between every two
+ * characters. A slow {@link AvailabilityChecker} stretches the window a bit, because a wasted
+ * call costs more. The result always stays within the configured bounds; until anything has
+ * been measured the initial window is used.
+ *
+ * Averages are exponentially weighted so the policy follows a user who speeds up or slows down.
+ */
+public class DebouncePolicy {
+
+    // Weight of the newest sample in the moving averages
+    private static final double ALPHA = 0.3;
+
+    // How many average keystroke intervals of silence mean the user stopped typing
+    private static final double KEYSTROKE_MULTIPLIER = 2.0;
+
+    // Share of the average remote latency added to the window
+    private static final double LATENCY_WEIGHT = 0.1;
+
+    private final long minWindowMs;
+    private final long maxWindowMs;
+    private final long initialWindowMs;
+
+    private long lastKeystrokeMs = -1;
+    private double keystrokeIntervalMs = -1;
+    private double remoteLatencyMs = -1;
+
+    public DebouncePolicy(long minWindow, long maxWindow, long initialWindow, @Nonnull TimeUnit unit) {
+        this.minWindowMs = unit.toMillis(minWindow);
+        this.maxWindowMs = unit.toMillis(maxWindow);
+        this.initialWindowMs = unit.toMillis(initialWindow);
+        if (minWindowMs < 0 || minWindowMs > maxWindowMs) {
+            throw new IllegalArgumentException("Invalid bounds: " + minWindowMs + ".." + maxWindowMs);
+        }
+    }
+
+    /**
+     * Records a keystroke at the given time. Gaps longer than the maximum window are pauses,
+     * not typing speed, and are not counted.
+     */
+    public synchronized void recordKeystroke(long timeMs) {
+        if (lastKeystrokeMs >= 0) {
+            long interval = timeMs - lastKeystrokeMs;
+            if (interval >= 0 && interval <= maxWindowMs) {
+                keystrokeIntervalMs = average(keystrokeIntervalMs, interval);
+            }
+        }
+
+        lastKeystrokeMs = timeMs;
+    }
+
+    public synchronized void recordRemoteLatency(long latencyMs) {
+        if (latencyMs >= 0) {
+            remoteLatencyMs = average(remoteLatencyMs, latencyMs);
+        }
+    }
+
+    public synchronized long getWindowMs() {
+        if (keystrokeIntervalMs < 0) {
+            return clamp(initialWindowMs);
+        }
+
+        double window = KEYSTROKE_MULTIPLIER * keystrokeIntervalMs;
+        if (remoteLatencyMs > 0) {
+            window += LATENCY_WEIGHT * remoteLatencyMs;
+        }
+
+        return clamp(Math.round(window));
+    }
+
+    public synchronized long getKeystrokeIntervalMs() {
+        return Math.round(keystrokeIntervalMs);
+    }
+
+    public synchronized long getRemoteLatencyMs() {
+        return Math.round(remoteLatencyMs);
+    }
+
+    private long clamp(long windowMs) {
+        return Math.max(minWindowMs, Math.min(maxWindowMs, windowMs));
+    }
+
+    private static double average(double average, long sample) {
+        return average < 0 ? sample : average + ALPHA * (sample - average);
+    }
+}
@@ -0,0 +1,170 @@
+package in.elanic.rxformvalidation;
+
+import java.util.BitSet;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.functions.Func1;
+
+/**
+ * The state behind the cross-field rules of a {@link FormValidator}.
+ *
+ * Nodes 0 to fieldCount - 1 are fields, the rest are rules in the order they were added. A rule
+ * can only use nodes added before it, so that order is a topological one and the graph cannot
+ * have cycles. Each node has a value: the data of the field's latest result, or of the rule's
+ * latest result.
+ *
+ * Setting a field marks the rules using it, and only those are evaluated, lowest first, so a
+ * rule always sees its inputs after they have been recomputed. Every rule keeps its last result;
+ * when a recomputed rule's data is unchanged, the rules using it are not marked and keep theirs.
+ *
+ * Not thread safe, {@link FormValidator} only touches it from one serialized stream.
+ */
+final class DependencyGraph {
+
+    interface Listener {
+        void onRuleResult(int rule, @Nonnull ValidationResult<String> result);
+    }
+
+    static final class RuleSpec {
+        final Func1<String[], ValidationResult<String>> rule;
+        final int[] inputs;
+
+        RuleSpec(@Nonnull Func1<String[], ValidationResult<String>> rule, @Nonnull int[] inputs) {
+            this.rule = rule;
+            this.inputs = inputs;
+        }
+    }
+
+    private static final int[] NO_DEPENDENTS = new int[0];
+
+    private final int fieldCount;
+    private final RuleSpec[] rules;
+    // Rules using each node, by rule index
+    private final int[][] dependents;
+
+    private final String[] values;
+    private final boolean[] hasValue;
+    private final ValidationResult<?>[] results;
+    private final BitSet dirty;
+
+    private long evaluationCount;
+
+    DependencyGraph(int fieldCount, @Nonnull List<RuleSpec> rules) {
+        this.fieldCount = fieldCount;
+        this.rules = rules.toArray(new RuleSpec[rules.size()]);
+        int nodeCount = fieldCount + this.rules.length;
+
+        int[] dependentCounts = new int[nodeCount];
+        for (int r = 0; r < this.rules.length; r++) {
+            for (int input : this.rules[r].inputs) {
+                if (input < 0 || input >= fieldCount + r) {
+                    throw new IllegalArgumentException("Rule " + r + " uses node " + input + " which is not added before it");
+                }
+
+                dependentCounts[input]++;
+            }
+        }
+
+        dependents = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            dependents[node] = dependentCounts[node] == 0 ? NO_DEPENDENTS : new int[dependentCounts[node]];
+            dependentCounts[node] = 0;
+        }
+        for (int r = 0; r < this.rules.length; r++) {
+            for (int input : this.rules[r].inputs) {
+                dependents[input][dependentCounts[input]++] = r;
+            }
+        }
+
+        values = new String[nodeCount];
+        hasValue = new boolean[nodeCount];
+        results = new ValidationResult<?>[this.rules.length];
+        dirty = new BitSet(this.rules.length);
+    }
+
+    /**
+     * Sets the value of a field and recomputes the rules which depend on it, directly or through
+     * other rules. {@code listener} gets every rule result which differs from the rule's last one.
+     */
+    void setField(int field, @Nullable String value, @Nonnull Listener listener) {
+        if (field < 0 || field >= fieldCount) {
+            throw new IndexOutOfBoundsException("field: " + field + ", fields: " + fieldCount);
+        }
+
+        if (!setValue(field, value)) {
+            return;
+        }
+
+        for (int r = dirty.nextSetBit(0); r >= 0; r = dirty.nextSetBit(r + 1)) {
+            dirty.clear(r);
+            evaluate(r, listener);
+        }
+    }
+
+    /**
+     * The last result of a rule, or null while some of its inputs have no value yet.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    ValidationResult<String> getResult(int rule) {
+        return (ValidationResult<String>) results[rule];
+    }
+
+    int getRuleCount() {
+        return rules.length;
+    }
+
+    long getEvaluationCount() {
+        return evaluationCount;
+    }
+
+    private void evaluate(int r, @Nonnull Listener listener) {
+        RuleSpec spec = rules[r];
+        String[] inputs = new String[spec.inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            int node = spec.inputs[i];
+            if (!hasValue[node]) {
+                return;
+            }
+
+            inputs[i] = values[node];
+        }
+
+        evaluationCount++;
+        ValidationResult<String> result = spec.rule.call(inputs);
+        ValidationResult<String> previous = getResult(r);
+        results[r] = result;
+        if (previous == null || !sameResult(previous, result)) {
+            listener.onRuleResult(r, result);
+        }
+
+        setValue(fieldCount + r, result.getData());
+    }
+
+    // Marks the dependents of a node whose value changed.
+    private boolean setValue(int node, @Nullable String value) {
+        if (hasValue[node] && equal(values[node], value)) {
+            return false;
+        }
+
+        hasValue[node] = true;
+        values[node] = value;
+        for (int rule : dependents[node]) {
+            dirty.set(rule);
+        }
+
+        return true;
+    }
+
+    private static boolean sameResult(@Nonnull ValidationResult<String> a, @Nonnull ValidationResult<String> b) {
+        return a.getReasonCode() == b.getReasonCode() && equal(a.getData(), b.getData())
+                && (a.getReasonCode() != ValidationReason.CUSTOM || equal(a.getReason(), b.getReason()));
+    }
+
+    private static boolean equal(@Nullable String a, @Nullable String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
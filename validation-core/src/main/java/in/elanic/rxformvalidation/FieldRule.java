@@ -0,0 +1,451 @@
+package in.elanic.rxformvalidation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A field validator declared as a list of rules and compiled once by {@link Builder#build()}.
+ *
+ * <pre>
+ * FieldRule username = new FieldRule.Builder()
+ *         .required(ValidationReason.EMPTY)
+ *         .minLength(3, ValidationReason.USERNAME_TOO_SHORT)
+ *         .maxLength(20, ValidationReason.CUSTOM).message("username should have at most 20 characters")
+ *         .firstChar(CharClass.LETTERS, ValidationReason.USERNAME_INVALID_CHARACTERS)
+ *         .allChars(CharClass.LETTERS_OR_DIGITS.or("._"), ValidationReason.USERNAME_INVALID_CHARACTERS)
+ *         .build();
+ * </pre>
+ *
+ * A value fails with the first declared rule it breaks, but the rules are not run one after
+ * the other. Length rules are compared once. Rules on characters at fixed positions (first,
+ * last, prefix) only read those characters. Rules on every character are merged into one class
+ * and checked in a single pass over the value, which stops as soon as no earlier rule can fail
+ * any more. Regexes and custom predicates only run when every rule before them has passed.
+ * Nothing but regexes allocates.
+ *
+ * Immutable and thread safe once built.
+ */
+public final class FieldRule {
+
+    /**
+     * A custom rule for what character classes cannot say.
+     */
+    public interface Predicate {
+        boolean test(@Nonnull CharSequence text);
+    }
+
+    private static final int NO_RULE = -1;
+
+    private final ValidationReason[] reasons;
+    private final String[] messages;
+    private final boolean allowTrailingLineTerminator;
+
+    private final int requiredRule;
+
+    private final int[] lengthRules;
+    private final int[] minLengths;
+    private final int[] maxLengths;
+    // Measured with a trailing line terminator, if the value has one
+    private final boolean[] rawLengths;
+
+    // Rules on characters at fixed positions, one entry per range, in declaration order. A
+    // prefix is one entry per character.
+    private final int[] rangeRules;
+    private final boolean[] fromEnd;
+    private final int[] offsets;
+    private final int[] counts;
+    private final long[] rangeLowMasks;
+    private final long[] rangeHighMasks;
+
+    // Rules on every character, in declaration order, and the intersection of their classes
+    private final int[] allCharRules;
+    private final long[] allCharLowMasks;
+    private final long[] allCharHighMasks;
+    private final long allCharsLow;
+    private final long allCharsHigh;
+
+    private final int[] slowRules;
+    private final Pattern[] patterns;
+    private final Predicate[] predicates;
+
+    private FieldRule(@Nonnull Builder builder) {
+        reasons = builder.reasons.toArray(new ValidationReason[builder.reasons.size()]);
+        messages = builder.messages.toArray(new String[builder.messages.size()]);
+        allowTrailingLineTerminator = builder.allowTrailingLineTerminator;
+        requiredRule = builder.requiredRule;
+
+        int lengthCount = builder.lengthRules.size();
+        lengthRules = new int[lengthCount];
+        minLengths = new int[lengthCount];
+        maxLengths = new int[lengthCount];
+        rawLengths = new boolean[lengthCount];
+        for (int i = 0; i < lengthCount; i++) {
+            int[] rule = builder.lengthRules.get(i);
+            lengthRules[i] = rule[0];
+            minLengths[i] = rule[1];
+            maxLengths[i] = rule[2];
+            rawLengths[i] = rule[3] != 0;
+        }
+
+        int rangeCount = builder.ranges.size();
+        rangeRules = new int[rangeCount];
+        fromEnd = new boolean[rangeCount];
+        offsets = new int[rangeCount];
+        counts = new int[rangeCount];
+        rangeLowMasks = new long[rangeCount];
+        rangeHighMasks = new long[rangeCount];
+        for (int i = 0; i < rangeCount; i++) {
+            CharRange range = builder.ranges.get(i);
+            rangeRules[i] = range.rule;
+            fromEnd[i] = range.fromEnd;
+            offsets[i] = range.offset;
+            counts[i] = range.count;
+            rangeLowMasks[i] = range.chars.low();
+            rangeHighMasks[i] = range.chars.high();
+        }
+
+        int allCharCount = builder.allChars.size();
+        allCharRules = new int[allCharCount];
+        allCharLowMasks = new long[allCharCount];
+        allCharHighMasks = new long[allCharCount];
+        long low = -1L;
+        long high = -1L;
+        for (int i = 0; i < allCharCount; i++) {
+            CharRange range = builder.allChars.get(i);
+            allCharRules[i] = range.rule;
+            allCharLowMasks[i] = range.chars.low();
+            allCharHighMasks[i] = range.chars.high();
+            low &= range.chars.low();
+            high &= range.chars.high();
+        }
+        allCharsLow = low;
+        allCharsHigh = high;
+
+        int slowCount = builder.slowRules.size();
+        slowRules = new int[slowCount];
+        patterns = new Pattern[slowCount];
+        predicates = new Predicate[slowCount];
+        for (int i = 0; i < slowCount; i++) {
+            Object rule = builder.slowRules.get(i);
+            slowRules[i] = builder.slowRuleIndexes.get(i);
+            if (rule instanceof Pattern) {
+                patterns[i] = (Pattern) rule;
+            } else {
+                predicates[i] = (Predicate) rule;
+            }
+        }
+    }
+
+    /**
+     * The result for {@code text}: success, the reason of the first rule it breaks, or that
+     * rule's message as a {@link ValidationReason#CUSTOM} failure.
+     */
+    @Nonnull
+    public ValidationResult<String> validate(@Nonnull String text) {
+        int rule = firstFailure(text);
+        if (rule == NO_RULE) {
+            return ValidationResult.success(text);
+        }
+
+        return messages[rule] != null ? ValidationResult.failure(messages[rule], text)
+                : ValidationResult.failure(reasons[rule], text);
+    }
+
+    /**
+     * {@link #validate(String)} without the result object.
+     */
+    @Nonnull
+    public ValidationReason check(@Nonnull CharSequence text) {
+        int rule = firstFailure(text);
+
+        return rule == NO_RULE ? ValidationReason.NONE : reasons[rule];
+    }
+
+    public int getRuleCount() {
+        return reasons.length;
+    }
+
+    /**
+     * Index of the first declared rule {@code text} breaks, or -1.
+     */
+    int firstFailure(@Nonnull CharSequence text) {
+        int failed = reasons.length;
+        if (requiredRule != NO_RULE && text.length() == 0) {
+            failed = requiredRule;
+        }
+
+        int length = allowTrailingLineTerminator ? TextScanner.matchEnd(text) : text.length();
+        for (int i = 0; i < lengthRules.length && lengthRules[i] < failed; i++) {
+            int measured = rawLengths[i] ? text.length() : length;
+            if (measured < minLengths[i] || measured > maxLengths[i]) {
+                failed = lengthRules[i];
+                break;
+            }
+        }
+
+        for (int j = 0; j < rangeRules.length && rangeRules[j] < failed; j++) {
+            if (!rangeMatches(text, j, length)) {
+                failed = rangeRules[j];
+                break;
+            }
+        }
+
+        if (allCharRules.length > 0 && allCharRules[0] < failed) {
+            failed = scan(text, length, failed);
+        }
+
+        for (int i = 0; i < slowRules.length && slowRules[i] < failed; i++) {
+            boolean passed;
+            if (patterns[i] != null) {
+                passed = patterns[i].matcher(text).region(0, length).matches();
+            } else {
+                passed = predicates[i].test(length == text.length() ? text : text.subSequence(0, length));
+            }
+
+            if (!passed) {
+                failed = slowRules[i];
+                break;
+            }
+        }
+
+        return failed == reasons.length ? NO_RULE : failed;
+    }
+
+    // Only the characters of the range, which must fit in the value.
+    private boolean rangeMatches(@Nonnull CharSequence text, int range, int length) {
+        int start = fromEnd[range] ? length - offsets[range] : offsets[range];
+        int end = start + counts[range];
+        if (start < 0 || end > length) {
+            return false;
+        }
+
+        for (int i = start; i < end; i++) {
+            if (!isMember(text.charAt(i), rangeLowMasks[range], rangeHighMasks[range])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // The one pass over the value for every rule on all its characters. Each character is
+    // tested against the intersection of their classes, and only a miss looks at which rule
+    // it breaks.
+    private int scan(@Nonnull CharSequence text, int length, int failed) {
+        long low = allCharsLow;
+        long high = allCharsHigh;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (isMember(c, low, high)) {
+                continue;
+            }
+
+            for (int k = 0; k < allCharRules.length && allCharRules[k] < failed; k++) {
+                if (!isMember(c, allCharLowMasks[k], allCharHighMasks[k])) {
+                    failed = allCharRules[k];
+                    break;
+                }
+            }
+
+            if (failed <= allCharRules[0]) {
+                break;
+            }
+        }
+
+        return failed;
+    }
+
+    private static boolean isMember(char c, long low, long high) {
+        return c < 64 ? (low & (1L << c)) != 0 : c < 128 && (high & (1L << (c - 64))) != 0;
+    }
+
+    private static final class CharRange {
+        final int rule;
+        final boolean fromEnd;
+        final int offset;
+        final int count;
+        final CharClass chars;
+
+        CharRange(int rule, boolean fromEnd, int offset, int count, @Nonnull CharClass chars) {
+            this.rule = rule;
+            this.fromEnd = fromEnd;
+            this.offset = offset;
+            this.count = count;
+            this.chars = chars;
+        }
+    }
+
+    /**
+     * Rules are kept in the order they are added, which is the order failures are reported in.
+     * Every rule takes the reason it fails with; follow it with {@link #message(String)} for a
+     * fixed message instead.
+     */
+    public static class Builder {
+
+        private final List<ValidationReason> reasons = new ArrayList<>();
+        private final List<String> messages = new ArrayList<>();
+        private boolean allowTrailingLineTerminator;
+        private int requiredRule = NO_RULE;
+        private final List<int[]> lengthRules = new ArrayList<>();
+        private final List<CharRange> ranges = new ArrayList<>();
+        private final List<CharRange> allChars = new ArrayList<>();
+        private final List<Object> slowRules = new ArrayList<>();
+        private final List<Integer> slowRuleIndexes = new ArrayList<>();
+
+        /**
+         * Fails on an empty value.
+         */
+        public Builder required(@Nonnull ValidationReason reason) {
+            if (requiredRule != NO_RULE) {
+                throw new IllegalStateException("Already required");
+            }
+
+            requiredRule = addRule(reason);
+            return this;
+        }
+
+        public Builder minLength(int min, @Nonnull ValidationReason reason) {
+            return length(min, Integer.MAX_VALUE, reason);
+        }
+
+        public Builder maxLength(int max, @Nonnull ValidationReason reason) {
+            return length(0, max, reason);
+        }
+
+        public Builder length(int min, int max, @Nonnull ValidationReason reason) {
+            return length(min, max, false, reason);
+        }
+
+        /**
+         * Like {@link #minLength(int, ValidationReason)}, but a trailing line terminator allowed
+         * by {@link #allowTrailingLineTerminator()} counts towards the length.
+         */
+        public Builder minRawLength(int min, @Nonnull ValidationReason reason) {
+            return length(min, Integer.MAX_VALUE, true, reason);
+        }
+
+        /**
+         * The value has a first character, and it is in {@code chars}.
+         */
+        public Builder firstChar(@Nonnull CharClass chars, @Nonnull ValidationReason reason) {
+            return charAt(0, chars, reason);
+        }
+
+        /**
+         * Every character is in {@code chars}. An empty value passes.
+         */
+        public Builder allChars(@Nonnull CharClass chars, @Nonnull ValidationReason reason) {
+            allChars.add(new CharRange(addRule(reason), false, 0, 0, chars));
+            return this;
+        }
+
+        /**
+         * The value has at least {@code count} characters, and the last {@code count} are all in
+         * {@code chars}.
+         */
+        public Builder lastChars(int count, @Nonnull CharClass chars, @Nonnull ValidationReason reason) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("count must be positive");
+            }
+
+            ranges.add(new CharRange(addRule(reason), true, count, count, chars));
+            return this;
+        }
+
+        /**
+         * The character at {@code index} exists and is in {@code chars}. Negative indexes count
+         * from the end: -1 is the last character.
+         */
+        public Builder charAt(int index, @Nonnull CharClass chars, @Nonnull ValidationReason reason) {
+            int rule = addRule(reason);
+            ranges.add(index >= 0 ? new CharRange(rule, false, index, 1, chars)
+                    : new CharRange(rule, true, -index, 1, chars));
+            return this;
+        }
+
+        public Builder startsWith(@Nonnull String prefix, @Nonnull ValidationReason reason) {
+            if (prefix.isEmpty()) {
+                throw new IllegalArgumentException("Empty prefix");
+            }
+
+            int rule = addRule(reason);
+            for (int i = 0; i < prefix.length(); i++) {
+                char c = prefix.charAt(i);
+                ranges.add(new CharRange(rule, false, i, 1, CharClass.range(c, c)));
+            }
+            return this;
+        }
+
+        /**
+         * The whole value matches {@code pattern}. Only run when all earlier rules pass, so
+         * declare it after the cheap rules.
+         */
+        public Builder matches(@Nonnull Pattern pattern, @Nonnull ValidationReason reason) {
+            slowRuleIndexes.add(addRule(reason));
+            slowRules.add(pattern);
+            return this;
+        }
+
+        /**
+         * {@code predicate} accepts the value. Only run when all earlier rules pass.
+         */
+        public Builder check(@Nonnull Predicate predicate, @Nonnull ValidationReason reason) {
+            slowRuleIndexes.add(addRule(reason));
+            slowRules.add(predicate);
+            return this;
+        }
+
+        /**
+         * Replaces the reason of the last added rule with a fixed message.
+         */
+        public Builder message(@Nonnull String message) {
+            if (reasons.isEmpty()) {
+                throw new IllegalStateException("No rule to set a message for");
+            }
+
+            int last = reasons.size() - 1;
+            reasons.set(last, ValidationReason.CUSTOM);
+            messages.set(last, message);
+            return this;
+        }
+
+        /**
+         * Ignore one line terminator at the end of the value in every rule but
+         * {@link #required(ValidationReason)}, like a regex ending in "$".
+         */
+        public Builder allowTrailingLineTerminator() {
+            allowTrailingLineTerminator = true;
+            return this;
+        }
+
+        public FieldRule build() {
+            if (reasons.isEmpty()) {
+                throw new IllegalStateException("No rules");
+            }
+
+            return new FieldRule(this);
+        }
+
+        private Builder length(int min, int max, boolean raw, @Nonnull ValidationReason reason) {
+            if (min < 0 || max < min) {
+                throw new IllegalArgumentException("Bad length bounds: " + min + ", " + max);
+            }
+
+            lengthRules.add(new int[]{addRule(reason), min, max, raw ? 1 : 0});
+            return this;
+        }
+
+        private int addRule(@Nonnull ValidationReason reason) {
+            if (reason.isValid()) {
+                throw new IllegalArgumentException("Not a failure: " + reason);
+            }
+
+            reasons.add(reason);
+            messages.add(null);
+            return reasons.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package in.elanic.rxformvalidation;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The form's fields as {@link FieldRule}s. They give the same verdicts as the hand-written
+ * {@link ValidationUtils} checks (see FieldRuleTest), so new fields can be declared the same way
+ * instead of adding more static methods.
+ */
+public final class FieldRules {
+
+    private static final CharClass MOBILE_NUMBER_PREFIX = CharClass.range('7', '9');
+
+    /**
+     * {@link ValidationUtils#checkUsername(CharSequence)}. That measures "too short" on the raw
+     * value, terminator included, and leaves the rest to the username pattern, which counts
+     * the length without it.
+     */
+    public static final FieldRule USERNAME = new FieldRule.Builder()
+            .required(ValidationReason.EMPTY)
+            .allowTrailingLineTerminator()
+            .minRawLength(TextScanner.USERNAME_MIN_LENGTH, ValidationReason.USERNAME_TOO_SHORT)
+            .length(TextScanner.USERNAME_MIN_LENGTH, TextScanner.USERNAME_MAX_LENGTH,
+                    ValidationReason.USERNAME_INVALID_CHARACTERS)
+            .firstChar(CharClass.LETTERS, ValidationReason.USERNAME_INVALID_CHARACTERS)
+            .allChars(CharClass.LETTERS_OR_DIGITS.or("._"), ValidationReason.USERNAME_INVALID_CHARACTERS)
+            .build();
+
+    /**
+     * {@link ValidationUtils#checkPhoneNumber(CharSequence)}: ends with a 10 digit mobile number.
+     */
+    public static final FieldRule PHONE_NUMBER = new FieldRule.Builder()
+            .required(ValidationReason.EMPTY)
+            .allowTrailingLineTerminator()
+            .charAt(-TextScanner.MOBILE_NUMBER_LENGTH, MOBILE_NUMBER_PREFIX, ValidationReason.PHONE_INVALID)
+            .lastChars(TextScanner.MOBILE_NUMBER_LENGTH - 1, CharClass.DIGITS, ValidationReason.PHONE_INVALID)
+            .build();
+
+    /**
+     * {@link ValidationUtils#checkEmailAddress(CharSequence)}.
+     */
+    public static final FieldRule EMAIL_ADDRESS = new FieldRule.Builder()
+            .required(ValidationReason.EMPTY)
+            .check(new FieldRule.Predicate() {
+                @Override
+                public boolean test(@Nonnull CharSequence text) {
+                    return TextScanner.containsEmailAddress(text);
+                }
+            }, ValidationReason.EMAIL_INVALID)
+            .build();
+
+    private FieldRules() {
+    }
+}
@@ -0,0 +1,376 @@
+package in.elanic.rxformvalidation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Func0;
+import rx.functions.Func1;
+
+/**
+ * Validates a form with any number of fields.
+ *
+ * Each field is registered with its text stream and a local rule, and optionally a remote
+ * check which runs through {@link RemoteValidation#latestOnly}. {@link #submitEnabled()} keeps
+ * the validity of all fields in a bitset and flips one bit per field result, instead of
+ * combining every field into a tuple on each emission, and only emits when the overall state
+ * changes.
+ *
+ * Rules spanning fields ("confirm email equals email") are added with
+ * {@link #addRule(String, Func1, Node...)} on top of the fields and of earlier rules. They are
+ * recomputed only when one of their inputs changes, in dependency order, see
+ * {@link DependencyGraph}; a keystroke in one field of a large form runs just the rules that
+ * read it. Rule results count towards {@link #submitEnabled()} like field results.
+ *
+ * Register all fields and rules before subscribing to {@link #submitEnabled()} or any results.
+ */
+public class FormValidator {
+
+    private final Scheduler scheduler;
+    private final ValidationMetrics metrics;
+    private final List<Field> fields = new ArrayList<>();
+    private final List<Rule> rules = new ArrayList<>();
+    private final AtomicLong ruleEvaluationCount = new AtomicLong();
+    private Observable<RuleResult> ruleResults;
+
+    /**
+     * @param scheduler runs the debounce timers of remote checks.
+     */
+    public FormValidator(@Nonnull Scheduler scheduler) {
+        this(scheduler, null);
+    }
+
+    /**
+     * @param metrics receives stage latencies and remote call counters, keyed by field name.
+     */
+    public FormValidator(@Nonnull Scheduler scheduler, @Nullable ValidationMetrics metrics) {
+        this.scheduler = scheduler;
+        this.metrics = metrics;
+    }
+
+    public Field addField(@Nonnull String name, @Nonnull Observable<String> text,
+                          @Nonnull final Func1<String, ValidationResult<String>> localRule) {
+        if (metrics == null) {
+            return add(name, text.map(localRule));
+        }
+
+        final LatencyHistogram histogram = metrics.histogram(name, ValidationMetrics.Stage.LOCAL_RULE);
+        return add(name, text.map(new Func1<String, ValidationResult<String>>() {
+            @Override
+            public ValidationResult<String> call(String s) {
+                long start = System.nanoTime();
+                ValidationResult<String> result = localRule.call(s);
+                histogram.recordNanos(System.nanoTime() - start);
+                return result;
+            }
+        }));
+    }
+
+    public Field addField(@Nonnull String name, @Nonnull Observable<String> text,
+                          @Nonnull Func1<String, ValidationResult<String>> localRule,
+                          @Nonnull Func1<String, Observable<ValidationResult<String>>> remoteCheck,
+                          @Nonnull DebouncePolicy policy) {
+        return addField(name, text, localRule, remoteCheck, policy, null);
+    }
+
+    /**
+     * @param prefetchBudget lets the remote check start before the debounce window is over, see
+     *                       {@link RemoteValidation#latestOnly}. Null disables prefetching.
+     */
+    public Field addField(@Nonnull String name, @Nonnull Observable<String> text,
+                          @Nonnull Func1<String, ValidationResult<String>> localRule,
+                          @Nonnull Func1<String, Observable<ValidationResult<String>>> remoteCheck,
+                          @Nonnull DebouncePolicy policy, @Nullable PrefetchBudget prefetchBudget) {
+        return add(name, text.compose(RemoteValidation.latestOnly(localRule, remoteCheck, policy,
+                scheduler, metrics, name, prefetchBudget)));
+    }
+
+    /**
+     * Adds a rule over other fields and rules. {@code rule} gets the data of the latest result
+     * of each input, in the order given, and its result's data is what rules using this one get.
+     * It runs once all inputs have a result, and then whenever one of them changes.
+     */
+    public Rule addRule(@Nonnull String name, @Nonnull Func1<String[], ValidationResult<String>> rule,
+                        @Nonnull Node... inputs) {
+        if (inputs.length == 0) {
+            throw new IllegalArgumentException("A rule needs at least one input");
+        }
+
+        for (Node input : inputs) {
+            if (input.validator != this) {
+                throw new IllegalArgumentException(input.getName() + " belongs to another form");
+            }
+        }
+
+        Rule added = new Rule(this, rules.size(), name, rule, inputs.clone());
+        rules.add(added);
+        return added;
+    }
+
+    public int getFieldCount() {
+        return fields.size();
+    }
+
+    public Field getField(int index) {
+        return fields.get(index);
+    }
+
+    public int getRuleCount() {
+        return rules.size();
+    }
+
+    public Rule getRule(int index) {
+        return rules.get(index);
+    }
+
+    /**
+     * Rule evaluations so far, over all subscriptions. Unchanged inputs are not evaluated again.
+     */
+    public long getRuleEvaluationCount() {
+        return ruleEvaluationCount.get();
+    }
+
+    /**
+     * Emits false right away, and then whenever the form goes from all fields valid to some
+     * field invalid or back. A field counts as invalid until its first result arrives.
+     */
+    public Observable<Boolean> submitEnabled() {
+        return Observable.defer(new Func0<Observable<Boolean>>() {
+            @Override
+            public Observable<Boolean> call() {
+                final ValidityBits bits = new ValidityBits(fields.size() + rules.size());
+                List<Observable<Integer>> updates = new ArrayList<>(fields.size() + 1);
+                for (Field field : fields) {
+                    updates.add(field.bitUpdates());
+                }
+                if (!rules.isEmpty()) {
+                    final int firstRuleBit = fields.size();
+                    updates.add(ruleResults().map(new Func1<RuleResult, Integer>() {
+                        @Override
+                        public Integer call(RuleResult update) {
+                            int bit = (firstRuleBit + update.rule) << 1;
+                            return update.result.isValid() ? bit | 1 : bit;
+                        }
+                    }));
+                }
+
+                return Observable.merge(updates)
+                        .map(new Func1<Integer, Boolean>() {
+                            @Override
+                            public Boolean call(Integer update) {
+                                bits.set(update >>> 1, (update & 1) != 0);
+                                return bits.allValid();
+                            }
+                        })
+                        .startWith(false)
+                        .distinctUntilChanged();
+            }
+        });
+    }
+
+    private Field add(@Nonnull String name, @Nonnull Observable<ValidationResult<String>> results) {
+        Field field = new Field(this, fields.size(), name, results.share());
+        fields.add(field);
+        return field;
+    }
+
+    // One graph for all rules, shared by their results and submitEnabled(). Only the fields some
+    // rule reads are subscribed to.
+    private synchronized Observable<RuleResult> ruleResults() {
+        if (ruleResults == null) {
+            ruleResults = Observable.create(new Observable.OnSubscribe<RuleResult>() {
+                @Override
+                public void call(final Subscriber<? super RuleResult> subscriber) {
+                    final DependencyGraph graph = newDependencyGraph();
+                    final DependencyGraph.Listener listener = new DependencyGraph.Listener() {
+                        @Override
+                        public void onRuleResult(int rule, @Nonnull ValidationResult<String> result) {
+                            subscriber.onNext(new RuleResult(rule, result));
+                        }
+                    };
+
+                    List<Observable<FieldValue>> values = new ArrayList<>();
+                    boolean[] used = new boolean[fields.size()];
+                    for (Rule rule : rules) {
+                        for (Node input : rule.inputs) {
+                            if (input instanceof Field && !used[input.getIndex()]) {
+                                used[input.getIndex()] = true;
+                                values.add(((Field) input).values());
+                            }
+                        }
+                    }
+
+                    subscriber.add(Observable.merge(values).unsafeSubscribe(new Subscriber<FieldValue>() {
+                        @Override
+                        public void onNext(FieldValue value) {
+                            long before = graph.getEvaluationCount();
+                            graph.setField(value.field, value.value, listener);
+                            ruleEvaluationCount.addAndGet(graph.getEvaluationCount() - before);
+                        }
+
+                        @Override
+                        public void onError(Throwable e) {
+                            subscriber.onError(e);
+                        }
+
+                        @Override
+                        public void onCompleted() {
+                            subscriber.onCompleted();
+                        }
+                    }));
+                }
+            }).share();
+        }
+
+        return ruleResults;
+    }
+
+    @Nonnull
+    private DependencyGraph newDependencyGraph() {
+        List<DependencyGraph.RuleSpec> specs = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            int[] inputs = new int[rule.inputs.length];
+            for (int i = 0; i < inputs.length; i++) {
+                Node input = rule.inputs[i];
+                inputs[i] = input instanceof Field ? input.getIndex() : fields.size() + input.getIndex();
+            }
+            specs.add(new DependencyGraph.RuleSpec(rule.rule, inputs));
+        }
+
+        return new DependencyGraph(fields.size(), specs);
+    }
+
+    /**
+     * A field or a rule: something with results, which rules can use as an input.
+     */
+    public abstract static class Node {
+
+        final FormValidator validator;
+        private final int index;
+        private final String name;
+
+        Node(@Nonnull FormValidator validator, int index, @Nonnull String name) {
+            this.validator = validator;
+            this.index = index;
+            this.name = name;
+        }
+
+        /**
+         * Index among the fields, or among the rules, of the form.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public abstract Observable<ValidationResult<String>> results();
+    }
+
+    public static class Field extends Node {
+
+        private final Observable<ValidationResult<String>> results;
+
+        Field(@Nonnull FormValidator validator, int index, @Nonnull String name,
+              @Nonnull Observable<ValidationResult<String>> results) {
+            super(validator, index, name);
+            this.results = results;
+        }
+
+        /**
+         * Results of this field. Shared with {@link FormValidator#submitEnabled()} and the rules
+         * using the field, so showing them does not run the rules or remote checks a second time.
+         */
+        @Override
+        public Observable<ValidationResult<String>> results() {
+            return results;
+        }
+
+        Observable<FieldValue> values() {
+            final int index = getIndex();
+            return results.map(new Func1<ValidationResult<String>, FieldValue>() {
+                @Override
+                public FieldValue call(ValidationResult<String> result) {
+                    return new FieldValue(index, result.getData());
+                }
+            });
+        }
+
+        /**
+         * Results packed as (index << 1 | valid). Small Integers are cached by the VM, so for
+         * forms with up to 64 fields this allocates nothing per result.
+         */
+        Observable<Integer> bitUpdates() {
+            final int invalid = getIndex() << 1;
+            final int valid = invalid | 1;
+            return results.map(new Func1<ValidationResult<String>, Integer>() {
+                @Override
+                public Integer call(ValidationResult<String> result) {
+                    return result.isValid() ? valid : invalid;
+                }
+            });
+        }
+    }
+
+    public static class Rule extends Node {
+
+        final Func1<String[], ValidationResult<String>> rule;
+        final Node[] inputs;
+
+        Rule(@Nonnull FormValidator validator, int index, @Nonnull String name,
+             @Nonnull Func1<String[], ValidationResult<String>> rule, @Nonnull Node[] inputs) {
+            super(validator, index, name);
+            this.rule = rule;
+            this.inputs = inputs;
+        }
+
+        /**
+         * Results of this rule, only when they differ from the previous one.
+         */
+        @Override
+        public Observable<ValidationResult<String>> results() {
+            final int index = getIndex();
+            return validator.ruleResults()
+                    .filter(new Func1<RuleResult, Boolean>() {
+                        @Override
+                        public Boolean call(RuleResult update) {
+                            return update.rule == index;
+                        }
+                    })
+                    .map(new Func1<RuleResult, ValidationResult<String>>() {
+                        @Override
+                        public ValidationResult<String> call(RuleResult update) {
+                            return update.result;
+                        }
+                    });
+        }
+    }
+
+    static final class FieldValue {
+        final int field;
+        final String value;
+
+        FieldValue(int field, @Nullable String value) {
+            this.field = field;
+            this.value = value;
+        }
+    }
+
+    static final class RuleResult {
+        final int rule;
+        final ValidationResult<String> result;
+
+        RuleResult(int rule, @Nonnull ValidationResult<String> result) {
+            this.rule = rule;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,605 @@
+package in.elanic.rxformvalidation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * {@link AvailabilityChecker} talking HTTP/1.1 to the availability backend, without blocking a
+ * thread per call.
+ *
+ * One I/O thread runs a {@link Selector} over at most {@code maxConnections} persistent
+ * (keep-alive) connections. Each connection carries up to {@code maxPipelineDepth} requests at a
+ * time, written back to back without waiting for the responses in between (pipelining);
+ * responses come back in order. Lookups beyond that wait in a FIFO queue, so the backend never
+ * sees more than {@code maxConnections * maxPipelineDepth} concurrent requests from us.
+ *
+ * The protocol is {@code GET /v1/email/available?value=...} (or {@code /v1/username/...})
+ * answered with a 200 and a body of {@code available} or {@code taken}; anything else is an
+ * IOException. The test fixtures have LocalAvailabilityServer as a stand-in.
+ *
+ * Results are emitted on the I/O thread, so observe them elsewhere and keep subscribers short.
+ * Unsubscribing drops a lookup: a queued one is never sent, the response to a sent one is read
+ * and discarded (it has to be, to keep the pipeline in order). There are no timeouts or retries
+ * here, wrap it in a {@link ResilientAvailabilityChecker} for those. Requests that were written
+ * on a connection the server then closed (typically an idle keep-alive one) are resent once.
+ */
+public class HttpAvailabilityChecker implements AvailabilityChecker, Closeable {
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+
+    private final InetSocketAddress address;
+    private final String hostHeader;
+    private final int maxConnections;
+    private final int maxPipelineDepth;
+
+    private final Selector selector;
+    private final Thread ioThread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    // Only touched on the I/O thread
+    private final List<Connection> connections = new ArrayList<>();
+    private final Deque<Request> pending = new ArrayDeque<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong pipelined = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong resent = new AtomicLong();
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public HttpAvailabilityChecker(@Nonnull String host, int port, int maxConnections,
+                                   int maxPipelineDepth) throws IOException {
+        if (maxConnections <= 0 || maxPipelineDepth <= 0) {
+            throw new IllegalArgumentException("maxConnections and maxPipelineDepth must be positive");
+        }
+
+        this.address = new InetSocketAddress(host, port);
+        this.hostHeader = host + ":" + port;
+        this.maxConnections = maxConnections;
+        this.maxPipelineDepth = maxPipelineDepth;
+        this.selector = Selector.open();
+        this.ioThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                loop();
+            }
+        }, "HttpAvailabilityChecker-io");
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull String email) {
+        return lookup("/v1/email/available", email, ValidationReason.EMAIL_TAKEN);
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull String username) {
+        return lookup("/v1/username/available", username, ValidationReason.USERNAME_TAKEN);
+    }
+
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+        return isEmailAvailable(email).toBlocking().single();
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+        return isUsernameAvailable(username).toBlocking().single();
+    }
+
+    /**
+     * Requests written to the backend, including resent ones.
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * Requests written while an earlier request on the same connection was still unanswered.
+     */
+    public long getPipelinedCount() {
+        return pipelined.get();
+    }
+
+    public long getConnectionsOpenedCount() {
+        return connectionsOpened.get();
+    }
+
+    public long getResentCount() {
+        return resent.get();
+    }
+
+    public int getOpenConnectionCount() {
+        return openConnections.get();
+    }
+
+    /**
+     * Lookups waiting for a free slot on a connection.
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    /**
+     * Closes all connections and fails every lookup that has not been answered yet.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        selector.wakeup();
+        try {
+            ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Observable<ValidationResult<String>> lookup(@Nonnull final String path,
+                                                        @Nonnull final String value,
+                                                        @Nonnull final ValidationReason reason) {
+        return Observable.create(new Observable.OnSubscribe<ValidationResult<String>>() {
+            @Override
+            public void call(Subscriber<? super ValidationResult<String>> subscriber) {
+                final Request request;
+                try {
+                    request = new Request(encode(path, value), value, reason, subscriber);
+                } catch (UnsupportedEncodingException e) {
+                    subscriber.onError(e);
+                    return;
+                }
+
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        request.cancelled = true;
+                        // A queued request can be forgotten right away, a sent one is dropped
+                        // when its response arrives.
+                        execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (pending.remove(request)) {
+                                    queued.decrementAndGet();
+                                }
+                            }
+                        });
+                    }
+                }));
+
+                boolean accepted = execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!request.cancelled) {
+                            pending.add(request);
+                            queued.incrementAndGet();
+                            dispatch();
+                        }
+                    }
+                });
+                if (!accepted) {
+                    subscriber.onError(new IOException("HttpAvailabilityChecker closed"));
+                }
+            }
+        });
+    }
+
+    private byte[] encode(@Nonnull String path, @Nonnull String value) throws UnsupportedEncodingException {
+        String request = "GET " + path + "?value=" + URLEncoder.encode(value, "UTF-8") + " HTTP/1.1\r\n"
+                + "Host: " + hostHeader + "\r\n"
+                + "Connection: keep-alive\r\n"
+                + "\r\n";
+
+        return request.getBytes(US_ASCII);
+    }
+
+    /**
+     * Runs the task on the I/O thread. False if the checker is closed.
+     */
+    private boolean execute(@Nonnull Runnable task) {
+        if (closed) {
+            return false;
+        }
+
+        tasks.add(task);
+        selector.wakeup();
+
+        return true;
+    }
+
+    private void loop() {
+        try {
+            while (!closed) {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isConnectable()) {
+                            connection.finishConnect();
+                        }
+
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read();
+                        }
+                    } catch (IOException e) {
+                        connection.close(e);
+                    }
+                }
+
+                dispatch();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // Selector is gone, fail everything below.
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * Hands queued requests to the least busy connection with room in its pipeline, opening new
+     * connections up to the limit.
+     */
+    private void dispatch() {
+        while (!pending.isEmpty()) {
+            Connection target = null;
+            for (Connection connection : connections) {
+                if (connection.inFlight.size() < maxPipelineDepth
+                        && (target == null || connection.inFlight.size() < target.inFlight.size())) {
+                    target = connection;
+                }
+            }
+
+            // A new connection beats queueing behind a busy one.
+            if ((target == null || !target.inFlight.isEmpty()) && connections.size() < maxConnections) {
+                try {
+                    target = open();
+                } catch (IOException e) {
+                    if (target == null) {
+                        failPending(e);
+                        return;
+                    }
+                }
+            }
+
+            if (target == null) {
+                return;
+            }
+
+            Request request = pending.poll();
+            queued.decrementAndGet();
+            if (!request.cancelled) {
+                target.send(request);
+            }
+        }
+    }
+
+    private Connection open() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            if (channel.connect(address)) {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.connected = true;
+            } else {
+                connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+            }
+
+            connections.add(connection);
+            connectionsOpened.incrementAndGet();
+            openConnections.incrementAndGet();
+
+            return connection;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void failPending(@Nonnull IOException e) {
+        Request request;
+        while ((request = pending.poll()) != null) {
+            queued.decrementAndGet();
+            request.fail(e);
+        }
+    }
+
+    private void shutdown() {
+        IOException e = new IOException("HttpAvailabilityChecker closed");
+        for (Connection connection : new ArrayList<>(connections)) {
+            connection.close(e);
+        }
+
+        failPending(e);
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+            // Nothing left to clean up.
+        }
+    }
+
+    private static class Request {
+
+        final byte[] bytes;
+        final String value;
+        final ValidationReason reason;
+        final Subscriber<? super ValidationResult<String>> subscriber;
+        volatile boolean cancelled;
+        boolean resent;
+
+        Request(@Nonnull byte[] bytes, @Nonnull String value, @Nonnull ValidationReason reason,
+                @Nonnull Subscriber<? super ValidationResult<String>> subscriber) {
+            this.bytes = bytes;
+            this.value = value;
+            this.reason = reason;
+            this.subscriber = subscriber;
+        }
+
+        void complete(@Nonnull String body) {
+            if (cancelled) {
+                return;
+            }
+
+            if ("available".equals(body)) {
+                subscriber.onNext(ValidationResult.success(value));
+            } else if ("taken".equals(body)) {
+                subscriber.onNext(ValidationResult.failure(reason, value));
+            } else {
+                subscriber.onError(new IOException("Unexpected response body: " + body));
+                return;
+            }
+
+            subscriber.onCompleted();
+        }
+
+        void fail(@Nonnull IOException e) {
+            if (!cancelled) {
+                subscriber.onError(e);
+            }
+        }
+    }
+
+    private class Connection {
+
+        final SocketChannel channel;
+        SelectionKey key;
+        boolean connected;
+
+        // Requests written (or being written) and not answered yet, in order.
+        final Deque<Request> inFlight = new ArrayDeque<>();
+        ByteBuffer out = ByteBuffer.allocate(1024);
+        ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        Connection(@Nonnull SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void send(@Nonnull Request request) {
+            if (!inFlight.isEmpty()) {
+                pipelined.incrementAndGet();
+            }
+
+            inFlight.add(request);
+            requests.incrementAndGet();
+            if (out.remaining() < request.bytes.length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + request.bytes.length));
+                out.flip();
+                grown.put(out);
+                out = grown;
+            }
+
+            out.put(request.bytes);
+            if (connected) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        void finishConnect() throws IOException {
+            channel.finishConnect();
+            connected = true;
+            key.interestOps(SelectionKey.OP_READ | (out.position() > 0 ? SelectionKey.OP_WRITE : 0));
+        }
+
+        void write() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            if (out.position() == 0) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void read() throws IOException {
+            int read = channel.read(in);
+            if (read < 0) {
+                close(new IOException("Connection closed by server"));
+                return;
+            }
+
+            while (parseResponse()) {
+                if (!key.isValid()) {
+                    return;
+                }
+            }
+
+            if (!in.hasRemaining()) {
+                if (in.capacity() >= MAX_HEADER_SIZE * 4) {
+                    throw new IOException("Response too large");
+                }
+
+                ByteBuffer grown = ByteBuffer.allocate(in.capacity() * 2);
+                in.flip();
+                grown.put(in);
+                in = grown;
+            }
+        }
+
+        /**
+         * Completes the oldest request if its whole response has been read.
+         */
+        private boolean parseResponse() throws IOException {
+            int headerEnd = indexOfHeaderEnd();
+            if (headerEnd < 0) {
+                if (in.position() > MAX_HEADER_SIZE) {
+                    throw new IOException("Response header too large");
+                }
+                return false;
+            }
+
+            String header = new String(in.array(), 0, headerEnd, US_ASCII);
+            int contentLength = -1;
+            boolean close = false;
+            String[] lines = header.split("\r\n");
+            String[] status = lines[0].split(" ", 3);
+            if (status.length < 2 || !status[0].startsWith("HTTP/1.")) {
+                throw new IOException("Malformed status line: " + lines[0]);
+            }
+
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+
+                String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.US);
+                String value = lines[i].substring(colon + 1).trim();
+                if ("content-length".equals(name)) {
+                    contentLength = Integer.parseInt(value);
+                } else if ("connection".equals(name)) {
+                    close = "close".equalsIgnoreCase(value);
+                } else if ("transfer-encoding".equals(name)) {
+                    throw new IOException("Transfer-Encoding is not supported: " + value);
+                }
+            }
+
+            if (contentLength < 0) {
+                throw new IOException("Response without Content-Length");
+            }
+
+            int bodyStart = headerEnd + 4;
+            if (in.position() < bodyStart + contentLength) {
+                return false;
+            }
+
+            String body = new String(in.array(), bodyStart, contentLength, US_ASCII).trim();
+            int consumed = bodyStart + contentLength;
+            in.flip();
+            in.position(consumed);
+            in.compact();
+
+            Request request = inFlight.poll();
+            if (request == null) {
+                throw new IOException("Response without a request");
+            }
+
+            if ("200".equals(status[1])) {
+                request.complete(body);
+            } else {
+                request.fail(new IOException("HTTP " + status[1] + " for " + request.value));
+            }
+
+            if (close) {
+                close(new IOException("Connection closed by server"));
+                return false;
+            }
+
+            return true;
+        }
+
+        private int indexOfHeaderEnd() {
+            byte[] bytes = in.array();
+            for (int i = 0, end = in.position() - 3; i < end; i++) {
+                if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r' && bytes[i + 3] == '\n') {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Closes the connection. Unanswered requests are resent once on another connection, since
+         * lookups are idempotent, and fail the second time.
+         */
+        void close(@Nonnull IOException e) {
+            if (!connections.remove(this)) {
+                return;
+            }
+
+            openConnections.decrementAndGet();
+            if (key != null) {
+                key.cancel();
+            }
+
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already broken.
+            }
+
+            Iterator<Request> unanswered = inFlight.descendingIterator();
+            while (unanswered.hasNext()) {
+                Request request = unanswered.next();
+                if (request.cancelled) {
+                    continue;
+                }
+
+                if (!request.resent && !closed) {
+                    request.resent = true;
+                    resent.incrementAndGet();
+                    pending.addFirst(request);
+                    queued.incrementAndGet();
+                } else {
+                    request.fail(e);
+                }
+            }
+
+            inFlight.clear();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package in.elanic.rxformvalidation;
+
+import javax.annotation.Nonnull;
+
+/**
+ * {@link ValidationUtils#checkNoContactInfo(CharSequence)} for one field that is being edited,
+ * resumed after every edit instead of rescanning the whole text.
+ *
+ * It keeps the position of every mobile number, digit run and email address in the text. An
+ * edit ({@code before} characters at {@code start} replaced by {@code count}, as reported by
+ * TextWatcher.onTextChanged) only drops and rescans the matches whose characters are within
+ * reach of the edit, so a keystroke in a long bio costs about the same as in a short one. The
+ * positions after the edit are moved by an array copy, which is linear in the number of
+ * matches, not in the text.
+ *
+ * The result is always the same as a full rescan. An edit that does not fit the text (a missed
+ * event) falls back to one. Not thread safe; use one per field, from the thread that edits it.
+ */
+public class IncrementalContactInfoValidator {
+
+    // A match is decided by the characters from one before its position (the local part before
+    // an '@') up to this far after it ('@', the longest domain, '.', one more character).
+    private static final int LEFT_REACH = 1;
+    private static final int RIGHT_REACH = TextScanner.EMAIL_MAX_DOMAIN_LENGTH + 2;
+
+    private final Positions mobileNumbers = new Positions();
+    private final Positions digitRuns = new Positions();
+    private final Positions emailAddresses = new Positions();
+
+    private final Positions newMobileNumbers = new Positions();
+    private final Positions newDigitRuns = new Positions();
+    private final Positions newEmailAddresses = new Positions();
+
+    private int length;
+    private long scannedCharCount;
+    private long fullScanCount;
+
+    /**
+     * Forgets the previous text and scans this one in full.
+     */
+    @Nonnull
+    public ValidationReason reset(@Nonnull CharSequence text) {
+        fullScanCount++;
+        length = text.length();
+        mobileNumbers.clear();
+        digitRuns.clear();
+        emailAddresses.clear();
+        scan(text, 0, length - 1, mobileNumbers, digitRuns, emailAddresses);
+
+        return check();
+    }
+
+    /**
+     * Applies one edit: {@code text} is the text after it, in which {@code count} characters at
+     * {@code start} replaced {@code before} characters of the previous text.
+     */
+    @Nonnull
+    public ValidationReason update(@Nonnull CharSequence text, int start, int before, int count) {
+        if (start < 0 || before < 0 || count < 0 || start + before > length
+                || text.length() != length - before + count) {
+            return reset(text);
+        }
+
+        length = text.length();
+        int from = Math.max(0, start - RIGHT_REACH);
+        int oldTo = start + before - 1 + LEFT_REACH;
+        int newTo = Math.min(length - 1, start + count - 1 + LEFT_REACH);
+
+        newMobileNumbers.clear();
+        newDigitRuns.clear();
+        newEmailAddresses.clear();
+        scan(text, from, newTo, newMobileNumbers, newDigitRuns, newEmailAddresses);
+
+        int delta = count - before;
+        mobileNumbers.replace(from, oldTo, newMobileNumbers, delta);
+        digitRuns.replace(from, oldTo, newDigitRuns, delta);
+        emailAddresses.replace(from, oldTo, newEmailAddresses, delta);
+
+        return check();
+    }
+
+    /**
+     * The verdict for the current text: {@link ValidationReason#CONTACT_INFO} or
+     * {@link ValidationReason#NONE}.
+     */
+    @Nonnull
+    public ValidationReason check() {
+        return containsContactInfo() ? ValidationReason.CONTACT_INFO : ValidationReason.NONE;
+    }
+
+    public boolean containsContactInfo() {
+        return containsMobileNumber() || containsDigitRun() || containsEmailAddress();
+    }
+
+    public boolean containsMobileNumber() {
+        return mobileNumbers.size > 0;
+    }
+
+    public boolean containsDigitRun() {
+        return digitRuns.size > 0;
+    }
+
+    public boolean containsEmailAddress() {
+        return emailAddresses.size > 0;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Characters visited by all scans so far, full or partial.
+     */
+    public long getScannedCharCount() {
+        return scannedCharCount;
+    }
+
+    public long getFullScanCount() {
+        return fullScanCount;
+    }
+
+    // Finds the matches starting (or, for email addresses, with their '@') in [from, to].
+    private void scan(@Nonnull CharSequence text, int from, int to,
+                      @Nonnull Positions mobileNumbers, @Nonnull Positions digitRuns,
+                      @Nonnull Positions emailAddresses) {
+        // Digit matches starting at 'to' end this far after it
+        int end = Math.min(text.length(), to + TextScanner.MOBILE_NUMBER_LENGTH);
+        int run = 0;
+        for (int i = from; i < end; i++) {
+            char c = text.charAt(i);
+            if (TextScanner.isDigit(c)) {
+                run++;
+                int runStart = i - ValidationUtils.MIN_CONSECUTIVE_NUMBERS + 1;
+                if (run >= ValidationUtils.MIN_CONSECUTIVE_NUMBERS && runStart <= to) {
+                    digitRuns.add(runStart);
+                }
+
+                int numberStart = i - TextScanner.MOBILE_NUMBER_LENGTH + 1;
+                if (run >= TextScanner.MOBILE_NUMBER_LENGTH && numberStart <= to
+                        && TextScanner.isMobileNumberPrefix(text.charAt(numberStart))) {
+                    mobileNumbers.add(numberStart);
+                }
+            } else {
+                run = 0;
+                if (c == '@' && i >= 1 && i <= to && TextScanner.isEmailLocalChar(text.charAt(i - 1))
+                        && TextScanner.isEmailDomainAt(text, i + 1)) {
+                    emailAddresses.add(i);
+                }
+            }
+        }
+
+        scannedCharCount += Math.max(0, end - from);
+    }
+
+    /**
+     * Sorted match positions.
+     */
+    private static final class Positions {
+
+        int[] values = new int[8];
+        int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void add(int value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+        }
+
+        /**
+         * Drops the positions in [from, to], puts {@code replacement} in their place and moves
+         * the later ones by {@code delta}.
+         */
+        void replace(int from, int to, @Nonnull Positions replacement, int delta) {
+            int first = indexOf(from);
+            int last = indexOf(to + 1);
+            int tail = size - last;
+            int newSize = first + replacement.size + tail;
+            ensureCapacity(newSize);
+
+            int newLast = first + replacement.size;
+            System.arraycopy(values, last, values, newLast, tail);
+            System.arraycopy(replacement.values, 0, values, first, replacement.size);
+            if (delta != 0) {
+                for (int i = newLast; i < newSize; i++) {
+                    values[i] += delta;
+                }
+            }
+            size = newSize;
+        }
+
+        // Index of the first position >= value
+        private int indexOf(int value) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                int[] grown = new int[Math.max(capacity, values.length * 2)];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+        }
+    }
+}
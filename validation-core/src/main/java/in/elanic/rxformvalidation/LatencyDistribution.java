@@ -0,0 +1,88 @@
+package in.elanic.rxformvalidation;
+
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Response time model for {@link SimulatedAvailabilityChecker}. Samples are in milliseconds and
+ * only depend on the given Random, so a seeded Random replays the same latencies.
+ */
+public abstract class LatencyDistribution {
+
+    // z-score of the 99th percentile of the standard normal distribution.
+    private static final double Z_99 = 2.326;
+
+    public abstract long sampleMillis(@Nonnull Random random);
+
+    /**
+     * Always the same latency.
+     */
+    public static LatencyDistribution fixed(final long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis must not be negative");
+        }
+
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis(@Nonnull Random random) {
+                return millis;
+            }
+
+            @Override
+            public String toString() {
+                return "fixed(" + millis + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Log-normal latencies with the given median and 99th percentile, the usual shape of a
+     * healthy backend: most calls close to the median and a long right tail.
+     */
+    public static LatencyDistribution lognormal(final long medianMillis, final long p99Millis) {
+        if (medianMillis <= 0 || p99Millis < medianMillis) {
+            throw new IllegalArgumentException("Need 0 < median <= p99");
+        }
+
+        final double mu = Math.log(medianMillis);
+        final double sigma = Math.log((double) p99Millis / medianMillis) / Z_99;
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis(@Nonnull Random random) {
+                return Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+            }
+
+            @Override
+            public String toString() {
+                return "lognormal(p50=" + medianMillis + "ms, p99=" + p99Millis + "ms)";
+            }
+        };
+    }
+
+    /**
+     * Mostly {@code fast}, but a {@code slowFraction} of calls take the {@code slow} path (cold
+     * caches, GC pauses, a lagging replica), which is what makes the p99 hurt.
+     */
+    public static LatencyDistribution bimodal(@Nonnull final LatencyDistribution fast,
+                                              @Nonnull final LatencyDistribution slow,
+                                              final double slowFraction) {
+        if (slowFraction < 0 || slowFraction > 1) {
+            throw new IllegalArgumentException("slowFraction must be between 0 and 1");
+        }
+
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis(@Nonnull Random random) {
+                return random.nextDouble() < slowFraction
+                        ? slow.sampleMillis(random)
+                        : fast.sampleMillis(random);
+            }
+
+            @Override
+            public String toString() {
+                return "bimodal(" + fast + ", " + slow + " x " + slowFraction + ")";
+            }
+        };
+    }
+}
@@ -0,0 +1,142 @@
+package in.elanic.rxformvalidation;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in microseconds.
+ *
+ * Buckets are log-linear: every power of two is split into {@link #SUB_BUCKETS} equal parts, so
+ * any recorded value is reported within 1/8 (12.5%) of itself, from 1us up to over a day. Recording
+ * is a couple of atomic increments and never allocates, so it can stay on in production.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int OCTAVES = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(bucketCount());
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+
+        long currentMax;
+        while (micros > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, micros)) {
+                break;
+            }
+        }
+    }
+
+    public void recordMillis(long millis) {
+        record(millis * 1000);
+    }
+
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Copies the current state. Concurrent recordings may or may not be included, but the copy
+     * itself does not change.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[buckets.length()];
+        long total = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = buckets.get(i);
+            total += copy[i];
+        }
+
+        return new Snapshot(copy, total, sum.get(), max.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int octave = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> octave) & (SUB_BUCKETS - 1);
+        int index = (octave + 1) * SUB_BUCKETS + subBucket;
+        return Math.min(index, bucketCount() - 1);
+    }
+
+    // Upper bound of the values in a bucket
+    static long bucketValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int octave = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << octave) - 1;
+    }
+
+    private static int bucketCount() {
+        return (OCTAVES + 1) * SUB_BUCKETS;
+    }
+
+    public static class Snapshot {
+
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100.
+         * @return the smallest bucket bound which covers the percentile, never more than the max.
+         */
+        public long getPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(percentile / 100 * count);
+            rank = Math.max(1, Math.min(count, rank));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(bucketValue(i), max);
+                }
+            }
+
+            return max;
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package in.elanic.rxformvalidation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Turns single value lookups into batched calls on a {@link BatchAvailabilityChecker}.
+ *
+ * Lookups are collected for up to {@code window} after the first one arrives, or until
+ * {@code maxBatchSize} distinct values are pending, then sent as one call. Each subscriber gets
+ * the result for its own value. A sent batch is cancelled once all of its subscribers have
+ * unsubscribed; subscribers leaving before the batch is sent are simply dropped from it.
+ *
+ * {@link #close()} releases the timer behind the batch windows.
+ */
+public class MicroBatchingAvailabilityChecker implements AvailabilityChecker, Closeable {
+
+    private final Batcher emailBatcher;
+    private final Batcher usernameBatcher;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+
+    public MicroBatchingAvailabilityChecker(@Nonnull BatchAvailabilityChecker delegate,
+                                            long window, @Nonnull TimeUnit unit, int maxBatchSize) {
+        this(delegate, window, unit, maxBatchSize, Schedulers.computation());
+    }
+
+    public MicroBatchingAvailabilityChecker(@Nonnull final BatchAvailabilityChecker delegate,
+                                            long window, @Nonnull TimeUnit unit, int maxBatchSize,
+                                            @Nonnull Scheduler scheduler) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize should be positive: " + maxBatchSize);
+        }
+
+        long windowMs = unit.toMillis(window);
+        emailBatcher = new Batcher(windowMs, maxBatchSize, scheduler) {
+            @Override
+            Observable<Map<String, ValidationResult<String>>> send(@Nonnull Collection<String> values) {
+                return delegate.isEmailsAvailable(values);
+            }
+        };
+
+        usernameBatcher = new Batcher(windowMs, maxBatchSize, scheduler) {
+            @Override
+            Observable<Map<String, ValidationResult<String>>> send(@Nonnull Collection<String> values) {
+                return delegate.isUsernamesAvailable(values);
+            }
+        };
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull String email) {
+        return emailBatcher.lookup(email);
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull String username) {
+        return usernameBatcher.lookup(username);
+    }
+
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+        return isEmailAvailable(email).toBlocking().single();
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+        return isUsernameAvailable(username).toBlocking().single();
+    }
+
+    /**
+     * Batched calls sent to the delegate.
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Single value lookups that went out as part of a batch.
+     */
+    public long getBatchedLookupCount() {
+        return lookups.get();
+    }
+
+    /**
+     * Stops the batch window timers and fails the lookups still waiting for their batch to be
+     * sent. Batches already sent are answered as usual; later lookups fail right away.
+     */
+    @Override
+    public void close() {
+        emailBatcher.close();
+        usernameBatcher.close();
+    }
+
+    private abstract class Batcher {
+
+        private final long windowMs;
+        private final int maxBatchSize;
+        private final Scheduler.Worker worker;
+
+        private Batch pending;
+        private Subscription flushTimer;
+        private boolean closed;
+
+        Batcher(long windowMs, int maxBatchSize, @Nonnull Scheduler scheduler) {
+            this.windowMs = windowMs;
+            this.maxBatchSize = maxBatchSize;
+            this.worker = scheduler.createWorker();
+        }
+
+        abstract Observable<Map<String, ValidationResult<String>>> send(@Nonnull Collection<String> values);
+
+        Observable<ValidationResult<String>> lookup(@Nonnull final String value) {
+            return Observable.create(new Observable.OnSubscribe<ValidationResult<String>>() {
+                @Override
+                public void call(Subscriber<? super ValidationResult<String>> subscriber) {
+                    final Waiter waiter = new Waiter(value, subscriber);
+                    final Batch batch;
+                    Batch full = null;
+                    synchronized (Batcher.this) {
+                        if (closed) {
+                            batch = null;
+                        } else {
+                            if (pending == null) {
+                                pending = new Batch();
+                                flushTimer = worker.schedule(new Action0() {
+                                    @Override
+                                    public void call() {
+                                        flush();
+                                    }
+                                }, windowMs, TimeUnit.MILLISECONDS);
+                            }
+
+                            batch = pending;
+                            batch.add(waiter);
+                            if (batch.values.size() >= maxBatchSize) {
+                                full = takePending();
+                            }
+                        }
+                    }
+
+                    if (batch == null) {
+                        subscriber.onError(new IOException("MicroBatchingAvailabilityChecker closed"));
+                        return;
+                    }
+
+                    subscriber.add(Subscriptions.create(new Action0() {
+                        @Override
+                        public void call() {
+                            batch.remove(waiter);
+                        }
+                    }));
+
+                    if (full != null) {
+                        dispatch(full);
+                    }
+                }
+            });
+        }
+
+        private void flush() {
+            Batch batch;
+            synchronized (this) {
+                batch = takePending();
+            }
+
+            if (batch != null) {
+                dispatch(batch);
+            }
+        }
+
+        void close() {
+            Batch batch;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+
+                closed = true;
+                batch = takePending();
+            }
+
+            worker.unsubscribe();
+            if (batch != null) {
+                batch.fail(new IOException("MicroBatchingAvailabilityChecker closed"));
+            }
+        }
+
+        // Called with the lock held.
+        @Nullable
+        private Batch takePending() {
+            Batch batch = pending;
+            pending = null;
+            if (flushTimer != null) {
+                flushTimer.unsubscribe();
+                flushTimer = null;
+            }
+
+            return batch;
+        }
+
+        private void dispatch(@Nonnull final Batch batch) {
+            List<String> values = batch.start();
+            if (values == null) {
+                // Everybody left before the batch went out.
+                return;
+            }
+
+            batches.incrementAndGet();
+            lookups.addAndGet(values.size());
+            batch.setCall(send(values).subscribe(new Subscriber<Map<String, ValidationResult<String>>>() {
+                @Override
+                public void onCompleted() {
+                    batch.complete(null);
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    batch.fail(e);
+                }
+
+                @Override
+                public void onNext(Map<String, ValidationResult<String>> results) {
+                    batch.complete(results);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Waiters of one batched call. Once the call is sent, the batch cancels it when the last
+     * waiter unsubscribes.
+     */
+    private static class Batch {
+
+        final Set<String> values = new LinkedHashSet<>();
+        private final List<Waiter> waiters = new ArrayList<>();
+        private boolean started;
+        private boolean done;
+        private Subscription call;
+
+        synchronized void add(@Nonnull Waiter waiter) {
+            waiters.add(waiter);
+            values.add(waiter.value);
+        }
+
+        void remove(@Nonnull Waiter waiter) {
+            Subscription toCancel = null;
+            synchronized (this) {
+                if (!waiters.remove(waiter)) {
+                    return;
+                }
+
+                if (!started) {
+                    values.clear();
+                    for (Waiter w : waiters) {
+                        values.add(w.value);
+                    }
+                } else if (waiters.isEmpty() && !done) {
+                    toCancel = call;
+                }
+            }
+
+            if (toCancel != null) {
+                toCancel.unsubscribe();
+            }
+        }
+
+        @Nullable
+        synchronized List<String> start() {
+            started = true;
+            if (waiters.isEmpty()) {
+                done = true;
+                return null;
+            }
+
+            return new ArrayList<>(values);
+        }
+
+        void setCall(@Nonnull Subscription subscription) {
+            boolean cancel;
+            synchronized (this) {
+                call = subscription;
+                cancel = waiters.isEmpty() && !done;
+            }
+
+            if (cancel) {
+                subscription.unsubscribe();
+            }
+        }
+
+        // Called with the results on onNext, and with null on onCompleted for anyone still waiting.
+        void complete(@Nullable Map<String, ValidationResult<String>> results) {
+            for (Waiter waiter : finish()) {
+                ValidationResult<String> result = results == null ? null : results.get(waiter.value);
+                if (result == null) {
+                    waiter.subscriber.onError(new IllegalStateException("No result for " + waiter.value));
+                    continue;
+                }
+
+                waiter.subscriber.onNext(result);
+                waiter.subscriber.onCompleted();
+            }
+        }
+
+        void fail(@Nonnull Throwable e) {
+            for (Waiter waiter : finish()) {
+                waiter.subscriber.onError(e);
+            }
+        }
+
+        private synchronized List<Waiter> finish() {
+            if (done) {
+                return new ArrayList<>();
+            }
+
+            done = true;
+            List<Waiter> finished = new ArrayList<>(waiters);
+            waiters.clear();
+            return finished;
+        }
+    }
+
+    private static class Waiter {
+        final String value;
+        final Subscriber<? super ValidationResult<String>> subscriber;
+
+        Waiter(@Nonnull String value, @Nonnull Subscriber<? super ValidationResult<String>> subscriber) {
+            this.value = value;
+            this.subscriber = subscriber;
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package in.elanic.rxformvalidation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+
+/**
+ * {@link AvailabilityChecker} decorator which keeps results in a file, so they survive process
+ * restarts.
+ *
+ * The file is an append-only log of fixed size records: a 64 bit hash of the normalized key
+ * (see {@link AvailabilityKeys}), the expiry time and whether the value was available. No emails
+ * or usernames are written to disk. On open the whole log is read in one go and replayed into a
+ * bounded LRU index, later records winning; a few thousand entries load in about a millisecond.
+ * Every new result goes into the index right away and is appended to the file on a background
+ * worker, one append at a time; once the log holds twice as many records as the index may, it
+ * is rewritten there with only the live entries. Appends still queued at {@link #close()} are
+ * lost, which only costs a cache miss after the next start.
+ *
+ * The constructor reads the file, so open it off the main thread.
+ *
+ * Only plain available/taken answers should reach this class: put it below
+ * {@link ResilientAvailabilityChecker} so "could not verify" results are never persisted.
+ * Taken results come back as {@link ValidationReason#EMAIL_TAKEN} or
+ * {@link ValidationReason#USERNAME_TAKEN}, since reasons are not stored.
+ */
+public class PersistentAvailabilityChecker implements AvailabilityChecker, Closeable {
+
+    static final int MAGIC = 0x41564331; // "AVC1"
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 17;
+
+    private final AvailabilityChecker delegate;
+    private final File file;
+    private final Scheduler clock;
+    private final int maxEntries;
+    private final long positiveTtlMs;
+    private final long negativeTtlMs;
+    // Guarded by this
+    private final LruMap entries;
+    private final long loadTimeNanos;
+    private final Scheduler.Worker writer;
+
+    // Guarded by fileLock, which is taken before this when both are needed
+    private final Object fileLock = new Object();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private long records;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong writeErrors = new AtomicLong();
+
+    public PersistentAvailabilityChecker(@Nonnull AvailabilityChecker delegate, @Nonnull File file,
+                                         int maxEntries, long positiveTtl, long negativeTtl,
+                                         @Nonnull TimeUnit unit) throws IOException {
+        this(delegate, file, maxEntries, positiveTtl, negativeTtl, unit, Schedulers.immediate());
+    }
+
+    /**
+     * @param clock only used for {@link Scheduler#now()}, so tests can pass a TestScheduler.
+     *              Expiry times are stored as absolute times of this clock.
+     */
+    public PersistentAvailabilityChecker(@Nonnull AvailabilityChecker delegate, @Nonnull File file,
+                                         int maxEntries, long positiveTtl, long negativeTtl,
+                                         @Nonnull TimeUnit unit, @Nonnull Scheduler clock) throws IOException {
+        this(delegate, file, maxEntries, positiveTtl, negativeTtl, unit, clock, Schedulers.io());
+    }
+
+    /**
+     * @param writes scheduler whose worker appends to and compacts the file.
+     */
+    public PersistentAvailabilityChecker(@Nonnull AvailabilityChecker delegate, @Nonnull File file,
+                                         int maxEntries, long positiveTtl, long negativeTtl,
+                                         @Nonnull TimeUnit unit, @Nonnull Scheduler clock,
+                                         @Nonnull Scheduler writes) throws IOException {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries should be positive: " + maxEntries);
+        }
+
+        this.delegate = delegate;
+        this.file = file;
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        this.positiveTtlMs = unit.toMillis(positiveTtl);
+        this.negativeTtlMs = unit.toMillis(negativeTtl);
+        this.entries = new LruMap(maxEntries);
+        this.writer = writes.createWorker();
+
+        long start = System.nanoTime();
+        synchronized (fileLock) {
+            load();
+        }
+        this.loadTimeNanos = System.nanoTime() - start;
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull final String email) {
+        return persisted(AvailabilityKeys.email(email), email, ValidationReason.EMAIL_TAKEN, new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                return delegate.isEmailAvailable(email);
+            }
+        });
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull final String username) {
+        return persisted(AvailabilityKeys.username(username), username, ValidationReason.USERNAME_TAKEN, new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                return delegate.isUsernameAvailable(username);
+            }
+        });
+    }
+
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+        long key = hash(AvailabilityKeys.email(email));
+        ValidationResult<String> result = get(key, email, ValidationReason.EMAIL_TAKEN);
+        if (result != null) {
+            return result;
+        }
+
+        result = delegate.isEmailAvailableSync(email);
+        put(key, result);
+        return result;
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+        long key = hash(AvailabilityKeys.username(username));
+        ValidationResult<String> result = get(key, username, ValidationReason.USERNAME_TAKEN);
+        if (result != null) {
+            return result;
+        }
+
+        result = delegate.isUsernameAvailableSync(username);
+        put(key, result);
+        return result;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getCompactionCount() {
+        return compactions.get();
+    }
+
+    /**
+     * Results that could not be appended to the file. They are still kept in memory.
+     */
+    public long getWriteErrorCount() {
+        return writeErrors.get();
+    }
+
+    /**
+     * Time the constructor took to read and replay the file.
+     */
+    public long getLoadTime(@Nonnull TimeUnit unit) {
+        return unit.convert(loadTimeNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Records in the file, including overwritten and expired ones.
+     */
+    public long getRecordCount() {
+        synchronized (fileLock) {
+            return records;
+        }
+    }
+
+    /**
+     * Rewrites the file with only the live entries, in LRU order so a restart keeps the same
+     * eviction order.
+     */
+    public void compact() throws IOException {
+        synchronized (fileLock) {
+            if (channel != null) {
+                rewrite();
+            }
+        }
+    }
+
+    // Called with fileLock held
+    private void rewrite() throws IOException {
+        long now = clock.now();
+        File temp = new File(file.getPath() + ".tmp");
+        RandomAccessFile out = new RandomAccessFile(temp, "rw");
+        long written = 0;
+        try {
+            out.setLength(0);
+            ByteBuffer buffer;
+            synchronized (this) {
+                buffer = ByteBuffer.allocate(HEADER_SIZE + entries.size() * RECORD_SIZE);
+                buffer.putInt(MAGIC).putInt(0);
+                Iterator<Map.Entry<Long, CacheEntry>> iterator = entries.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Long, CacheEntry> entry = iterator.next();
+                    if (entry.getValue().expiresAt <= now) {
+                        iterator.remove();
+                        continue;
+                    }
+
+                    putRecord(buffer, entry.getKey(), entry.getValue());
+                    written++;
+                }
+            }
+
+            buffer.flip();
+            FileChannel outChannel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                outChannel.write(buffer);
+            }
+            outChannel.force(false);
+        } finally {
+            out.close();
+        }
+
+        raf.close();
+        if (!temp.renameTo(file)) {
+            // Some platforms will not rename over an existing file.
+            boolean deleted = file.delete();
+            if (!deleted || !temp.renameTo(file)) {
+                open();
+                if (deleted) {
+                    // The old log is gone and open() created an empty file; give it a header.
+                    reset();
+                }
+                throw new IOException("Could not replace " + file + " with " + temp);
+            }
+        }
+
+        open();
+        records = written;
+        compactions.incrementAndGet();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.unsubscribe();
+        synchronized (fileLock) {
+            if (raf != null) {
+                raf.close();
+                raf = null;
+                channel = null;
+            }
+        }
+    }
+
+    private Observable<ValidationResult<String>> persisted(@Nonnull String normalizedKey, @Nonnull final String data,
+                                                           @Nonnull final ValidationReason takenReason,
+                                                           @Nonnull final Func0<Observable<ValidationResult<String>>> upstream) {
+        final long key = hash(normalizedKey);
+        return Observable.defer(new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                ValidationResult<String> result = get(key, data, takenReason);
+                if (result != null) {
+                    return Observable.just(result);
+                }
+
+                return upstream.call().doOnNext(new Action1<ValidationResult<String>>() {
+                    @Override
+                    public void call(ValidationResult<String> result) {
+                        put(key, result);
+                    }
+                });
+            }
+        });
+    }
+
+    @Nullable
+    private ValidationResult<String> get(long key, @Nonnull String data, @Nonnull ValidationReason takenReason) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= clock.now()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return entry.available ? ValidationResult.success(data) : ValidationResult.failure(takenReason, data);
+    }
+
+    private void put(final long key, @Nonnull ValidationResult<String> result) {
+        long ttl = result.isValid() ? positiveTtlMs : negativeTtlMs;
+        if (ttl <= 0) {
+            return;
+        }
+
+        final CacheEntry entry = new CacheEntry(result.isValid(), clock.now() + ttl);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+
+        writer.schedule(new Action0() {
+            @Override
+            public void call() {
+                append(key, entry);
+            }
+        });
+    }
+
+    private void append(long key, @Nonnull CacheEntry entry) {
+        synchronized (fileLock) {
+            if (channel == null) {
+                return;
+            }
+
+            try {
+                record.clear();
+                putRecord(record, key, entry);
+                record.flip();
+                long position = HEADER_SIZE + records * RECORD_SIZE;
+                while (record.hasRemaining()) {
+                    position += channel.write(record, position);
+                }
+                records++;
+
+                if (records >= 2L * maxEntries) {
+                    rewrite();
+                }
+            } catch (IOException e) {
+                writeErrors.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Reads the whole file with one read and replays it. A file with a foreign header is started
+     * over; a torn record at the end (the process died mid-write) is cut off.
+     */
+    private void load() throws IOException {
+        open();
+        long length = channel.size();
+        if (length < HEADER_SIZE) {
+            reset();
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, Integer.MAX_VALUE));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) > 0) {
+            // Keep reading until the buffer is full.
+        }
+        buffer.flip();
+        if (buffer.getInt() != MAGIC || buffer.getInt() != 0) {
+            reset();
+            return;
+        }
+
+        long now = clock.now();
+        while (buffer.remaining() >= RECORD_SIZE) {
+            long key = buffer.getLong();
+            long expiresAt = buffer.getLong();
+            boolean available = buffer.get() != 0;
+            records++;
+            synchronized (this) {
+                if (expiresAt > now) {
+                    entries.put(key, new CacheEntry(available, expiresAt));
+                } else {
+                    entries.remove(key);
+                }
+            }
+        }
+
+        long used = HEADER_SIZE + records * RECORD_SIZE;
+        if (used < length) {
+            channel.truncate(used);
+        }
+
+        if (records >= 2L * maxEntries) {
+            rewrite();
+        }
+    }
+
+    private void open() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+    }
+
+    private void reset() throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(0).flip();
+        channel.write(header, 0);
+        records = 0;
+    }
+
+    private static void putRecord(@Nonnull ByteBuffer buffer, long key, @Nonnull CacheEntry entry) {
+        buffer.putLong(key).putLong(entry.expiresAt).put((byte) (entry.available ? 1 : 0));
+    }
+
+    /**
+     * 64 bit FNV-1a over the UTF-16 code units of the normalized key, which includes the email or
+     * username prefix. Collisions are not a concern at cache sizes.
+     */
+    static long hash(@Nonnull String normalizedKey) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalizedKey.length(); i++) {
+            char c = normalizedKey.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+            hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    private static class CacheEntry {
+        final boolean available;
+        final long expiresAt;
+
+        CacheEntry(boolean available, long expiresAt) {
+            this.available = available;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class LruMap extends LinkedHashMap<Long, CacheEntry> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxEntries;
+
+        LruMap(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CacheEntry> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
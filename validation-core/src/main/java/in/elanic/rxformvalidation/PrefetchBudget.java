@@ -0,0 +1,97 @@
+package in.elanic.rxformvalidation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Limits speculative remote checks started by {@link RemoteValidation#latestOnly} before the
+ * debounce window is over.
+ *
+ * A prefetch starts once the text has passed the local rule and stayed unchanged for
+ * {@code delay}, and only if fewer than {@code maxInFlight} prefetches are running. Share one
+ * budget between the fields of a form (or the whole app) to bound the extra backend load;
+ * prefetches that are denied just fall back to the normal debounced check.
+ */
+public class PrefetchBudget {
+
+    private final long delayMs;
+    private final int maxInFlight;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong issued = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong wasted = new AtomicLong();
+
+    public PrefetchBudget(long delay, @Nonnull TimeUnit unit, int maxInFlight) {
+        if (delay < 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Need delay >= 0 and maxInFlight > 0");
+        }
+
+        this.delayMs = unit.toMillis(delay);
+        this.maxInFlight = maxInFlight;
+    }
+
+    public long getDelayMs() {
+        return delayMs;
+    }
+
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    public long getIssuedCount() {
+        return issued.get();
+    }
+
+    /**
+     * Prefetches skipped because {@code maxInFlight} were already running.
+     */
+    public long getDeniedCount() {
+        return denied.get();
+    }
+
+    /**
+     * Prefetches whose result (or call in flight) was picked up by the debounced check.
+     */
+    public long getUsedCount() {
+        return used.get();
+    }
+
+    /**
+     * Prefetches cancelled because the text changed before the debounced check needed them.
+     */
+    public long getWastedCount() {
+        return wasted.get();
+    }
+
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) {
+                denied.incrementAndGet();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        issued.incrementAndGet();
+
+        return true;
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void used() {
+        used.incrementAndGet();
+    }
+
+    void wasted() {
+        wasted.incrementAndGet();
+    }
+}
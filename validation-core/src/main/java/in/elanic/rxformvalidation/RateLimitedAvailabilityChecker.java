@@ -0,0 +1,506 @@
+package in.elanic.rxformvalidation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Func0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Caps the lookups a client sends, however fast the user pastes or autofill types.
+ *
+ * A lookup starts when it gets a token from a token bucket (refilled at {@code rate} per
+ * second, holding up to {@code burst}) and fewer than {@code maxInFlight} lookups are running.
+ * Otherwise it waits, and waiting lookups start oldest first as tokens and slots free up. A
+ * lookup whose subscriber leaves while it waits is never sent, so a field which cancels its
+ * stale lookups (as {@link RemoteValidation} does) only ever has its latest one waiting.
+ *
+ * Lookups made through a {@link #forField(String)} view also keep only the latest waiting lookup
+ * per field and kind: a new one supersedes it, and the superseded one gets
+ * {@link ValidationReason#EMAIL_NOT_VERIFIED} or {@link ValidationReason#USERNAME_NOT_VERIFIED}
+ * instead of being sent late. Do not cache those views' results.
+ *
+ * Put this closest to the backend, behind the caches and the coalescing checker, so that only
+ * lookups which really go out use up tokens. Sync lookups block anyway and are passed straight
+ * through. {@link #close()} releases the timer behind waiting lookups.
+ */
+public class RateLimitedAvailabilityChecker implements AvailabilityChecker, Closeable {
+
+    private static final int EMAIL = 0;
+    private static final int USERNAME = 1;
+    private static final ValidationReason[] NOT_VERIFIED = {
+            ValidationReason.EMAIL_NOT_VERIFIED, ValidationReason.USERNAME_NOT_VERIFIED,
+    };
+
+    private final AvailabilityChecker delegate;
+    private final double permitsPerMs;
+    private final double burst;
+    private final int maxInFlight;
+    private final Scheduler scheduler;
+    private final Scheduler.Worker worker;
+
+    // Guarded by this
+    private double tokens;
+    private long refilledAtMs;
+    private int inFlight;
+    // By slot, oldest first. A field view's lookups share a slot, other lookups have their own.
+    private final Map<Object, Lookup> waiting = new LinkedHashMap<>();
+    private boolean drainScheduled;
+    private int peakInFlight;
+    private boolean closed;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong cancelled = new AtomicLong();
+    private final LatencyHistogram throttleDelay = new LatencyHistogram();
+
+    private RateLimitedAvailabilityChecker(@Nonnull Builder builder) {
+        this.delegate = builder.delegate;
+        this.permitsPerMs = builder.permitsPerSecond / 1000;
+        this.burst = builder.burst;
+        this.maxInFlight = builder.maxInFlight;
+        this.scheduler = builder.scheduler;
+        this.worker = scheduler.createWorker();
+        this.tokens = burst;
+        this.refilledAtMs = scheduler.now();
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull String email) {
+        return email(null, email);
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull String username) {
+        return username(null, username);
+    }
+
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+        return delegate.isEmailAvailableSync(email);
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+        return delegate.isUsernameAvailableSync(username);
+    }
+
+    /**
+     * A view whose waiting lookups supersede each other: at most one email and one username
+     * lookup of {@code field} wait at any time. The view shares the token bucket and the
+     * in-flight cap with every other lookup.
+     */
+    @Nonnull
+    public AvailabilityChecker forField(@Nonnull String field) {
+        return new FieldView(field);
+    }
+
+    /**
+     * Fails the lookups still waiting and stops the timer which starts them. Lookups already
+     * sent are answered as usual; later lookups fail right away.
+     */
+    @Override
+    public void close() {
+        List<Lookup> abandoned;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            abandoned = new ArrayList<>(waiting.values());
+            waiting.clear();
+        }
+
+        worker.unsubscribe();
+        for (Lookup lookup : abandoned) {
+            lookup.subscriber.onError(new IOException("RateLimitedAvailabilityChecker closed"));
+        }
+    }
+
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    /**
+     * Lookups sent to the delegate.
+     */
+    public long getStartedCount() {
+        return started.get();
+    }
+
+    /**
+     * Lookups which had to wait for a token or a free slot.
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * Waiting lookups superseded by a newer one of the same field and kind, never sent.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Waiting lookups their subscriber left before they were sent.
+     */
+    public long getCancelledCount() {
+        return cancelled.get();
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    public synchronized int getPeakInFlightCount() {
+        return peakInFlight;
+    }
+
+    public synchronized int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * How long throttled lookups waited before they were sent.
+     */
+    public LatencyHistogram.Snapshot getThrottleDelay() {
+        return throttleDelay.snapshot();
+    }
+
+    private Observable<ValidationResult<String>> email(@Nullable Object slot, @Nonnull final String email) {
+        return limited(slot, EMAIL, email, new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                return delegate.isEmailAvailable(email);
+            }
+        });
+    }
+
+    private Observable<ValidationResult<String>> username(@Nullable Object slot, @Nonnull final String username) {
+        return limited(slot, USERNAME, username, new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                return delegate.isUsernameAvailable(username);
+            }
+        });
+    }
+
+    private Observable<ValidationResult<String>> limited(@Nullable final Object slot, final int kind,
+                                                         @Nonnull final String value,
+                                                         @Nonnull final Func0<Observable<ValidationResult<String>>> upstream) {
+        return Observable.create(new Observable.OnSubscribe<ValidationResult<String>>() {
+            @Override
+            public void call(Subscriber<? super ValidationResult<String>> subscriber) {
+                lookups.incrementAndGet();
+                final Lookup lookup = new Lookup(slot, kind, value, upstream, subscriber);
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        lookup.cancel();
+                    }
+                }));
+                submit(lookup);
+            }
+        });
+    }
+
+    private void submit(@Nonnull Lookup lookup) {
+        Lookup superseded = null;
+        boolean startNow = false;
+        boolean rejected;
+        synchronized (this) {
+            rejected = closed;
+            if (!rejected) {
+                refill();
+                lookup.submittedAtMs = scheduler.now();
+                // Removed first, so the new lookup waits behind the ones already there
+                superseded = waiting.remove(lookup.slot);
+                startNow = waiting.isEmpty() && tryAcquire();
+                if (!startNow) {
+                    waiting.put(lookup.slot, lookup);
+                    throttled.incrementAndGet();
+                }
+            }
+        }
+
+        if (rejected) {
+            lookup.subscriber.onError(new IOException("RateLimitedAvailabilityChecker closed"));
+            return;
+        }
+
+        if (superseded != null) {
+            dropped.incrementAndGet();
+            Subscriber<? super ValidationResult<String>> subscriber = superseded.subscriber;
+            subscriber.onNext(ValidationResult.failure(NOT_VERIFIED[superseded.kind], superseded.value));
+            subscriber.onCompleted();
+        }
+
+        if (startNow) {
+            lookup.start();
+        } else {
+            drain();
+        }
+    }
+
+    // Starts waiting lookups, oldest first, while there are tokens and slots.
+    private void drain() {
+        while (true) {
+            Lookup next;
+            synchronized (this) {
+                if (waiting.isEmpty()) {
+                    return;
+                }
+
+                Iterator<Lookup> oldest = waiting.values().iterator();
+                next = oldest.next();
+
+                refill();
+                if (inFlight >= maxInFlight) {
+                    // A finishing lookup drains again
+                    return;
+                }
+
+                if (!tryAcquire()) {
+                    scheduleDrain((long) Math.ceil((1 - tokens) / permitsPerMs));
+                    return;
+                }
+
+                oldest.remove();
+                throttleDelay.recordMillis(scheduler.now() - next.submittedAtMs);
+            }
+
+            next.start();
+        }
+    }
+
+    // Called with the lock held
+    private boolean tryAcquire() {
+        if (inFlight >= maxInFlight || tokens < 1) {
+            return false;
+        }
+
+        tokens--;
+        inFlight++;
+        peakInFlight = Math.max(peakInFlight, inFlight);
+        return true;
+    }
+
+    // Called with the lock held
+    private void refill() {
+        long now = scheduler.now();
+        if (now > refilledAtMs) {
+            tokens = Math.min(burst, tokens + (now - refilledAtMs) * permitsPerMs);
+            refilledAtMs = now;
+        }
+    }
+
+    // Called with the lock held
+    private void scheduleDrain(long delayMs) {
+        if (drainScheduled) {
+            return;
+        }
+
+        drainScheduled = true;
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                synchronized (RateLimitedAvailabilityChecker.this) {
+                    drainScheduled = false;
+                }
+                drain();
+            }
+        }, Math.max(1, delayMs), TimeUnit.MILLISECONDS);
+    }
+
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    private class FieldView implements AvailabilityChecker {
+
+        private final String field;
+        private final Object emailSlot = new Object();
+        private final Object usernameSlot = new Object();
+
+        FieldView(@Nonnull String field) {
+            this.field = field;
+        }
+
+        @Override
+        public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull String email) {
+            return email(emailSlot, email);
+        }
+
+        @Override
+        public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull String username) {
+            return username(usernameSlot, username);
+        }
+
+        @Override
+        public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+            return delegate.isEmailAvailableSync(email);
+        }
+
+        @Override
+        public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+            return delegate.isUsernameAvailableSync(username);
+        }
+
+        @Override
+        public String toString() {
+            return "RateLimitedAvailabilityChecker.FieldView(" + field + ")";
+        }
+    }
+
+    private class Lookup {
+
+        // What a newer lookup supersedes: the field view's slot, or the lookup itself
+        final Object slot;
+        final int kind;
+        final String value;
+        final Func0<Observable<ValidationResult<String>>> upstream;
+        final Subscriber<? super ValidationResult<String>> subscriber;
+        long submittedAtMs;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile Subscription call;
+        private volatile boolean cancelled;
+
+        Lookup(@Nullable Object slot, int kind, @Nonnull String value,
+               @Nonnull Func0<Observable<ValidationResult<String>>> upstream,
+               @Nonnull Subscriber<? super ValidationResult<String>> subscriber) {
+            this.slot = slot != null ? slot : this;
+            this.kind = kind;
+            this.value = value;
+            this.upstream = upstream;
+            this.subscriber = subscriber;
+        }
+
+        // Holds a token and an in-flight slot.
+        void start() {
+            started.incrementAndGet();
+            call = upstream.call().unsafeSubscribe(new Subscriber<ValidationResult<String>>() {
+                @Override
+                public void onNext(ValidationResult<String> result) {
+                    subscriber.onNext(result);
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    finish();
+                    subscriber.onError(e);
+                }
+
+                @Override
+                public void onCompleted() {
+                    finish();
+                    subscriber.onCompleted();
+                }
+            });
+
+            if (cancelled) {
+                call.unsubscribe();
+                finish();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            boolean wasWaiting;
+            synchronized (RateLimitedAvailabilityChecker.this) {
+                wasWaiting = waiting.get(slot) == this;
+                if (wasWaiting) {
+                    waiting.remove(slot);
+                }
+            }
+
+            if (wasWaiting) {
+                RateLimitedAvailabilityChecker.this.cancelled.incrementAndGet();
+                return;
+            }
+
+            Subscription running = call;
+            if (running != null) {
+                running.unsubscribe();
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private final AvailabilityChecker delegate;
+        private double permitsPerSecond = 5;
+        private double burst = 5;
+        private int maxInFlight = 4;
+        private Scheduler scheduler = Schedulers.computation();
+
+        public Builder(@Nonnull AvailabilityChecker delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Lookups per second on average, and how many may go out at once after a quiet period.
+         */
+        public Builder rate(double permitsPerSecond, int burst) {
+            if (permitsPerSecond <= 0 || burst < 1) {
+                throw new IllegalArgumentException("rate must be positive and burst at least 1");
+            }
+
+            this.permitsPerSecond = permitsPerSecond;
+            this.burst = burst;
+            return this;
+        }
+
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new IllegalArgumentException("maxInFlight must be positive");
+            }
+
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Clock for the token bucket and timer for waiting lookups.
+         */
+        public Builder scheduler(@Nonnull Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public RateLimitedAvailabilityChecker build() {
+            return new RateLimitedAvailabilityChecker(this);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package in.elanic.rxformvalidation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.observables.ConnectableObservable;
+
+/**
+ * Text to {@link ValidationResult} pipelines for fields with a local rule and a remote check.
+ */
+public class RemoteValidation {
+
+    private RemoteValidation() {
+    }
+
+    /**
+     * Latest-only validation of a text stream.
+     *
+     * The local rule runs on every keystroke and its failures are emitted right away. Text which
+     * passes it has to stay unchanged for the adaptive window before the remote check starts.
+     * Any new text, even one that is still inside the window, immediately cancels the pending
+     * window or the in-flight remote call, so only results for the current text are ever
+     * emitted and they cannot arrive out of order.
+     *
+     * The remote check's latency is fed back into the policy.
+     */
+    public static Observable.Transformer<String, ValidationResult<String>> latestOnly(
+            @Nonnull Func1<String, ValidationResult<String>> localRule,
+            @Nonnull Func1<String, Observable<ValidationResult<String>>> remoteCheck,
+            @Nonnull DebouncePolicy policy, @Nonnull Scheduler scheduler) {
+        return latestOnly(localRule, remoteCheck, policy, scheduler, null, null);
+    }
+
+    /**
+     * Same as {@link #latestOnly(Func1, Func1, DebouncePolicy, Scheduler)}, and records stage
+     * latencies and remote call counters for the field in the given metrics.
+     */
+    public static Observable.Transformer<String, ValidationResult<String>> latestOnly(
+            @Nonnull Func1<String, ValidationResult<String>> localRule,
+            @Nonnull Func1<String, Observable<ValidationResult<String>>> remoteCheck,
+            @Nonnull DebouncePolicy policy, @Nonnull Scheduler scheduler,
+            @Nullable ValidationMetrics metrics, @Nullable String field) {
+        return latestOnly(localRule, remoteCheck, policy, scheduler, metrics, field, null);
+    }
+
+    /**
+     * Same as {@link #latestOnly(Func1, Func1, DebouncePolicy, Scheduler, ValidationMetrics, String)},
+     * and speculatively starts the remote check before the window is over when the budget
+     * allows it.
+     *
+     * The prefetch starts once the text has been stable for the budget's delay. When the window
+     * ends, the debounced check takes over the prefetch, either its result or the call still in
+     * flight, instead of calling the backend again. Like the window, a prefetch is cancelled as
+     * soon as the text changes.
+     */
+    public static Observable.Transformer<String, ValidationResult<String>> latestOnly(
+            @Nonnull final Func1<String, ValidationResult<String>> localRule,
+            @Nonnull final Func1<String, Observable<ValidationResult<String>>> remoteCheck,
+            @Nonnull final DebouncePolicy policy, @Nonnull final Scheduler scheduler,
+            @Nullable final ValidationMetrics metrics, @Nullable final String field,
+            @Nullable final PrefetchBudget prefetchBudget) {
+
+        return new Observable.Transformer<String, ValidationResult<String>>() {
+            @Override
+            public Observable<ValidationResult<String>> call(Observable<String> text) {
+                return text.switchMap(new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        final long keystrokeMs = scheduler.now();
+                        policy.recordKeystroke(keystrokeMs);
+
+                        long start = System.nanoTime();
+                        final ValidationResult<String> result = localRule.call(s);
+                        if (metrics != null) {
+                            metrics.histogram(field, ValidationMetrics.Stage.LOCAL_RULE)
+                                    .recordNanos(System.nanoTime() - start);
+                        }
+
+                        if (!result.isValid()) {
+                            return Observable.just(result);
+                        }
+
+                        long windowMs = policy.getWindowMs();
+                        Prefetch candidate = null;
+                        if (prefetchBudget != null && prefetchBudget.getDelayMs() < windowMs) {
+                            candidate = new Prefetch(prefetchBudget,
+                                    new RemoteCall(policy, scheduler, metrics, field)
+                                            .track(remoteCheck, result.getData()));
+                        }
+                        final Prefetch prefetch = candidate;
+
+                        // switchMap unsubscribes from this as soon as the text changes, which
+                        // cancels the timer (our debounce) or the remote call behind it.
+                        Observable<ValidationResult<String>> debounced = Observable
+                                .timer(windowMs, TimeUnit.MILLISECONDS, scheduler)
+                                .flatMap(new Func1<Long, Observable<ValidationResult<String>>>() {
+                                    @Override
+                                    public Observable<ValidationResult<String>> call(Long tick) {
+                                        if (metrics != null) {
+                                            metrics.histogram(field, ValidationMetrics.Stage.DEBOUNCE)
+                                                    .recordMillis(scheduler.now() - keystrokeMs);
+                                        }
+
+                                        Observable<ValidationResult<String>> prefetched =
+                                                prefetch != null ? prefetch.take() : null;
+                                        if (prefetched != null) {
+                                            return prefetched;
+                                        }
+
+                                        return new RemoteCall(policy, scheduler, metrics, field)
+                                                .track(remoteCheck, result.getData());
+                                    }
+                                });
+
+                        if (prefetch == null) {
+                            return debounced;
+                        }
+
+                        Observable<ValidationResult<String>> early = Observable
+                                .timer(prefetchBudget.getDelayMs(), TimeUnit.MILLISECONDS, scheduler)
+                                .flatMap(new Func1<Long, Observable<ValidationResult<String>>>() {
+                                    @Override
+                                    public Observable<ValidationResult<String>> call(Long tick) {
+                                        prefetch.start();
+                                        return Observable.empty();
+                                    }
+                                });
+
+                        return Observable.merge(early, debounced).doOnUnsubscribe(new Action0() {
+                            @Override
+                            public void call() {
+                                prefetch.cancel();
+                            }
+                        });
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Reports one remote call: its latency goes to the policy, and to the metrics together with
+     * whether it was issued, cancelled before it answered, or answered after being cancelled.
+     */
+    private static class RemoteCall {
+
+        private final DebouncePolicy policy;
+        private final Scheduler scheduler;
+        private final ValidationMetrics metrics;
+        private final String field;
+
+        private final AtomicBoolean terminated = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile long startMs;
+
+        RemoteCall(@Nonnull DebouncePolicy policy, @Nonnull Scheduler scheduler,
+                   @Nullable ValidationMetrics metrics, @Nullable String field) {
+            this.policy = policy;
+            this.scheduler = scheduler;
+            this.metrics = metrics;
+            this.field = field;
+        }
+
+        /**
+         * The remote check for the value, called lazily on subscription.
+         */
+        Observable<ValidationResult<String>> track(
+                @Nonnull final Func1<String, Observable<ValidationResult<String>>> remoteCheck,
+                @Nonnull final String value) {
+            return Observable.defer(new Func0<Observable<ValidationResult<String>>>() {
+                @Override
+                public Observable<ValidationResult<String>> call() {
+                    return remoteCheck.call(value);
+                }
+            }).doOnSubscribe(new Action0() {
+                @Override
+                public void call() {
+                    startMs = scheduler.now();
+                    if (metrics != null) {
+                        metrics.remoteCallIssued(field);
+                    }
+                }
+            }).doOnNext(new Action1<ValidationResult<String>>() {
+                @Override
+                public void call(ValidationResult<String> result) {
+                    if (cancelled.get()) {
+                        // switchMap drops it, we only count it.
+                        if (metrics != null) {
+                            metrics.staleResultDropped(field);
+                        }
+                        return;
+                    }
+
+                    long latencyMs = scheduler.now() - startMs;
+                    policy.recordRemoteLatency(latencyMs);
+                    if (metrics != null) {
+                        metrics.histogram(field, ValidationMetrics.Stage.REMOTE_CHECK).recordMillis(latencyMs);
+                    }
+                }
+            }).doOnTerminate(new Action0() {
+                @Override
+                public void call() {
+                    terminated.set(true);
+                }
+            }).doOnUnsubscribe(new Action0() {
+                @Override
+                public void call() {
+                    if (!terminated.get() && cancelled.compareAndSet(false, true) && metrics != null) {
+                        metrics.remoteCallCancelled(field);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * A remote call started ahead of the debounced check. It is replayed, so the debounced check
+     * gets the result even if it already arrived, and it holds a slot of the budget until it
+     * terminates or is cancelled.
+     */
+    private static class Prefetch {
+
+        private final PrefetchBudget budget;
+        private final ConnectableObservable<ValidationResult<String>> call;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        // Guarded by this
+        private Subscription connection;
+        private boolean terminated;
+        private boolean taken;
+
+        Prefetch(@Nonnull PrefetchBudget budget, @Nonnull Observable<ValidationResult<String>> remote) {
+            this.budget = budget;
+            this.call = remote.doOnTerminate(new Action0() {
+                @Override
+                public void call() {
+                    synchronized (Prefetch.this) {
+                        terminated = true;
+                    }
+                    release();
+                }
+            }).replay(1);
+        }
+
+        synchronized void start() {
+            if (connection == null && budget.tryAcquire()) {
+                connection = call.connect();
+            }
+        }
+
+        /**
+         * The prefetched call for the debounced check, or null if it never started.
+         */
+        @Nullable
+        synchronized Observable<ValidationResult<String>> take() {
+            if (connection == null) {
+                return null;
+            }
+
+            taken = true;
+            budget.used();
+
+            return call;
+        }
+
+        void cancel() {
+            Subscription toCancel;
+            synchronized (this) {
+                toCancel = connection;
+                if (toCancel == null) {
+                    return;
+                }
+
+                if (!terminated && !taken) {
+                    budget.wasted();
+                }
+            }
+
+            toCancel.unsubscribe();
+            release();
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                budget.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package in.elanic.rxformvalidation;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.functions.Func0;
+import rx.functions.Func1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Keeps availability checks bounded when the backend is slow or failing.
+ *
+ * Every attempt has a timeout. Failed attempts are retried with exponential backoff and jitter.
+ * Optionally a second, hedged request is sent when the first one is slower than the p95 of
+ * recent answers, and whichever answers first wins. A check that still fails never reaches the
+ * subscriber as an error; it becomes a "could not verify" failure, so the form stays usable.
+ *
+ * After {@code failureThreshold} failed checks in a row the circuit breaker opens and checks
+ * return "could not verify" right away without calling the backend. After {@code openDuration}
+ * one trial check is let through: if it succeeds the breaker closes, otherwise it opens again.
+ *
+ * Put this in front of a {@link CachingAvailabilityChecker}, not behind it: "could not verify"
+ * is a failed ValidationResult and would otherwise be cached like a taken value.
+ */
+public class ResilientAvailabilityChecker implements AvailabilityChecker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    // Below this many answers the p95 is too noisy to hedge on.
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final double HEDGE_PERCENTILE = 95;
+
+    private final AvailabilityChecker delegate;
+    private final long timeoutMs;
+    private final int maxRetries;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final boolean hedging;
+    private final long minHedgeDelayMs;
+    private final int failureThreshold;
+    private final long openMs;
+    private final Scheduler scheduler;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    // Guarded by this
+    private final Random random;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMs;
+    private boolean trialInFlight;
+
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong attempts = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong unverified = new AtomicLong();
+    private final AtomicLong shortCircuits = new AtomicLong();
+    private final AtomicLong breakerOpenings = new AtomicLong();
+
+    private ResilientAvailabilityChecker(@Nonnull Builder builder) {
+        this.delegate = builder.delegate;
+        this.timeoutMs = builder.timeoutMs;
+        this.maxRetries = builder.maxRetries;
+        this.initialBackoffMs = builder.initialBackoffMs;
+        this.maxBackoffMs = builder.maxBackoffMs;
+        this.hedging = builder.hedging;
+        this.minHedgeDelayMs = builder.minHedgeDelayMs;
+        this.failureThreshold = builder.failureThreshold;
+        this.openMs = builder.openMs;
+        this.scheduler = builder.scheduler;
+        this.random = builder.random;
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull String email) {
+        return check(email, ValidationReason.EMAIL_NOT_VERIFIED, new Func1<String, Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call(String value) {
+                return delegate.isEmailAvailable(value);
+            }
+        });
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull String username) {
+        return check(username, ValidationReason.USERNAME_NOT_VERIFIED, new Func1<String, Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call(String value) {
+                return delegate.isUsernameAvailable(value);
+            }
+        });
+    }
+
+    /**
+     * Goes through the circuit breaker, but without timeout, retries or hedging: the delegate's
+     * blocking call cannot be interrupted.
+     */
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+        return checkSync(email, ValidationReason.EMAIL_NOT_VERIFIED, true);
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+        return checkSync(username, ValidationReason.USERNAME_NOT_VERIFIED, false);
+    }
+
+    public synchronized State getState() {
+        return currentState();
+    }
+
+    public long getCheckCount() {
+        return checks.get();
+    }
+
+    /**
+     * Requests sent to the delegate, including retries and hedges.
+     */
+    public long getAttemptCount() {
+        return attempts.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    public long getHedgeCount() {
+        return hedges.get();
+    }
+
+    /**
+     * Hedged requests that answered before the request they were hedging.
+     */
+    public long getHedgeWinCount() {
+        return hedgeWins.get();
+    }
+
+    /**
+     * Checks that gave up after their retries and answered "could not verify".
+     */
+    public long getUnverifiedCount() {
+        return unverified.get();
+    }
+
+    /**
+     * Checks answered "could not verify" by the open breaker, without calling the delegate.
+     */
+    public long getShortCircuitCount() {
+        return shortCircuits.get();
+    }
+
+    public long getBreakerOpenCount() {
+        return breakerOpenings.get();
+    }
+
+    /**
+     * The delay after which a hedged request is sent: the p95 of recent answers, but at least
+     * the configured minimum.
+     */
+    public long getHedgeDelayMs() {
+        if (latency.getCount() < MIN_HEDGE_SAMPLES) {
+            return Math.max(minHedgeDelayMs, timeoutMs / 2);
+        }
+
+        return Math.max(minHedgeDelayMs, latency.snapshot().getPercentile(HEDGE_PERCENTILE) / 1000);
+    }
+
+    private Observable<ValidationResult<String>> check(@Nonnull final String value,
+                                                       @Nonnull final ValidationReason notVerified,
+                                                       @Nonnull final Func1<String, Observable<ValidationResult<String>>> call) {
+        return Observable.defer(new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                checks.incrementAndGet();
+                final boolean trial;
+                synchronized (ResilientAvailabilityChecker.this) {
+                    State current = currentState();
+                    if (current == State.OPEN || (current == State.HALF_OPEN && trialInFlight)) {
+                        shortCircuits.incrementAndGet();
+                        return Observable.just(ValidationResult.failure(notVerified, value));
+                    }
+
+                    trial = current == State.HALF_OPEN;
+                    if (trial) {
+                        trialInFlight = true;
+                    }
+                }
+
+                final AtomicBoolean terminated = new AtomicBoolean();
+                return attempt(value, call)
+                        .retryWhen(new Backoff())
+                        .doOnNext(new Action1<ValidationResult<String>>() {
+                            @Override
+                            public void call(ValidationResult<String> result) {
+                                terminated.set(true);
+                                onSuccess();
+                            }
+                        })
+                        .onErrorReturn(new Func1<Throwable, ValidationResult<String>>() {
+                            @Override
+                            public ValidationResult<String> call(Throwable throwable) {
+                                terminated.set(true);
+                                unverified.incrementAndGet();
+                                onFailure();
+
+                                return ValidationResult.failure(notVerified, value);
+                            }
+                        })
+                        .doOnUnsubscribe(new Action0() {
+                            @Override
+                            public void call() {
+                                // A trial the user typed past says nothing about the backend, let
+                                // the next check try again.
+                                if (trial && !terminated.get()) {
+                                    synchronized (ResilientAvailabilityChecker.this) {
+                                        trialInFlight = false;
+                                    }
+                                }
+                            }
+                        });
+            }
+        });
+    }
+
+    /**
+     * One attempt: the request with its timeout, raced against a hedged copy if enabled.
+     */
+    private Observable<ValidationResult<String>> attempt(@Nonnull final String value,
+                                                         @Nonnull final Func1<String, Observable<ValidationResult<String>>> call) {
+        Observable<ValidationResult<String>> primary = timed(value, call);
+        if (!hedging) {
+            return primary;
+        }
+
+        Observable<ValidationResult<String>> hedge = Observable.defer(new Func0<Observable<Long>>() {
+            @Override
+            public Observable<Long> call() {
+                return Observable.timer(getHedgeDelayMs(), TimeUnit.MILLISECONDS, scheduler);
+            }
+        }).flatMap(new Func1<Long, Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call(Long tick) {
+                hedges.incrementAndGet();
+                return timed(value, call).doOnNext(new Action1<ValidationResult<String>>() {
+                    @Override
+                    public void call(ValidationResult<String> result) {
+                        hedgeWins.incrementAndGet();
+                    }
+                });
+            }
+        });
+
+        // amb sticks with whichever answers (or fails) first and unsubscribes the other one,
+        // which also cancels the hedge timer when the first request is fast enough.
+        return Observable.amb(primary, hedge);
+    }
+
+    private Observable<ValidationResult<String>> timed(@Nonnull final String value,
+                                                       @Nonnull final Func1<String, Observable<ValidationResult<String>>> call) {
+        return Observable.defer(new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                attempts.incrementAndGet();
+                final long startMs = scheduler.now();
+                return call.call(value)
+                        .timeout(timeoutMs, TimeUnit.MILLISECONDS, scheduler)
+                        .doOnNext(new Action1<ValidationResult<String>>() {
+                            @Override
+                            public void call(ValidationResult<String> result) {
+                                latency.recordMillis(scheduler.now() - startMs);
+                            }
+                        })
+                        .doOnError(new Action1<Throwable>() {
+                            @Override
+                            public void call(Throwable throwable) {
+                                if (throwable instanceof TimeoutException) {
+                                    timeouts.incrementAndGet();
+                                }
+                            }
+                        });
+            }
+        });
+    }
+
+    private ValidationResult<String> checkSync(@Nonnull String value, @Nonnull ValidationReason notVerified,
+                                               boolean email) {
+        checks.incrementAndGet();
+        synchronized (this) {
+            State current = currentState();
+            if (current == State.OPEN || (current == State.HALF_OPEN && trialInFlight)) {
+                shortCircuits.incrementAndGet();
+                return ValidationResult.failure(notVerified, value);
+            }
+
+            if (current == State.HALF_OPEN) {
+                trialInFlight = true;
+            }
+        }
+
+        attempts.incrementAndGet();
+        ValidationResult<String> result;
+        try {
+            result = email ? delegate.isEmailAvailableSync(value) : delegate.isUsernameAvailableSync(value);
+        } catch (RuntimeException e) {
+            unverified.incrementAndGet();
+            onFailure();
+            return ValidationResult.failure(notVerified, value);
+        }
+
+        onSuccess();
+
+        return result;
+    }
+
+    // Moves an expired OPEN breaker to HALF_OPEN. Called with the lock held.
+    private State currentState() {
+        if (state == State.OPEN && scheduler.now() - openedAtMs >= openMs) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+
+        return state;
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    private synchronized void onFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAtMs = scheduler.now();
+            breakerOpenings.incrementAndGet();
+        }
+    }
+
+    private synchronized long backoffMs(int retry) {
+        // Equal jitter: half of the exponential delay, plus a random part of the other half.
+        long exponential = Math.min(maxBackoffMs, initialBackoffMs << Math.min(retry - 1, 20));
+        long half = exponential / 2;
+
+        return half + (long) (random.nextDouble() * (exponential - half));
+    }
+
+    /**
+     * Retries up to maxRetries times after a backoff, then passes the last error on.
+     */
+    private class Backoff implements Func1<Observable<? extends Throwable>, Observable<?>> {
+
+        @Override
+        public Observable<?> call(Observable<? extends Throwable> errors) {
+            return errors.flatMap(new Func1<Throwable, Observable<?>>() {
+                private int retry;
+
+                @Override
+                public Observable<?> call(Throwable throwable) {
+                    if (++retry > maxRetries) {
+                        return Observable.error(throwable);
+                    }
+
+                    retries.incrementAndGet();
+                    return Observable.timer(backoffMs(retry), TimeUnit.MILLISECONDS, scheduler);
+                }
+            });
+        }
+    }
+
+    public static class Builder {
+
+        private final AvailabilityChecker delegate;
+        private long timeoutMs = 5000;
+        private int maxRetries = 2;
+        private long initialBackoffMs = 200;
+        private long maxBackoffMs = 2000;
+        private boolean hedging;
+        private long minHedgeDelayMs = 100;
+        private int failureThreshold = 5;
+        private long openMs = 30000;
+        private Scheduler scheduler = Schedulers.computation();
+        private Random random = new Random();
+
+        public Builder(@Nonnull AvailabilityChecker delegate) {
+            this.delegate = delegate;
+        }
+
+        public Builder timeout(long timeout, @Nonnull TimeUnit unit) {
+            this.timeoutMs = unit.toMillis(timeout);
+            return this;
+        }
+
+        /**
+         * Retries after the first failed attempt, with a backoff that doubles from
+         * {@code initialBackoff} up to {@code maxBackoff}.
+         */
+        public Builder retries(int maxRetries, long initialBackoff, long maxBackoff, @Nonnull TimeUnit unit) {
+            if (maxRetries < 0) {
+                throw new IllegalArgumentException("maxRetries must not be negative");
+            }
+
+            this.maxRetries = maxRetries;
+            this.initialBackoffMs = Math.max(1, unit.toMillis(initialBackoff));
+            this.maxBackoffMs = Math.max(initialBackoffMs, unit.toMillis(maxBackoff));
+            return this;
+        }
+
+        /**
+         * Sends a second request when the first one takes longer than the recent p95 (and at
+         * least {@code minDelay}).
+         */
+        public Builder hedging(long minDelay, @Nonnull TimeUnit unit) {
+            this.hedging = true;
+            this.minHedgeDelayMs = unit.toMillis(minDelay);
+            return this;
+        }
+
+        public Builder circuitBreaker(int failureThreshold, long openDuration, @Nonnull TimeUnit unit) {
+            if (failureThreshold <= 0) {
+                throw new IllegalArgumentException("failureThreshold must be positive");
+            }
+
+            this.failureThreshold = failureThreshold;
+            this.openMs = unit.toMillis(openDuration);
+            return this;
+        }
+
+        public Builder scheduler(@Nonnull Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        /**
+         * Seeds the backoff jitter, for reproducible tests.
+         */
+        public Builder jitterSeed(long seed) {
+            this.random = new Random(seed);
+            return this;
+        }
+
+        public ResilientAvailabilityChecker build() {
+            return new ResilientAvailabilityChecker(this);
+        }
+    }
+}
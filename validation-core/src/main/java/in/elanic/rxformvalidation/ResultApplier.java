@@ -0,0 +1,220 @@
+package in.elanic.rxformvalidation;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.functions.Action1;
+
+/**
+ * Applies validation state to the UI at most once per frame, and only when it changed.
+ *
+ * Each UI element (a field's error, the submit button) gets a {@link Slot}. Results can be set
+ * from any thread; the slot keeps only the latest one, and the first pending slot posts a frame
+ * through the {@link FrameScheduler}. When the frame runs (on the UI thread), every dirty slot
+ * compares its latest state with the one it last applied (or, for a {@link ReadableTarget},
+ * with what the UI shows now) and calls its {@link Target} only if they differ. Fast typing which produces several results per frame, or the same error again
+ * and again, then costs no setError() / setEnabled() calls, and no layout passes.
+ *
+ * This replaces {@code observeOn(mainThread())} for results which only end up in the UI.
+ */
+public class ResultApplier {
+
+    /**
+     * Posts a runnable to the UI thread, ideally right before the next frame is drawn
+     * (Choreographer on Android).
+     */
+    public interface FrameScheduler {
+        void postFrame(@Nonnull Runnable frame);
+    }
+
+    /**
+     * Pushes one piece of state to the UI. Only called on the UI thread.
+     */
+    public interface Target<T> {
+        void apply(@Nullable T state);
+    }
+
+    /**
+     * A target whose state can change outside the applier, e.g. a TextView's error, which the
+     * view clears itself on key events. The slot compares against {@link #current()} instead of
+     * the state it last applied, so an error cleared that way is set again.
+     */
+    public interface ReadableTarget<T> extends Target<T> {
+        @Nullable
+        T current();
+    }
+
+    private static final Object NONE = new Object();
+    private static final Object NULL = new Object();
+
+    private final FrameScheduler frames;
+    private final ValidationMetrics metrics;
+    private final Queue<Slot<?>> dirty = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean framePosted = new AtomicBoolean();
+    private final Runnable frame = new Runnable() {
+        @Override
+        public void run() {
+            applyPending();
+        }
+    };
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong framesRun = new AtomicLong();
+
+    public ResultApplier(@Nonnull FrameScheduler frames) {
+        this(frames, null);
+    }
+
+    /**
+     * @param metrics if set, the time from a result being set to being applied is recorded in
+     *                {@link ValidationMetrics.Stage#THREAD_HOP} under the slot's name.
+     */
+    public ResultApplier(@Nonnull FrameScheduler frames, @Nullable ValidationMetrics metrics) {
+        this.frames = frames;
+        this.metrics = metrics;
+    }
+
+    @Nonnull
+    public <T> Slot<T> slot(@Nonnull String name, @Nonnull Target<T> target) {
+        return new Slot<>(name, target);
+    }
+
+    public long getSubmittedCount() {
+        return submitted.get();
+    }
+
+    /**
+     * Calls to a {@link Target}, i.e. actual UI updates.
+     */
+    public long getAppliedCount() {
+        return applied.get();
+    }
+
+    /**
+     * States not applied because the slot already showed them.
+     */
+    public long getUnchangedCount() {
+        return unchanged.get();
+    }
+
+    /**
+     * States replaced by a later one before their frame ran.
+     */
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    /**
+     * UI updates avoided: {@link #getUnchangedCount()} plus {@link #getCoalescedCount()}.
+     */
+    public long getAvoidedCount() {
+        return unchanged.get() + coalesced.get();
+    }
+
+    public long getFrameCount() {
+        return framesRun.get();
+    }
+
+    private void requestFrame() {
+        if (framePosted.compareAndSet(false, true)) {
+            frames.postFrame(frame);
+        }
+    }
+
+    private void applyPending() {
+        framePosted.set(false);
+        framesRun.incrementAndGet();
+        Slot<?> slot;
+        while ((slot = dirty.poll()) != null) {
+            slot.flush();
+        }
+    }
+
+    public class Slot<T> {
+
+        private final String name;
+        private final Target<T> target;
+        private final AtomicReference<Object> pending = new AtomicReference<>(NONE);
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private volatile long pendingSinceNanos;
+        // Only touched on the UI thread.
+        private Object shown = NONE;
+
+        Slot(@Nonnull String name, @Nonnull Target<T> target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        @Nonnull
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Makes {@code state} the state to show at the next frame. Safe on any thread.
+         */
+        public void set(@Nullable T state) {
+            submitted.incrementAndGet();
+            pendingSinceNanos = System.nanoTime();
+            if (pending.getAndSet(state == null ? NULL : state) != NONE) {
+                coalesced.incrementAndGet();
+            }
+
+            if (queued.compareAndSet(false, true)) {
+                dirty.offer(this);
+                requestFrame();
+            }
+        }
+
+        /**
+         * {@link #set(Object)} as an action, for {@code subscribe()}.
+         */
+        @Nonnull
+        public Action1<T> setter() {
+            return new Action1<T>() {
+                @Override
+                public void call(T state) {
+                    set(state);
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        void flush() {
+            queued.set(false);
+            Object state = pending.getAndSet(NONE);
+            if (state == NONE) {
+                return;
+            }
+
+            if (metrics != null) {
+                metrics.histogram(name, ValidationMetrics.Stage.THREAD_HOP)
+                        .recordNanos(System.nanoTime() - pendingSinceNanos);
+            }
+
+            Object current = shown;
+            if (target instanceof ReadableTarget) {
+                T now = ((ReadableTarget<T>) target).current();
+                current = now == null ? NULL : now;
+            }
+
+            if (state.equals(current)) {
+                unchanged.incrementAndGet();
+                return;
+            }
+
+            shown = state;
+            applied.incrementAndGet();
+            target.apply(state == NULL ? null : (T) state);
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package in.elanic.rxformvalidation;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.schedulers.Schedulers;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Reproducible stand-in for the availability backend, for load and latency testing.
+ *
+ * Every call draws its latency from a {@link LatencyDistribution} and may fail with an error or
+ * hang until a timeout. All draws come from one seeded Random, so on a TestScheduler the same
+ * seed and the same calls replay exactly. Whether a value is taken depends only on the seed and
+ * the value, so repeated lookups (and caches in front of this) agree.
+ *
+ * At most {@code maxConcurrentCalls} calls are served at a time, later ones wait in a FIFO queue
+ * and their latency includes the wait, like a backend with a fixed number of workers.
+ * Unsubscribing cancels a call, whether it is queued or being served.
+ */
+public class SimulatedAvailabilityChecker implements AvailabilityChecker {
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private static final int ANSWER = 0;
+    private static final int ERROR = 1;
+    private static final int TIMEOUT = 2;
+
+    private final long seed;
+    private final LatencyDistribution latency;
+    private final double takenFraction;
+    private final double errorRate;
+    private final double timeoutRate;
+    private final long timeoutMs;
+    private final int maxConcurrentCalls;
+    private final Scheduler scheduler;
+
+    // Guarded by this
+    private final Random random;
+    private final Deque<Call> queue = new ArrayDeque<>();
+    private int running;
+    private int peakQueueLength;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong cancellations = new AtomicLong();
+
+    private SimulatedAvailabilityChecker(@Nonnull Builder builder) {
+        this.seed = builder.seed;
+        this.latency = builder.latency;
+        this.takenFraction = builder.takenFraction;
+        this.errorRate = builder.errorRate;
+        this.timeoutRate = builder.timeoutRate;
+        this.timeoutMs = builder.timeoutMs;
+        this.maxConcurrentCalls = builder.maxConcurrentCalls;
+        this.scheduler = builder.scheduler;
+        this.random = new Random(builder.seed);
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(@Nonnull String email) {
+        return lookup(email, ValidationReason.EMAIL_TAKEN);
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(@Nonnull String username) {
+        return lookup(username, ValidationReason.USERNAME_TAKEN);
+    }
+
+    /**
+     * Blocks for the simulated latency, so this needs a real scheduler.
+     */
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(@Nonnull String email) {
+        return isEmailAvailable(email).toBlocking().single();
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(@Nonnull String username) {
+        return isUsernameAvailable(username).toBlocking().single();
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * Calls unsubscribed before they answered, queued or not.
+     */
+    public long getCancelledCount() {
+        return cancellations.get();
+    }
+
+    public synchronized int getInFlightCount() {
+        return running;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    public synchronized int getPeakQueueLength() {
+        return peakQueueLength;
+    }
+
+    /**
+     * Whether the backend considers the value taken. Fixed for a given seed and value.
+     */
+    public boolean isTaken(@Nonnull String value) {
+        long h = seed * 0x9E3779B97F4A7C15L + value.hashCode();
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+
+        return (h >>> 11) * 0x1.0p-53 < takenFraction;
+    }
+
+    private Observable<ValidationResult<String>> lookup(@Nonnull final String value,
+                                                        @Nonnull final ValidationReason reason) {
+        return Observable.create(new Observable.OnSubscribe<ValidationResult<String>>() {
+            @Override
+            public void call(Subscriber<? super ValidationResult<String>> subscriber) {
+                final Call call = new Call(value, reason, subscriber);
+                subscriber.add(Subscriptions.create(new Action0() {
+                    @Override
+                    public void call() {
+                        cancel(call);
+                    }
+                }));
+                submit(call);
+            }
+        });
+    }
+
+    private void submit(@Nonnull Call call) {
+        calls.incrementAndGet();
+        synchronized (this) {
+            if (running >= maxConcurrentCalls) {
+                queue.add(call);
+                peakQueueLength = Math.max(peakQueueLength, queue.size());
+                return;
+            }
+
+            running++;
+            call.state = RUNNING;
+        }
+
+        start(call);
+    }
+
+    private void start(@Nonnull final Call call) {
+        final long delayMs;
+        final int outcome;
+        synchronized (this) {
+            double r = random.nextDouble();
+            if (r < errorRate) {
+                outcome = ERROR;
+                delayMs = latency.sampleMillis(random);
+            } else if (r < errorRate + timeoutRate) {
+                outcome = TIMEOUT;
+                delayMs = timeoutMs;
+            } else {
+                outcome = ANSWER;
+                delayMs = latency.sampleMillis(random);
+            }
+        }
+
+        Scheduler.Worker worker = scheduler.createWorker();
+        call.subscriber.add(worker);
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                if (!finish(call)) {
+                    return;
+                }
+
+                if (outcome == ERROR) {
+                    errors.incrementAndGet();
+                    call.subscriber.onError(new IOException("Simulated backend error for " + call.value));
+                } else if (outcome == TIMEOUT) {
+                    timeouts.incrementAndGet();
+                    call.subscriber.onError(new TimeoutException("Simulated timeout for " + call.value));
+                } else {
+                    call.subscriber.onNext(isTaken(call.value)
+                            ? ValidationResult.failure(call.reason, call.value)
+                            : ValidationResult.success(call.value));
+                    call.subscriber.onCompleted();
+                }
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks a running call as answered and frees its slot. False if it was cancelled first.
+     */
+    private boolean finish(@Nonnull Call call) {
+        synchronized (this) {
+            if (call.state != RUNNING) {
+                return false;
+            }
+
+            call.state = DONE;
+        }
+
+        release();
+
+        return true;
+    }
+
+    private void cancel(@Nonnull Call call) {
+        boolean wasRunning;
+        synchronized (this) {
+            if (call.state == DONE) {
+                return;
+            }
+
+            wasRunning = call.state == RUNNING;
+            if (!wasRunning) {
+                queue.remove(call);
+            }
+
+            call.state = DONE;
+        }
+
+        cancellations.incrementAndGet();
+        if (wasRunning) {
+            release();
+        }
+    }
+
+    private void release() {
+        Call next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                running--;
+                return;
+            }
+
+            // The slot goes straight to the next call.
+            next.state = RUNNING;
+        }
+
+        start(next);
+    }
+
+    private static class Call {
+
+        final String value;
+        final ValidationReason reason;
+        final Subscriber<? super ValidationResult<String>> subscriber;
+        int state = QUEUED;
+
+        Call(@Nonnull String value, @Nonnull ValidationReason reason,
+             @Nonnull Subscriber<? super ValidationResult<String>> subscriber) {
+            this.value = value;
+            this.reason = reason;
+            this.subscriber = subscriber;
+        }
+    }
+
+    public static class Builder {
+
+        private long seed;
+        private LatencyDistribution latency = LatencyDistribution.fixed(1200);
+        private double takenFraction = 5 / 12.0;
+        private double errorRate;
+        private double timeoutRate;
+        private long timeoutMs = 30000;
+        private int maxConcurrentCalls = Integer.MAX_VALUE;
+        private Scheduler scheduler = Schedulers.computation();
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder latency(@Nonnull LatencyDistribution latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        /**
+         * Share of values the backend reports as taken. Defaults to the 5 in 12 of the random
+         * checker in the demo app.
+         */
+        public Builder takenFraction(double takenFraction) {
+            checkRate(takenFraction);
+            this.takenFraction = takenFraction;
+            return this;
+        }
+
+        /**
+         * Share of calls that fail with an IOException after their normal latency.
+         */
+        public Builder errorRate(double errorRate) {
+            checkRate(errorRate);
+            this.errorRate = errorRate;
+            return this;
+        }
+
+        /**
+         * Share of calls that hang for {@code timeout} and then fail with a TimeoutException.
+         */
+        public Builder timeouts(double timeoutRate, long timeout, @Nonnull TimeUnit unit) {
+            checkRate(timeoutRate);
+            this.timeoutRate = timeoutRate;
+            this.timeoutMs = unit.toMillis(timeout);
+            return this;
+        }
+
+        public Builder maxConcurrentCalls(int maxConcurrentCalls) {
+            if (maxConcurrentCalls <= 0) {
+                throw new IllegalArgumentException("maxConcurrentCalls must be positive");
+            }
+
+            this.maxConcurrentCalls = maxConcurrentCalls;
+            return this;
+        }
+
+        public Builder scheduler(@Nonnull Scheduler scheduler) {
+            this.scheduler = scheduler;
+            return this;
+        }
+
+        public SimulatedAvailabilityChecker build() {
+            if (errorRate + timeoutRate > 1) {
+                throw new IllegalArgumentException("errorRate + timeoutRate must not exceed 1");
+            }
+
+            return new SimulatedAvailabilityChecker(this);
+        }
+
+        private static void checkRate(double rate) {
+            if (rate < 0 || rate > 1) {
+                throw new IllegalArgumentException("Rates must be between 0 and 1");
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package in.elanic.rxformvalidation;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Hand-written single pass scanners for the rules in {@link ValidationUtils}.
+ *
+ * Every method walks the input once, never backtracks and does not allocate, so they are safe
+ * to run on every keystroke. Each one accepts exactly the same inputs as the regex it replaces
+ * (see ValidationUtilsTest).
+ */
+final class TextScanner {
+
+    static final int USERNAME_MIN_LENGTH = 3;
+    static final int USERNAME_MAX_LENGTH = 20;
+
+    static final int MOBILE_NUMBER_LENGTH = 10;
+
+    static final int EMAIL_MAX_DOMAIN_LENGTH = 64;
+
+    private TextScanner() {
+    }
+
+    // Same as "^[a-zA-Z][a-zA-Z._0-9]{2,19}$" with find()
+    static boolean isUsername(@Nonnull CharSequence text) {
+        int end = matchEnd(text);
+        if (end < USERNAME_MIN_LENGTH || end > USERNAME_MAX_LENGTH) {
+            return false;
+        }
+
+        if (!isLetter(text.charAt(0))) {
+            return false;
+        }
+
+        for (int i = 1; i < end; i++) {
+            char c = text.charAt(i);
+            if (!isLetterOrDigit(c) && c != '.' && c != '_') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Same as "[7-9][0-9]{9}$" with find()
+    static boolean endsWithMobileNumber(@Nonnull CharSequence text) {
+        int end = matchEnd(text);
+        int start = end - MOBILE_NUMBER_LENGTH;
+        if (start < 0) {
+            return false;
+        }
+
+        return isMobileNumberAt(text, start);
+    }
+
+    // Same as ".*[7-9][0-9]{9}.*" with find()
+    static boolean containsMobileNumber(@Nonnull CharSequence text) {
+        int runStart = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (!isDigit(text.charAt(i))) {
+                runStart = i + 1;
+                continue;
+            }
+
+            int start = i - MOBILE_NUMBER_LENGTH + 1;
+            if (start >= runStart && isMobileNumberPrefix(text.charAt(start))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    // Same as ".*[0-9]{n,}.*" with find()
+    static boolean containsDigitRun(@Nonnull CharSequence text, int n) {
+        int run = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (isDigit(text.charAt(i))) {
+                if (++run >= n) {
+                    return true;
+                }
+            } else {
+                run = 0;
+            }
+        }
+
+        return false;
+    }
+
+    // Same as ".*[a-zA-Z0-9\+\.\_\%\-\+]{1,256}\@[a-zA-Z0-9]{1,64}\.[a-zA-Z0-9]{1,25}.*" with find().
+    // The surrounding ".*" and the upper bounds of the local part and the top level domain never
+    // change the outcome, so all we need is one valid local character before an '@' followed by
+    // a short alphanumeric domain, a dot and one more alphanumeric character.
+    static boolean containsEmailAddress(@Nonnull CharSequence text) {
+        for (int i = 1, length = text.length(); i < length; i++) {
+            if (text.charAt(i) == '@' && isEmailLocalChar(text.charAt(i - 1))
+                    && isEmailDomainAt(text, i + 1)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks for "[a-zA-Z0-9]{1,64}\.[a-zA-Z0-9]" at the given index. The domain run stops at the
+     * first non alphanumeric character, so runs scanned from different '@' signs never overlap
+     * and {@link #containsEmailAddress(CharSequence)} stays linear. It also stops one character
+     * past the longest domain, so no more than {@value #EMAIL_MAX_DOMAIN_LENGTH} + 2 characters
+     * are ever read.
+     */
+    static boolean isEmailDomainAt(@Nonnull CharSequence text, int start) {
+        int length = Math.min(text.length(), start + EMAIL_MAX_DOMAIN_LENGTH + 2);
+        int i = start;
+        while (i < length && isLetterOrDigit(text.charAt(i))) {
+            i++;
+        }
+
+        int domainLength = i - start;
+        return domainLength >= 1 && domainLength <= EMAIL_MAX_DOMAIN_LENGTH
+                && i + 1 < length && text.charAt(i) == '.' && isLetterOrDigit(text.charAt(i + 1));
+    }
+
+    static boolean isMobileNumberAt(@Nonnull CharSequence text, int start) {
+        if (!isMobileNumberPrefix(text.charAt(start))) {
+            return false;
+        }
+
+        for (int i = start + 1; i < start + MOBILE_NUMBER_LENGTH; i++) {
+            if (!isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the index where a trailing "$" may match: the end of the input, or just before a
+     * single trailing line terminator, mirroring {@link java.util.regex.Pattern} without
+     * MULTILINE. The characters of all our anchored rules exclude line terminators, so when the
+     * input ends with one only the earlier position can ever match.
+     */
+    static int matchEnd(@Nonnull CharSequence text) {
+        int length = text.length();
+        if (length == 0) {
+            return 0;
+        }
+
+        char last = text.charAt(length - 1);
+        if (last == '\n') {
+            return length >= 2 && text.charAt(length - 2) == '\r' ? length - 2 : length - 1;
+        }
+
+        if (last == '\r' || last == '\u0085' || last == '\u2028' || last == '\u2029') {
+            return length - 1;
+        }
+
+        return length;
+    }
+
+    static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    static boolean isLetterOrDigit(char c) {
+        return isLetter(c) || isDigit(c);
+    }
+
+    static boolean isMobileNumberPrefix(char c) {
+        return c >= '7' && c <= '9';
+    }
+
+    static boolean isEmailLocalChar(char c) {
+        return isLetterOrDigit(c) || c == '+' || c == '.' || c == '_' || c == '%' || c == '-';
+    }
+}
@@ -0,0 +1,186 @@
+package in.elanic.rxformvalidation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Latency histograms per field and stage, plus counters for remote calls, so we can tell where
+ * users actually wait.
+ *
+ * Everything is lock-free after the first use of a field. Take a {@link #snapshot()} to export.
+ */
+public class ValidationMetrics {
+
+    public enum Stage {
+        /** Time text waited in the debounce window before the remote check started */
+        DEBOUNCE,
+        /** Local rule, e.g. the ValidationUtils regex checks */
+        LOCAL_RULE,
+        /** From a result being emitted to it being applied on the UI thread, see {@link ResultApplier} */
+        THREAD_HOP,
+        /** AvailabilityChecker call, from subscription to result */
+        REMOTE_CHECK,
+    }
+
+    private final ConcurrentMap<String, FieldMetrics> fields = new ConcurrentHashMap<>();
+
+    @Nonnull
+    public LatencyHistogram histogram(@Nonnull String field, @Nonnull Stage stage) {
+        return field(field).histograms[stage.ordinal()];
+    }
+
+    public void remoteCallIssued(@Nonnull String field) {
+        field(field).issued.incrementAndGet();
+    }
+
+    public void remoteCallCancelled(@Nonnull String field) {
+        field(field).cancelled.incrementAndGet();
+    }
+
+    /**
+     * A remote result arrived after its call was cancelled and was thrown away.
+     */
+    public void staleResultDropped(@Nonnull String field) {
+        field(field).staleDropped.incrementAndGet();
+    }
+
+    @Nonnull
+    public Snapshot snapshot() {
+        Map<String, FieldSnapshot> snapshots = new LinkedHashMap<>();
+        List<String> names = new ArrayList<>(fields.keySet());
+        Collections.sort(names);
+        for (String name : names) {
+            snapshots.put(name, fields.get(name).snapshot());
+        }
+
+        return new Snapshot(snapshots);
+    }
+
+    @Nonnull
+    private FieldMetrics field(@Nonnull String name) {
+        FieldMetrics metrics = fields.get(name);
+        if (metrics == null) {
+            FieldMetrics created = new FieldMetrics();
+            metrics = fields.putIfAbsent(name, created);
+            if (metrics == null) {
+                metrics = created;
+            }
+        }
+
+        return metrics;
+    }
+
+    private static class FieldMetrics {
+
+        final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+        final AtomicLong issued = new AtomicLong();
+        final AtomicLong cancelled = new AtomicLong();
+        final AtomicLong staleDropped = new AtomicLong();
+
+        FieldMetrics() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        FieldSnapshot snapshot() {
+            LatencyHistogram.Snapshot[] stages = new LatencyHistogram.Snapshot[histograms.length];
+            for (int i = 0; i < histograms.length; i++) {
+                stages[i] = histograms[i].snapshot();
+            }
+
+            return new FieldSnapshot(stages, issued.get(), cancelled.get(), staleDropped.get());
+        }
+    }
+
+    public static class FieldSnapshot {
+
+        private final LatencyHistogram.Snapshot[] stages;
+        private final long remoteCallsIssued;
+        private final long remoteCallsCancelled;
+        private final long staleResultsDropped;
+
+        FieldSnapshot(LatencyHistogram.Snapshot[] stages, long remoteCallsIssued,
+                      long remoteCallsCancelled, long staleResultsDropped) {
+            this.stages = stages;
+            this.remoteCallsIssued = remoteCallsIssued;
+            this.remoteCallsCancelled = remoteCallsCancelled;
+            this.staleResultsDropped = staleResultsDropped;
+        }
+
+        public LatencyHistogram.Snapshot getStage(@Nonnull Stage stage) {
+            return stages[stage.ordinal()];
+        }
+
+        public long getRemoteCallsIssued() {
+            return remoteCallsIssued;
+        }
+
+        public long getRemoteCallsCancelled() {
+            return remoteCallsCancelled;
+        }
+
+        public long getStaleResultsDropped() {
+            return staleResultsDropped;
+        }
+    }
+
+    public static class Snapshot {
+
+        private final Map<String, FieldSnapshot> fields;
+
+        Snapshot(Map<String, FieldSnapshot> fields) {
+            this.fields = Collections.unmodifiableMap(fields);
+        }
+
+        public Map<String, FieldSnapshot> getFields() {
+            return fields;
+        }
+
+        /**
+         * Flattens the snapshot into "field.stage.stat" keys (latencies in microseconds) for
+         * shipping to an analytics backend.
+         */
+        @Nonnull
+        public Map<String, Long> toMap() {
+            Map<String, Long> values = new LinkedHashMap<>();
+            for (Map.Entry<String, FieldSnapshot> entry : fields.entrySet()) {
+                String prefix = entry.getKey() + ".";
+                FieldSnapshot field = entry.getValue();
+                for (Stage stage : Stage.values()) {
+                    LatencyHistogram.Snapshot histogram = field.getStage(stage);
+                    if (histogram.getCount() == 0) {
+                        continue;
+                    }
+
+                    String stagePrefix = prefix + stage.name().toLowerCase(Locale.US) + ".";
+                    values.put(stagePrefix + "count", histogram.getCount());
+                    values.put(stagePrefix + "p50", histogram.getPercentile(50));
+                    values.put(stagePrefix + "p90", histogram.getPercentile(90));
+                    values.put(stagePrefix + "p99", histogram.getPercentile(99));
+                    values.put(stagePrefix + "max", histogram.getMax());
+                }
+
+                values.put(prefix + "remote.issued", field.getRemoteCallsIssued());
+                values.put(prefix + "remote.cancelled", field.getRemoteCallsCancelled());
+                values.put(prefix + "remote.stale_dropped", field.getStaleResultsDropped());
+            }
+
+            return values;
+        }
+
+        @Override
+        public String toString() {
+            return toMap().toString();
+        }
+    }
+}
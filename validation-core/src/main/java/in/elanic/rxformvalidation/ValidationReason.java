@@ -0,0 +1,120 @@
+package in.elanic.rxformvalidation;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Why a value is invalid, as a code instead of a message.
+ *
+ * Results carry one of these, and the message is only looked up when someone asks for it
+ * ({@link ValidationResult#getReason()}), through the {@link MessageResolver} set with
+ * {@link #setMessageResolver(MessageResolver)}. The app sets one backed by string resources;
+ * without it the English default messages are used.
+ *
+ * Codes are stable: they may be stored or sent to a backend. Add new reasons with new codes.
+ */
+public enum ValidationReason {
+
+    /** Valid, nothing to report */
+    NONE(0, null),
+    /** Invalid without a message, e.g. nothing typed yet */
+    EMPTY(1, null),
+    /** Invalid with a free-text message, see {@link ValidationResult#failure(String, Object)} */
+    CUSTOM(2, null),
+
+    USERNAME_TOO_SHORT(10, "username should have 3 or more characters"),
+    USERNAME_INVALID_CHARACTERS(11, "username should contain only alphanumeric characters"),
+    EMAIL_INVALID(20, "Please enter correct email address"),
+    PHONE_INVALID(30, "Phone should be exactly 10 numbers"),
+
+    EMAIL_TAKEN(40, "Email is already taken"),
+    USERNAME_TAKEN(41, "Username is already taken"),
+    EMAIL_NOT_VERIFIED(50, "Could not verify email right now, please try again"),
+    USERNAME_NOT_VERIFIED(51, "Could not verify username right now, please try again"),
+
+    CONTACT_INFO(60, "Please don't share phone numbers or email addresses");
+
+    /**
+     * Turns a reason into a user visible message, e.g. from localized resources. Called lazily,
+     * on whatever thread asks for the message.
+     */
+    public interface MessageResolver {
+        @Nullable
+        String getMessage(@Nonnull ValidationReason reason);
+    }
+
+    private static final MessageResolver DEFAULT_MESSAGES = new MessageResolver() {
+        @Override
+        public String getMessage(@Nonnull ValidationReason reason) {
+            return reason.defaultMessage;
+        }
+    };
+
+    private static final ValidationReason[] BY_CODE = byCode();
+
+    private static volatile MessageResolver messageResolver = DEFAULT_MESSAGES;
+
+    private final int code;
+    private final String defaultMessage;
+
+    ValidationReason(int code, @Nullable String defaultMessage) {
+        this.code = code;
+        this.defaultMessage = defaultMessage;
+    }
+
+    private static ValidationReason[] byCode() {
+        ValidationReason[] reasons = values();
+        int maxCode = 0;
+        for (ValidationReason reason : reasons) {
+            maxCode = Math.max(maxCode, reason.code);
+        }
+
+        ValidationReason[] byCode = new ValidationReason[maxCode + 1];
+        for (ValidationReason reason : reasons) {
+            byCode[reason.code] = reason;
+        }
+        return byCode;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public boolean isValid() {
+        return this == NONE;
+    }
+
+    @Nullable
+    public String getDefaultMessage() {
+        return defaultMessage;
+    }
+
+    /**
+     * The message of the current {@link MessageResolver}. Null for {@link #NONE},
+     * {@link #EMPTY} and {@link #CUSTOM}.
+     */
+    @Nullable
+    public String getMessage() {
+        return defaultMessage == null ? null : messageResolver.getMessage(this);
+    }
+
+    /**
+     * @throws IllegalArgumentException for codes no reason has.
+     */
+    @Nonnull
+    public static ValidationReason fromCode(int code) {
+        ValidationReason reason = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (reason == null) {
+            throw new IllegalArgumentException("Unknown reason code: " + code);
+        }
+
+        return reason;
+    }
+
+    /**
+     * Pass null to go back to the English defaults.
+     */
+    public static void setMessageResolver(@Nullable MessageResolver resolver) {
+        messageResolver = resolver != null ? resolver : DEFAULT_MESSAGES;
+    }
+}
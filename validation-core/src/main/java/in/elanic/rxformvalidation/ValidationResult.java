@@ -0,0 +1,81 @@
+package in.elanic.rxformvalidation;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Created by Jay Rambhia on 5/26/16.
+ *
+ * Immutable. The reason is kept as a {@link ValidationReason} code and only turned into a
+ * message by {@link #getReason()}. Rules which do not need the wrapper (e.g. per keystroke or
+ * in bulk) can use the {@code ValidationUtils.check*} methods, which return the code alone and
+ * allocate nothing.
+ */
+public class ValidationResult<T> {
+
+    private final ValidationReason code;
+    private final String reason;
+    private final T data;
+
+    public static <T> ValidationResult<T> success(T t) {
+        return new ValidationResult<>(ValidationReason.NONE, null, t);
+    }
+
+    /**
+     * Failure with a free-text reason ({@link ValidationReason#CUSTOM}), or with no reason at all
+     * ({@link ValidationReason#EMPTY}) when it is null. Prefer
+     * {@link #failure(ValidationReason, Object)}, which can be localized.
+     */
+    public static <T> ValidationResult<T> failure(@Nullable String reason, T t) {
+        return new ValidationResult<>(reason == null ? ValidationReason.EMPTY : ValidationReason.CUSTOM, reason, t);
+    }
+
+    public static <T> ValidationResult<T> failure(@Nonnull ValidationReason reason, T t) {
+        if (reason.isValid()) {
+            throw new IllegalArgumentException("Not a failure: " + reason);
+        }
+
+        return new ValidationResult<>(reason, null, t);
+    }
+
+    /**
+     * Success for {@link ValidationReason#NONE}, failure for anything else.
+     */
+    public static <T> ValidationResult<T> of(@Nonnull ValidationReason reason, T t) {
+        return new ValidationResult<>(reason, null, t);
+    }
+
+    private ValidationResult(@Nonnull ValidationReason code, @Nullable String reason, T t) {
+        this.code = code;
+        this.reason = reason;
+        this.data = t;
+    }
+
+    public boolean isValid() {
+        return code == ValidationReason.NONE;
+    }
+
+    @Nonnull
+    public ValidationReason getReasonCode() {
+        return code;
+    }
+
+    /**
+     * The free-text reason, or the message for the reason code resolved now.
+     */
+    @Nullable
+    public String getReason() {
+        return reason != null ? reason : code.getMessage();
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    /**
+     * The same verdict for other data.
+     */
+    public <U> ValidationResult<U> withData(U data) {
+        return new ValidationResult<>(code, reason, data);
+    }
+}
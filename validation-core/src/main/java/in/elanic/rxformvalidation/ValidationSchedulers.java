@@ -0,0 +1,389 @@
+package in.elanic.rxformvalidation;
+
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.BooleanSubscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Schedulers for validation work, in place of {@code Schedulers.io()} (unbounded) and
+ * {@code Schedulers.computation()} (shared with everything else).
+ *
+ * There are two lanes, each a fixed pool of low priority daemon threads with a priority queue:
+ * {@link Lane#CPU} for local rules, which never block, and {@link Lane#IO} for remote checks,
+ * which may. A burst of typing across many fields queues up instead of starting threads, and
+ * local rules never wait behind a blocked availability call.
+ *
+ * Schedulers obtained with a field name put that field's work ahead of the rest of the queue
+ * while it is the {@link #setFocusedField(String) focused field}; within one priority, work runs
+ * in the order it was scheduled. As with any Rx scheduler, actions of one worker run one at a
+ * time and in order. Delayed actions wait on a shared timer thread and join the queue when due.
+ */
+public class ValidationSchedulers {
+
+    public enum Lane {
+        CPU, IO
+    }
+
+    private static final int FOCUSED = 0;
+    private static final int NORMAL = 1;
+
+    private final LanePool cpu;
+    private final LanePool io;
+    private final ScheduledExecutorService timer;
+    private volatile String focusedField;
+    private volatile boolean shutdown;
+
+    public ValidationSchedulers(int cpuThreads, int ioThreads) {
+        if (cpuThreads <= 0 || ioThreads <= 0) {
+            throw new IllegalArgumentException("Need at least one thread per lane");
+        }
+
+        cpu = new LanePool(Lane.CPU, cpuThreads);
+        io = new LanePool(Lane.IO, ioThreads);
+        timer = Executors.newSingleThreadScheduledExecutor(new LaneThreadFactory("validation-timer"));
+    }
+
+    /**
+     * Leaves a core for the UI thread: one or two CPU threads and four IO threads, which is
+     * plenty for a form.
+     */
+    @Nonnull
+    public static ValidationSchedulers createDefault() {
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        return new ValidationSchedulers(Math.max(1, Math.min(2, cores - 1)), 4);
+    }
+
+    @Nonnull
+    public Scheduler cpu() {
+        return new LaneScheduler(cpu, null);
+    }
+
+    /**
+     * Like {@link #cpu()}, but prioritized while {@code field} has the focus.
+     */
+    @Nonnull
+    public Scheduler cpu(@Nonnull String field) {
+        return new LaneScheduler(cpu, field);
+    }
+
+    @Nonnull
+    public Scheduler io() {
+        return new LaneScheduler(io, null);
+    }
+
+    /**
+     * Like {@link #io()}, but prioritized while {@code field} has the focus.
+     */
+    @Nonnull
+    public Scheduler io(@Nonnull String field) {
+        return new LaneScheduler(io, field);
+    }
+
+    /**
+     * Work scheduled for this field from now on goes ahead of other fields' work. Pass null
+     * when no field has the focus. Work already queued keeps its place.
+     */
+    public void setFocusedField(@Nullable String field) {
+        focusedField = field;
+    }
+
+    @Nullable
+    public String getFocusedField() {
+        return focusedField;
+    }
+
+    public int getThreadCount(@Nonnull Lane lane) {
+        return pool(lane).executor.getCorePoolSize();
+    }
+
+    /**
+     * Work items waiting for a thread right now.
+     */
+    public int getQueueDepth(@Nonnull Lane lane) {
+        return pool(lane).executor.getQueue().size();
+    }
+
+    public int getPeakQueueDepth(@Nonnull Lane lane) {
+        return pool(lane).peakQueueDepth.get();
+    }
+
+    /**
+     * Work items run so far. A work item runs all actions its worker had queued up.
+     */
+    public long getExecutedCount(@Nonnull Lane lane) {
+        return pool(lane).executed.get();
+    }
+
+    /**
+     * Time work items spent in the queue before a thread picked them up.
+     */
+    @Nonnull
+    public LatencyHistogram.Snapshot getQueueWait(@Nonnull Lane lane) {
+        return pool(lane).queueWait.snapshot();
+    }
+
+    /**
+     * Stops all threads. Queued work is dropped, and work scheduled afterwards is not run: its
+     * subscription comes back already unsubscribed.
+     */
+    public void shutdown() {
+        shutdown = true;
+        timer.shutdownNow();
+        cpu.executor.shutdownNow();
+        io.executor.shutdownNow();
+    }
+
+    private LanePool pool(@Nonnull Lane lane) {
+        return lane == Lane.CPU ? cpu : io;
+    }
+
+    private int priority(@Nullable String field) {
+        return field != null && field.equals(focusedField) ? FOCUSED : NORMAL;
+    }
+
+    @Nonnull
+    private static Subscription unsubscribed() {
+        BooleanSubscription subscription = new BooleanSubscription();
+        subscription.unsubscribe();
+        return subscription;
+    }
+
+    private static class LanePool {
+
+        final ThreadPoolExecutor executor;
+        final AtomicLong sequence = new AtomicLong();
+        final AtomicInteger peakQueueDepth = new AtomicInteger();
+        final AtomicLong executed = new AtomicLong();
+        final LatencyHistogram queueWait = new LatencyHistogram();
+
+        LanePool(@Nonnull Lane lane, int threads) {
+            executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new PriorityBlockingQueue<Runnable>(),
+                    new LaneThreadFactory("validation-" + lane.name().toLowerCase(Locale.US)));
+            // Otherwise the first tasks skip the queue (and its ordering) to start a thread.
+            executor.prestartAllCoreThreads();
+        }
+
+        void submit(@Nonnull LaneWorker worker, int priority) {
+            executor.execute(new Drain(this, worker, priority, sequence.getAndIncrement()));
+            int depth = executor.getQueue().size();
+            int peak;
+            do {
+                peak = peakQueueDepth.get();
+            } while (depth > peak && !peakQueueDepth.compareAndSet(peak, depth));
+        }
+    }
+
+    /**
+     * Runs the actions a worker has queued, in order. Ordered by priority, then by submission.
+     */
+    private static class Drain implements Runnable, Comparable<Drain> {
+
+        private final LanePool pool;
+        private final LaneWorker worker;
+        private final int priority;
+        private final long sequence;
+        private final long enqueuedNanos = System.nanoTime();
+
+        Drain(@Nonnull LanePool pool, @Nonnull LaneWorker worker, int priority, long sequence) {
+            this.pool = pool;
+            this.worker = worker;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            pool.queueWait.recordNanos(System.nanoTime() - enqueuedNanos);
+            pool.executed.incrementAndGet();
+            worker.drain();
+        }
+
+        @Override
+        public int compareTo(@Nonnull Drain other) {
+            if (priority != other.priority) {
+                return priority < other.priority ? -1 : 1;
+            }
+
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    private class LaneScheduler extends Scheduler {
+
+        private final LanePool pool;
+        private final String field;
+
+        LaneScheduler(@Nonnull LanePool pool, @Nullable String field) {
+            this.pool = pool;
+            this.field = field;
+        }
+
+        @Override
+        public Worker createWorker() {
+            return new LaneWorker(pool, field);
+        }
+    }
+
+    private class LaneWorker extends Scheduler.Worker {
+
+        private final LanePool pool;
+        private final String field;
+        private final Queue<ScheduledAction> actions = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final BooleanSubscription unsubscribed = new BooleanSubscription();
+
+        LaneWorker(@Nonnull LanePool pool, @Nullable String field) {
+            this.pool = pool;
+            this.field = field;
+        }
+
+        @Override
+        public Subscription schedule(@Nonnull Action0 action) {
+            if (isUnsubscribed() || shutdown) {
+                return unsubscribed();
+            }
+
+            ScheduledAction scheduled = new ScheduledAction(action);
+            enqueue(scheduled);
+            return scheduled;
+        }
+
+        @Override
+        public Subscription schedule(@Nonnull Action0 action, long delayTime, @Nonnull TimeUnit unit) {
+            if (delayTime <= 0) {
+                return schedule(action);
+            }
+
+            if (isUnsubscribed() || shutdown) {
+                return unsubscribed();
+            }
+
+            final ScheduledAction scheduled = new ScheduledAction(action);
+            final ScheduledFuture<?> future;
+            try {
+                future = timer.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!scheduled.isUnsubscribed()) {
+                            enqueue(scheduled);
+                        }
+                    }
+                }, delayTime, unit);
+            } catch (RejectedExecutionException e) {
+                // Shut down since the check above.
+                return unsubscribed();
+            }
+
+            return Subscriptions.create(new Action0() {
+                @Override
+                public void call() {
+                    scheduled.unsubscribe();
+                    future.cancel(false);
+                }
+            });
+        }
+
+        @Override
+        public void unsubscribe() {
+            unsubscribed.unsubscribe();
+            actions.clear();
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return unsubscribed.isUnsubscribed();
+        }
+
+        private void enqueue(@Nonnull ScheduledAction scheduled) {
+            actions.offer(scheduled);
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    pool.submit(this, priority(field));
+                } catch (RejectedExecutionException e) {
+                    // The pool was shut down; nothing will run this worker's actions again.
+                    scheduled.unsubscribe();
+                    actions.clear();
+                }
+            }
+        }
+
+        void drain() {
+            do {
+                ScheduledAction scheduled = actions.poll();
+                if (scheduled != null && !scheduled.isUnsubscribed() && !isUnsubscribed()) {
+                    scheduled.run();
+                }
+            } while (pending.decrementAndGet() > 0);
+        }
+    }
+
+    private static class ScheduledAction implements Subscription {
+
+        private final Action0 action;
+        private volatile boolean unsubscribed;
+
+        ScheduledAction(@Nonnull Action0 action) {
+            this.action = action;
+        }
+
+        void run() {
+            try {
+                action.call();
+            } catch (Throwable e) {
+                // Same as the stock schedulers: errors which reach the scheduler are bugs.
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+
+        @Override
+        public void unsubscribe() {
+            unsubscribed = true;
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return unsubscribed;
+        }
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(@Nonnull String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            // Below the UI thread, so a burst of validation work cannot starve rendering.
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
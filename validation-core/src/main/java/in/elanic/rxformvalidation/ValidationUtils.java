@@ -0,0 +1,134 @@
+package in.elanic.rxformvalidation;
+
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Created by Jay Rambhia on 5/26/16.
+ */
+public class ValidationUtils {
+
+    private static final String MOBILE_NUMBER_REGEX = "[7-9][0-9]{9}$";
+    private static final String TEXT_WITH_MOBILE_NUMBER_REGEX = ".*[7-9][0-9]{9}.*";
+    private static final String TEXT_WITH_EMAIL_ADDRESS_REGEX = ".*[a-zA-Z0-9\\+\\" +
+            ".\\_\\%\\-\\+]{1,256}\\@[a-zA-Z0-9]{1,64}\\.[a-zA-Z0-9]{1,25}.*";
+
+    private static final String USERNAME_REGEX = "^[a-zA-Z][a-zA-Z._0-9]{2,19}$";
+    private static final String TEXT_WITH_FOUR_CONSECUTIVE_NUMBERS_REGEX = ".*[0-9]{5,}.*";
+
+    // Reference definitions of the rules, compiled once. The methods below run the equivalent
+    // TextScanner checks instead, which neither backtrack nor allocate a Matcher per call.
+    static final Pattern MOBILE_NUMBER_PATTERN = Pattern.compile(MOBILE_NUMBER_REGEX);
+    static final Pattern TEXT_WITH_MOBILE_NUMBER_PATTERN = Pattern.compile(TEXT_WITH_MOBILE_NUMBER_REGEX);
+    static final Pattern TEXT_WITH_EMAIL_ADDRESS_PATTERN = Pattern.compile(TEXT_WITH_EMAIL_ADDRESS_REGEX);
+    static final Pattern USERNAME_PATTERN = Pattern.compile(USERNAME_REGEX);
+    static final Pattern TEXT_WITH_FOUR_CONSECUTIVE_NUMBERS_PATTERN =
+            Pattern.compile(TEXT_WITH_FOUR_CONSECUTIVE_NUMBERS_REGEX);
+
+    static final int MIN_CONSECUTIVE_NUMBERS = 5;
+
+    // Empty fields are the most common failure of all, and they all look the same.
+    private static final ValidationResult<String> EMPTY_INPUT = ValidationResult.failure(ValidationReason.EMPTY, "");
+
+    public static boolean isValidMobileNumber(String number) {
+        return TextScanner.endsWithMobileNumber(number);
+    }
+
+    public static ValidationResult<String> isValidUsername(String username) {
+        return result(checkUsername(username), username);
+    }
+
+    /**
+     * {@link #isValidUsername(String)} without the result object.
+     */
+    @Nonnull
+    public static ValidationReason checkUsername(@Nonnull CharSequence username) {
+        if (username.length() == 0) {
+            return ValidationReason.EMPTY;
+        }
+
+        if (username.length() < 3) {
+            return ValidationReason.USERNAME_TOO_SHORT;
+        }
+
+        return TextScanner.isUsername(username) ? ValidationReason.NONE
+                : ValidationReason.USERNAME_INVALID_CHARACTERS;
+    }
+
+    /**
+     * {@link #isValidMobileNumber(String)} with {@link ValidationReason#EMPTY} for no input.
+     */
+    @Nonnull
+    public static ValidationReason checkPhoneNumber(@Nonnull CharSequence number) {
+        if (number.length() == 0) {
+            return ValidationReason.EMPTY;
+        }
+
+        return TextScanner.endsWithMobileNumber(number) ? ValidationReason.NONE : ValidationReason.PHONE_INVALID;
+    }
+
+    public static boolean containsFourConsecutiveNumbers(String text) {
+        return TextScanner.containsDigitRun(text, MIN_CONSECUTIVE_NUMBERS);
+    }
+
+    public static boolean containsMobileNumber(String text) {
+        return TextScanner.containsMobileNumber(text);
+    }
+
+    public static boolean containsEmailAddress(String text) {
+        return TextScanner.containsEmailAddress(text);
+    }
+
+    /**
+     * Checks for a mobile number, a run of {@value #MIN_CONSECUTIVE_NUMBERS} or more digits or an
+     * email address in one pass, stopping at the first one. See {@link ContactInfoScanner} for
+     * where they are.
+     */
+    public static boolean containsContactInfo(String text) {
+        return checkNoContactInfo(text) == ValidationReason.CONTACT_INFO;
+    }
+
+    /**
+     * {@link #containsContactInfo(String)} as a rule for free text, which may be empty. For a
+     * long field checked on every edit see {@link IncrementalContactInfoValidator}.
+     */
+    @Nonnull
+    public static ValidationReason checkNoContactInfo(@Nonnull CharSequence text) {
+        final boolean[] found = new boolean[1];
+        ContactInfoScanner.scan(text, new ContactInfoScanner.Listener() {
+            @Override
+            public boolean onMatch(@Nonnull ContactInfoScanner.Kind kind, long start, long end) {
+                found[0] = true;
+
+                return false;
+            }
+        });
+
+        return found[0] ? ValidationReason.CONTACT_INFO : ValidationReason.NONE;
+    }
+
+    public static ValidationResult<String> isValidEmailAddress(@Nonnull String text) {
+        return result(checkEmailAddress(text), text);
+    }
+
+    /**
+     * {@link #isValidEmailAddress(String)} without the result object.
+     */
+    @Nonnull
+    public static ValidationReason checkEmailAddress(@Nonnull CharSequence text) {
+        if (text.length() == 0) {
+            return ValidationReason.EMPTY;
+        }
+
+        return TextScanner.containsEmailAddress(text) ? ValidationReason.NONE : ValidationReason.EMAIL_INVALID;
+    }
+
+    private static ValidationResult<String> result(@Nonnull ValidationReason reason, @Nonnull String text) {
+        if (reason == ValidationReason.EMPTY) {
+            return EMPTY_INPUT;
+        }
+
+        return ValidationResult.of(reason, text);
+    }
+}
@@ -0,0 +1,49 @@
+package in.elanic.rxformvalidation;
+
+/**
+ * Validity of every field in a form, one bit per field. Fields start out invalid.
+ *
+ * Not thread safe, {@link FormValidator} only touches it from one serialized stream.
+ */
+class ValidityBits {
+
+    private final long[] words;
+    private final int size;
+    private int invalidCount;
+
+    ValidityBits(int size) {
+        this.size = size;
+        this.words = new long[(size + 63) >>> 6];
+        this.invalidCount = size;
+    }
+
+    /**
+     * @return true if this changed the bit.
+     */
+    boolean set(int index, boolean valid) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+
+        int word = index >>> 6;
+        long mask = 1L << index;
+        boolean wasValid = (words[word] & mask) != 0;
+        if (wasValid == valid) {
+            return false;
+        }
+
+        if (valid) {
+            words[word] |= mask;
+            invalidCount--;
+        } else {
+            words[word] &= ~mask;
+            invalidCount++;
+        }
+
+        return true;
+    }
+
+    boolean allValid() {
+        return invalidCount == 0;
+    }
+}
@@ -0,0 +1,159 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays typing traces against the old fixed 800ms debounce and the adaptive one.
+ */
+public class AdaptiveDebounceTest {
+
+    private static final String EMAIL = "john@example.com";
+
+    private static final Func1<ValidationResult<String>, Boolean> IS_VALID = new Func1<ValidationResult<String>, Boolean>() {
+        @Override
+        public Boolean call(ValidationResult<String> result) {
+            return result.isValid();
+        }
+    };
+
+    private TestScheduler scheduler;
+    private FakeAvailabilityChecker checker;
+    private PublishSubject<String> text;
+    private List<Long> remoteResultTimes;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        checker = new FakeAvailabilityChecker(scheduler, 1200);
+        text = PublishSubject.create();
+        remoteResultTimes = new ArrayList<>();
+    }
+
+    @Test
+    public void fastTypistGetsResultSooner() {
+        long fixedDone = run(fixedPolicy(), 120);
+        assertEquals(1, checker.calls.get());
+
+        setUp();
+        long adaptiveDone = run(adaptivePolicy(), 120);
+        assertEquals(1, checker.calls.get());
+
+        assertTrue("adaptive " + adaptiveDone + " fixed " + fixedDone, adaptiveDone + 400 < fixedDone);
+    }
+
+    @Test
+    public void slowTypistMakesFewerCalls() {
+        run(fixedPolicy(), 1000);
+        int fixedCalls = checker.calls.get();
+
+        setUp();
+        run(adaptivePolicy(), 1000);
+        int adaptiveCalls = checker.calls.get();
+
+        // "john@example.c", ".co" and ".com" each sit for longer than 800ms.
+        assertEquals(3, fixedCalls);
+        assertEquals(1, adaptiveCalls);
+    }
+
+    @Test
+    public void localFailuresAreNotDebounced() {
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        text.compose(validation(adaptivePolicy())).subscribe(subscriber);
+
+        text.onNext("jo");
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertFalse(subscriber.getOnNextEvents().get(0).isValid());
+        assertEquals(0, checker.calls.get());
+    }
+
+    @Test
+    public void windowStaysWithinBounds() {
+        DebouncePolicy policy = new DebouncePolicy(200, 1500, 800, TimeUnit.MILLISECONDS);
+        assertEquals(800, policy.getWindowMs());
+
+        for (int i = 0; i < 10; i++) {
+            policy.recordKeystroke(i * 10);
+        }
+        assertEquals(200, policy.getWindowMs());
+
+        for (int i = 0; i < 10; i++) {
+            policy.recordKeystroke(1000 + i * 1400);
+        }
+        assertEquals(1500, policy.getWindowMs());
+    }
+
+    @Test
+    public void pausesDoNotCountAsTypingSpeed() {
+        DebouncePolicy policy = new DebouncePolicy(100, 1500, 800, TimeUnit.MILLISECONDS);
+        policy.recordKeystroke(0);
+        policy.recordKeystroke(150);
+        policy.recordKeystroke(60000);
+        policy.recordKeystroke(60150);
+        assertEquals(150, policy.getKeystrokeIntervalMs());
+    }
+
+    @Test
+    public void remoteLatencyIsLearned() {
+        DebouncePolicy policy = adaptivePolicy();
+        run(policy, 120);
+        assertEquals(1200, policy.getRemoteLatencyMs());
+    }
+
+    /**
+     * Types {@link #EMAIL} and returns how long after the last keystroke the remote result came.
+     */
+    private long run(DebouncePolicy policy, long intervalMs) {
+        text.compose(validation(policy))
+                .filter(IS_VALID)
+                .subscribe(new Action1<ValidationResult<String>>() {
+                    @Override
+                    public void call(ValidationResult<String> result) {
+                        remoteResultTimes.add(scheduler.now());
+                    }
+                });
+
+        long lastKeystroke = TypingTrace.type(scheduler, text, EMAIL, 0, intervalMs);
+        scheduler.advanceTimeBy(lastKeystroke + 10000, TimeUnit.MILLISECONDS);
+        return remoteResultTimes.get(remoteResultTimes.size() - 1) - lastKeystroke;
+    }
+
+    private Observable.Transformer<String, ValidationResult<String>> validation(DebouncePolicy policy) {
+        return RemoteValidation.latestOnly(
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return ValidationUtils.isValidEmailAddress(s);
+                    }
+                },
+                new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        return checker.isEmailAvailable(s);
+                    }
+                }, policy, scheduler);
+    }
+
+    private static DebouncePolicy fixedPolicy() {
+        return new DebouncePolicy(800, 800, 800, TimeUnit.MILLISECONDS);
+    }
+
+    private static DebouncePolicy adaptivePolicy() {
+        return new DebouncePolicy(200, 2500, 800, TimeUnit.MILLISECONDS);
+    }
+}
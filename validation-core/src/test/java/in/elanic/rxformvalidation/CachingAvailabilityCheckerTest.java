@@ -0,0 +1,116 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CachingAvailabilityCheckerTest {
+
+    private TestScheduler scheduler;
+    private FakeAvailabilityChecker upstream;
+    private CachingAvailabilityChecker checker;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        upstream = new FakeAvailabilityChecker(scheduler, 1200);
+        upstream.taken.add("taken@example.com");
+        checker = new CachingAvailabilityChecker(upstream, 2, 10, 60, TimeUnit.SECONDS, scheduler);
+    }
+
+    @Test
+    public void secondLookupIsAnsweredFromCache() {
+        TestSubscriber<ValidationResult<String>> first = lookupEmail("john@example.com");
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+        first.assertTerminalEvent();
+
+        TestSubscriber<ValidationResult<String>> second = lookupEmail("john@example.com");
+        // No time passes, the cached result is emitted right away.
+        assertEquals(1, second.getOnNextEvents().size());
+        assertTrue(second.getOnNextEvents().get(0).isValid());
+        assertEquals(1, upstream.calls.get());
+        assertEquals(1, checker.getHitCount());
+        assertEquals(1, checker.getMissCount());
+    }
+
+    @Test
+    public void emailKeysAreCaseFolded() {
+        lookupEmail("John@Example.com");
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+
+        TestSubscriber<ValidationResult<String>> subscriber = lookupEmail("john@example.COM");
+        assertEquals(1, upstream.calls.get());
+        // The result carries the value we asked for, not the cached spelling.
+        assertEquals("john@example.COM", subscriber.getOnNextEvents().get(0).getData());
+    }
+
+    @Test
+    public void positiveAndNegativeResultsHaveSeparateTtls() {
+        lookupEmail("john@example.com");
+        lookupEmail("taken@example.com");
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        lookupEmail("john@example.com");
+        TestSubscriber<ValidationResult<String>> taken = lookupEmail("taken@example.com");
+
+        assertEquals(3, upstream.calls.get());
+        assertEquals(1, checker.getExpirationCount());
+        assertFalse(taken.getOnNextEvents().get(0).isValid());
+        assertEquals("Email is already taken", taken.getOnNextEvents().get(0).getReason());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() {
+        assertTrue(checker.isEmailAvailableSync("a@example.com").isValid());
+        checker.isEmailAvailableSync("b@example.com");
+        checker.isEmailAvailableSync("a@example.com");
+        checker.isEmailAvailableSync("c@example.com");
+
+        assertEquals(2, checker.size());
+        assertEquals(1, checker.getEvictionCount());
+
+        checker.isEmailAvailableSync("a@example.com");
+        assertEquals(3, upstream.calls.get());
+        checker.isEmailAvailableSync("b@example.com");
+        assertEquals(4, upstream.calls.get());
+    }
+
+    @Test
+    public void emailAndUsernameKeysDoNotCollide() {
+        checker.isEmailAvailableSync("john");
+        checker.isUsernameAvailableSync("john");
+        assertEquals(2, upstream.calls.get());
+    }
+
+    @Test
+    public void errorsAreNotCached() {
+        AvailabilityChecker failing = new FakeAvailabilityChecker(scheduler, 0) {
+            @Override
+            public rx.Observable<ValidationResult<String>> isEmailAvailable(String email) {
+                calls.incrementAndGet();
+                return rx.Observable.error(new RuntimeException("backend down"));
+            }
+        };
+        checker = new CachingAvailabilityChecker(failing, 2, 10, 60, TimeUnit.SECONDS, scheduler);
+
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        checker.isEmailAvailable("john@example.com").subscribe(subscriber);
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertEquals(0, checker.size());
+    }
+
+    private TestSubscriber<ValidationResult<String>> lookupEmail(String email) {
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        checker.isEmailAvailable(email).subscribe(subscriber);
+        return subscriber;
+    }
+}
@@ -0,0 +1,133 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingAvailabilityCheckerTest {
+
+    private TestScheduler scheduler;
+    private FakeAvailabilityChecker upstream;
+    private CoalescingAvailabilityChecker checker;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        upstream = new FakeAvailabilityChecker(scheduler, 1200);
+        checker = new CoalescingAvailabilityChecker(upstream);
+    }
+
+    @Test
+    public void concurrentLookupsShareOneCall() {
+        TestSubscriber<ValidationResult<String>> first = new TestSubscriber<>();
+        TestSubscriber<ValidationResult<String>> second = new TestSubscriber<>();
+        checker.isEmailAvailable("john@example.com").subscribe(first);
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        checker.isEmailAvailable("John@Example.com").subscribe(second);
+        scheduler.advanceTimeBy(700, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, upstream.calls.get());
+        assertEquals(1, checker.getCoalescedCallCount());
+        first.assertTerminalEvent();
+        second.assertTerminalEvent();
+        assertEquals("john@example.com", first.getOnNextEvents().get(0).getData());
+        assertEquals("John@Example.com", second.getOnNextEvents().get(0).getData());
+        assertEquals(0, checker.getInFlightCount());
+    }
+
+    @Test(timeout = 5000)
+    public void slowFactoryDoesNotBlockOtherKeys() throws InterruptedException {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CoalescingAvailabilityChecker slow = new CoalescingAvailabilityChecker(
+                new FakeAvailabilityChecker(scheduler, 0) {
+                    @Override
+                    public Observable<ValidationResult<String>> isEmailAvailable(String email) {
+                        if (email.startsWith("slow")) {
+                            entered.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+                        return super.isEmailAvailable(email);
+                    }
+                });
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                slow.isEmailAvailable("slow@example.com").subscribe(new TestSubscriber<ValidationResult<String>>());
+            }
+        });
+        thread.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        TestSubscriber<ValidationResult<String>> fast = new TestSubscriber<>();
+        slow.isEmailAvailable("fast@example.com").subscribe(fast);
+        scheduler.triggerActions();
+        release.countDown();
+        thread.join();
+
+        assertEquals(1, fast.getOnNextEvents().size());
+    }
+
+    @Test
+    public void completedCallsAreNotReused() {
+        checker.isUsernameAvailable("john").subscribe(new TestSubscriber<ValidationResult<String>>());
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+        checker.isUsernameAvailable("john").subscribe(new TestSubscriber<ValidationResult<String>>());
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+
+        assertEquals(2, upstream.calls.get());
+        assertEquals(0, checker.getCoalescedCallCount());
+    }
+
+    @Test
+    public void sharedCallSurvivesUntilLastSubscriberLeaves() {
+        Subscription first = checker.isEmailAvailable("john@example.com")
+                .subscribe(new TestSubscriber<ValidationResult<String>>());
+        TestSubscriber<ValidationResult<String>> second = new TestSubscriber<>();
+        Subscription secondSubscription = checker.isEmailAvailable("john@example.com").subscribe(second);
+
+        first.unsubscribe();
+        assertEquals(1, upstream.active());
+
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+        second.assertTerminalEvent();
+        assertEquals(1, second.getOnNextEvents().size());
+        secondSubscription.unsubscribe();
+    }
+
+    @Test
+    public void sharedCallIsCancelledWhenEveryoneLeaves() {
+        Subscription first = checker.isEmailAvailable("john@example.com")
+                .subscribe(new TestSubscriber<ValidationResult<String>>());
+        Subscription second = checker.isEmailAvailable("john@example.com")
+                .subscribe(new TestSubscriber<ValidationResult<String>>());
+
+        first.unsubscribe();
+        second.unsubscribe();
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+
+        assertEquals(0, upstream.active());
+        assertEquals(0, upstream.completions.get());
+        assertEquals(0, checker.getInFlightCount());
+
+        // Retyping the value starts a fresh call.
+        checker.isEmailAvailable("john@example.com").subscribe(new TestSubscriber<ValidationResult<String>>());
+        assertEquals(1, checker.getInFlightCount());
+        assertEquals(2, checker.getUpstreamCallCount());
+    }
+}
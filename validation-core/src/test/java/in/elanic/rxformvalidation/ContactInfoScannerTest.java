@@ -0,0 +1,186 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the reported spans against repeated find() with the regex of each kind.
+ */
+public class ContactInfoScannerTest {
+
+    private static final Pattern MOBILE_NUMBER = Pattern.compile("[7-9][0-9]{9}");
+    private static final Pattern DIGIT_RUN = Pattern.compile("[0-9]{5,}");
+    private static final Pattern EMAIL_ADDRESS = Pattern.compile(
+            "[a-zA-Z0-9\\+\\.\\_\\%\\-\\+]{1,256}\\@[a-zA-Z0-9]{1,64}\\.[a-zA-Z0-9]{1,25}");
+
+    private static final char[] ALPHABET = {
+            'a', 'Z', '0', '5', '7', '8', '9', '.', '_', '@', '+', '%', '-', ' ', '\n',
+    };
+
+    @Test
+    public void findsAllKindsInOnePass() {
+        String text = "call 9876543210 or 12345, mail john.doe@example.com";
+
+        List<String> matches = scan(text);
+
+        assertEquals(4, matches.size());
+        assertEquals("MOBILE_NUMBER 5 15", matches.get(0));
+        assertEquals("DIGIT_RUN 5 15", matches.get(1));
+        assertEquals("DIGIT_RUN 19 24", matches.get(2));
+        assertEquals("EMAIL_ADDRESS 31 51", matches.get(3));
+    }
+
+    @Test
+    public void randomInputsMatchRegexes() {
+        Random random = new Random(11);
+        StringBuilder builder = new StringBuilder();
+        for (int n = 0; n < 20000; n++) {
+            builder.setLength(0);
+            int length = random.nextInt(40);
+            for (int i = 0; i < length; i++) {
+                builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+            }
+
+            assertSameAsRegexes(builder.toString());
+        }
+    }
+
+    @Test
+    public void longPartsMatchRegexes() {
+        Random random = new Random(3);
+        StringBuilder builder = new StringBuilder();
+        for (int n = 0; n < 500; n++) {
+            builder.setLength(0);
+            builder.append(repeat('x', 250 + random.nextInt(10)));
+            builder.append('@');
+            builder.append(repeat('d', 60 + random.nextInt(8)));
+            builder.append('.');
+            builder.append(repeat('c', 20 + random.nextInt(10)));
+            builder.append(random.nextBoolean() ? "@b.c" : "");
+            builder.append(repeat('9', random.nextInt(25)));
+            assertSameAsRegexes(builder.toString());
+        }
+    }
+
+    @Test
+    public void readerGivesSameSpansAsText() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            builder.append("line ").append(i).append(": ping 98765").append(i % 100000)
+                    .append(" or user").append(i).append("@example.com\n");
+        }
+
+        String text = builder.toString();
+        final List<String> fromReader = new ArrayList<>();
+        ContactInfoScanner.scan(new StringReader(text), new ContactInfoScanner.Listener() {
+            @Override
+            public boolean onMatch(@Nonnull ContactInfoScanner.Kind kind, long start, long end) {
+                fromReader.add(kind + " " + start + " " + end);
+
+                return true;
+            }
+        });
+
+        assertEquals(scan(text), fromReader);
+    }
+
+    @Test
+    public void listenerCanStopTheScan() {
+        final List<String> matches = new ArrayList<>();
+        ContactInfoScanner scanner = new ContactInfoScanner(new ContactInfoScanner.Listener() {
+            @Override
+            public boolean onMatch(@Nonnull ContactInfoScanner.Kind kind, long start, long end) {
+                matches.add(kind + " " + start + " " + end);
+
+                return false;
+            }
+        });
+
+        scanner.feed("12345 a@b.c 67890");
+        scanner.finish();
+
+        assertTrue(scanner.isStopped());
+        assertEquals(1, matches.size());
+        // The run ends at the space, which is the last character scanned.
+        assertEquals(6, scanner.getPosition());
+    }
+
+    @Test
+    public void containsContactInfo() {
+        assertTrue(ValidationUtils.containsContactInfo("ping me at 9876543210"));
+        assertTrue(ValidationUtils.containsContactInfo("pin 560001"));
+        assertTrue(ValidationUtils.containsContactInfo("write to a@b.co"));
+        assertFalse(ValidationUtils.containsContactInfo("size 8, barely used, 1200 only"));
+        assertTrue(ValidationUtils.containsEmailAddress("write to a@b.co"));
+        assertFalse(ValidationUtils.containsEmailAddress("write to a@b"));
+    }
+
+    private static void assertSameAsRegexes(String text) {
+        List<String> expected = new ArrayList<>();
+        find(MOBILE_NUMBER, ContactInfoScanner.Kind.MOBILE_NUMBER, text, expected);
+        find(DIGIT_RUN, ContactInfoScanner.Kind.DIGIT_RUN, text, expected);
+        find(EMAIL_ADDRESS, ContactInfoScanner.Kind.EMAIL_ADDRESS, text, expected);
+
+        List<String> actual = scan(text);
+
+        // The scanner reports in the order matches end, so compare per kind.
+        for (ContactInfoScanner.Kind kind : ContactInfoScanner.Kind.values()) {
+            assertEquals(text, only(kind, expected), only(kind, actual));
+        }
+    }
+
+    private static void find(Pattern pattern, ContactInfoScanner.Kind kind, String text,
+                             List<String> out) {
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            out.add(kind + " " + matcher.start() + " " + matcher.end());
+        }
+    }
+
+    private static List<String> only(ContactInfoScanner.Kind kind, List<String> matches) {
+        List<String> filtered = new ArrayList<>();
+        for (String match : matches) {
+            if (match.startsWith(kind + " ")) {
+                filtered.add(match);
+            }
+        }
+
+        return filtered;
+    }
+
+    private static List<String> scan(String text) {
+        final List<String> matches = new ArrayList<>();
+        ContactInfoScanner.scan(text, new ContactInfoScanner.Listener() {
+            @Override
+            public boolean onMatch(@Nonnull ContactInfoScanner.Kind kind, long start, long end) {
+                matches.add(kind + " " + start + " " + end);
+
+                return true;
+            }
+        });
+
+        return matches;
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder builder = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            builder.append(c);
+        }
+
+        return builder.toString();
+    }
+}
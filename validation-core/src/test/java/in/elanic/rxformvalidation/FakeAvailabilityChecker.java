@@ -0,0 +1,99 @@
+package in.elanic.rxformvalidation;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.functions.Func0;
+
+/**
+ * AvailabilityChecker for tests. Values in {@link #taken} are unavailable, everything else is
+ * available. Results come after {@link #delayMs} on the given scheduler, or after the value's
+ * entry in {@link #delays}. Counts calls, subscriptions and
+ * cancellations so tests can check what reached the "backend".
+ */
+class FakeAvailabilityChecker implements AvailabilityChecker {
+
+    final Set<String> taken = new HashSet<>();
+    final Map<String, Long> delays = new HashMap<>();
+    final AtomicInteger calls = new AtomicInteger();
+    final AtomicInteger subscriptions = new AtomicInteger();
+    final AtomicInteger unsubscriptions = new AtomicInteger();
+    final AtomicInteger completions = new AtomicInteger();
+
+    private final Scheduler scheduler;
+    long delayMs;
+
+    FakeAvailabilityChecker(Scheduler scheduler, long delayMs) {
+        this.scheduler = scheduler;
+        this.delayMs = delayMs;
+    }
+
+    int active() {
+        return subscriptions.get() - unsubscriptions.get();
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isEmailAvailable(String email) {
+        return lookup(email, ValidationReason.EMAIL_TAKEN);
+    }
+
+    @Override
+    public Observable<ValidationResult<String>> isUsernameAvailable(String username) {
+        return lookup(username, ValidationReason.USERNAME_TAKEN);
+    }
+
+    @Override
+    public ValidationResult<String> isEmailAvailableSync(String email) {
+        calls.incrementAndGet();
+        return result(email, ValidationReason.EMAIL_TAKEN);
+    }
+
+    @Override
+    public ValidationResult<String> isUsernameAvailableSync(String username) {
+        calls.incrementAndGet();
+        return result(username, ValidationReason.USERNAME_TAKEN);
+    }
+
+    private Observable<ValidationResult<String>> lookup(final String value, final ValidationReason reason) {
+        return Observable.defer(new Func0<Observable<ValidationResult<String>>>() {
+            @Override
+            public Observable<ValidationResult<String>> call() {
+                calls.incrementAndGet();
+                return Observable.just(result(value, reason));
+            }
+        }).delay(delays.containsKey(value) ? delays.get(value) : delayMs, TimeUnit.MILLISECONDS, scheduler)
+                .doOnSubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        subscriptions.incrementAndGet();
+                    }
+                })
+                .doOnCompleted(new Action0() {
+                    @Override
+                    public void call() {
+                        completions.incrementAndGet();
+                    }
+                })
+                .doOnUnsubscribe(new Action0() {
+                    @Override
+                    public void call() {
+                        unsubscriptions.incrementAndGet();
+                    }
+                });
+    }
+
+    private ValidationResult<String> result(String value, ValidationReason reason) {
+        if (taken.contains(value)) {
+            return ValidationResult.failure(reason, value);
+        }
+
+        return ValidationResult.success(value);
+    }
+}
@@ -0,0 +1,136 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link FieldRules} against the hand-written rules, and the order failures are
+ * reported in.
+ */
+public class FieldRuleTest {
+
+    private static final char[] ALPHABET = {
+            'a', 'Z', '0', '5', '7', '8', '9', '.', '_', '@', '+', '%', '-', ' ', '\n', '\r', '\u2029', '\u00e9',
+    };
+
+    @Test
+    public void randomInputsMatchHandWrittenRules() {
+        Random random = new Random(17);
+        StringBuilder builder = new StringBuilder();
+        for (int n = 0; n < 50000; n++) {
+            builder.setLength(0);
+            int length = random.nextInt(24);
+            for (int i = 0; i < length; i++) {
+                builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+            }
+            String text = builder.toString();
+
+            assertEquals(text, ValidationUtils.checkPhoneNumber(text), FieldRules.PHONE_NUMBER.check(text));
+            assertEquals(text, ValidationUtils.checkEmailAddress(text), FieldRules.EMAIL_ADDRESS.check(text));
+            assertEquals(text, ValidationUtils.checkUsername(text), FieldRules.USERNAME.check(text));
+        }
+    }
+
+    @Test
+    public void validUsernameAndPhone() {
+        assertTrue(FieldRules.USERNAME.validate("john_doe.91").isValid());
+        assertEquals(ValidationReason.USERNAME_TOO_SHORT, FieldRules.USERNAME.check("jo"));
+        assertEquals(ValidationReason.USERNAME_INVALID_CHARACTERS, FieldRules.USERNAME.check("9john"));
+        assertEquals(ValidationReason.EMPTY, FieldRules.USERNAME.check(""));
+        assertEquals(ValidationReason.USERNAME_TOO_SHORT, FieldRules.USERNAME.check("a\n"));
+        assertEquals(ValidationReason.USERNAME_INVALID_CHARACTERS, FieldRules.USERNAME.check("ab\n"));
+        assertTrue(FieldRules.USERNAME.validate("abc\n").isValid());
+        assertTrue(FieldRules.PHONE_NUMBER.validate("9876543210").isValid());
+        assertEquals(ValidationReason.PHONE_INVALID, FieldRules.PHONE_NUMBER.check("6876543210"));
+    }
+
+    @Test
+    public void firstDeclaredRuleWins() {
+        FieldRule rule = new FieldRule.Builder()
+                .allChars(CharClass.DIGITS, ValidationReason.PHONE_INVALID)
+                .maxLength(3, ValidationReason.USERNAME_TOO_SHORT)
+                .build();
+
+        assertEquals(ValidationReason.PHONE_INVALID, rule.check("12a45"));
+        assertEquals(ValidationReason.USERNAME_TOO_SHORT, rule.check("12345"));
+        assertEquals(ValidationReason.NONE, rule.check("123"));
+        assertEquals(ValidationReason.NONE, rule.check(""));
+    }
+
+    @Test
+    public void laterFailureInTheTextDoesNotHideEarlierRule() {
+        FieldRule rule = new FieldRule.Builder()
+                .lastChars(2, CharClass.DIGITS, ValidationReason.PHONE_INVALID)
+                .firstChar(CharClass.LETTERS, ValidationReason.USERNAME_INVALID_CHARACTERS)
+                .build();
+
+        // The first character breaks the second rule before the scan reaches the first one's
+        assertEquals(ValidationReason.PHONE_INVALID, rule.check("1bcd"));
+        assertEquals(ValidationReason.USERNAME_INVALID_CHARACTERS, rule.check("1b23"));
+        assertEquals(ValidationReason.PHONE_INVALID, rule.check("1"));
+    }
+
+    @Test
+    public void prefixAndPattern() {
+        FieldRule rule = new FieldRule.Builder()
+                .startsWith("+91", ValidationReason.PHONE_INVALID).message("Add the country code")
+                .matches(Pattern.compile("\\+91[0-9]{10}"), ValidationReason.PHONE_INVALID)
+                .build();
+
+        ValidationResult<String> result = rule.validate("9876543210");
+        assertFalse(result.isValid());
+        assertEquals(ValidationReason.CUSTOM, result.getReasonCode());
+        assertEquals("Add the country code", result.getReason());
+        assertEquals(ValidationReason.PHONE_INVALID, rule.check("+91987"));
+        assertTrue(rule.validate("+919876543210").isValid());
+        assertEquals(2, rule.getRuleCount());
+    }
+
+    @Test
+    public void predicatesOnlyRunWhenEarlierRulesPass() {
+        final AtomicInteger calls = new AtomicInteger();
+        FieldRule rule = new FieldRule.Builder()
+                .required(ValidationReason.EMPTY)
+                .minLength(3, ValidationReason.USERNAME_TOO_SHORT)
+                .check(new FieldRule.Predicate() {
+                    @Override
+                    public boolean test(@Nonnull CharSequence text) {
+                        calls.incrementAndGet();
+                        return !"root".contentEquals(text);
+                    }
+                }, ValidationReason.USERNAME_TAKEN)
+                .build();
+
+        assertEquals(ValidationReason.EMPTY, rule.check(""));
+        assertEquals(ValidationReason.USERNAME_TOO_SHORT, rule.check("ro"));
+        assertEquals(0, calls.get());
+        assertEquals(ValidationReason.USERNAME_TAKEN, rule.check("root"));
+        assertEquals(ValidationReason.NONE, rule.check("john"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void charClasses() {
+        CharClass chars = CharClass.range('a', 'c').or("_~");
+
+        assertTrue(chars.contains('b'));
+        assertTrue(chars.contains('~'));
+        assertFalse(chars.contains('d'));
+        assertFalse(chars.contains('\u00e1'));
+        assertFalse(CharClass.LETTERS_OR_DIGITS.contains('.'));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rulesMustFail() {
+        new FieldRule.Builder().required(ValidationReason.NONE);
+    }
+}
@@ -0,0 +1,227 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FormValidatorTest {
+
+    private static final int FIELD_COUNT = 70;
+
+    private static final Func1<String, ValidationResult<String>> NOT_EMPTY = new Func1<String, ValidationResult<String>>() {
+        @Override
+        public ValidationResult<String> call(String s) {
+            return s.isEmpty() ? ValidationResult.failure("required", s) : ValidationResult.success(s);
+        }
+    };
+
+    private TestScheduler scheduler;
+    private FormValidator validator;
+    private List<PublishSubject<String>> texts;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        validator = new FormValidator(scheduler);
+        texts = new ArrayList<>();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            PublishSubject<String> text = PublishSubject.create();
+            texts.add(text);
+            validator.addField("field" + i, text, NOT_EMPTY);
+        }
+    }
+
+    @Test
+    public void emitsOnlyWhenSubmitStateChanges() {
+        TestSubscriber<Boolean> submit = new TestSubscriber<>();
+        validator.submitEnabled().subscribe(submit);
+
+        for (PublishSubject<String> text : texts) {
+            text.onNext("a");
+            text.onNext("ab");
+        }
+        assertEquals(Arrays.asList(false, true), submit.getOnNextEvents());
+
+        texts.get(65).onNext("");
+        texts.get(3).onNext("");
+        texts.get(65).onNext("x");
+        assertEquals(Arrays.asList(false, true, false), submit.getOnNextEvents());
+
+        texts.get(3).onNext("x");
+        assertEquals(Arrays.asList(false, true, false, true), submit.getOnNextEvents());
+    }
+
+    @Test
+    public void fieldsWithoutResultsCountAsInvalid() {
+        TestSubscriber<Boolean> submit = new TestSubscriber<>();
+        validator.submitEnabled().subscribe(submit);
+
+        for (int i = 1; i < FIELD_COUNT; i++) {
+            texts.get(i).onNext("a");
+        }
+        assertEquals(Arrays.asList(false), submit.getOnNextEvents());
+    }
+
+    @Test
+    public void remoteFieldsAreCheckedOnceForResultsAndSubmitState() {
+        final FakeAvailabilityChecker checker = new FakeAvailabilityChecker(scheduler, 1200);
+        validator = new FormValidator(scheduler);
+        PublishSubject<String> username = PublishSubject.create();
+        PublishSubject<String> phone = PublishSubject.create();
+        FormValidator.Field usernameField = validator.addField("username", username,
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return ValidationUtils.isValidUsername(s);
+                    }
+                },
+                new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        return checker.isUsernameAvailable(s);
+                    }
+                },
+                new DebouncePolicy(800, 800, 800, TimeUnit.MILLISECONDS));
+        validator.addField("phone", phone, NOT_EMPTY);
+
+        TestSubscriber<ValidationResult<String>> usernameResults = new TestSubscriber<>();
+        TestSubscriber<Boolean> submit = new TestSubscriber<>();
+        usernameField.results().subscribe(usernameResults);
+        validator.submitEnabled().subscribe(submit);
+
+        phone.onNext("9876543210");
+        username.onNext("john");
+        scheduler.advanceTimeBy(5000, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, checker.calls.get());
+        assertEquals(1, usernameResults.getOnNextEvents().size());
+        assertEquals(Arrays.asList(false, true), submit.getOnNextEvents());
+    }
+
+    @Test
+    public void crossFieldRulesOnlyRunWhenTheirInputsChange() {
+        final AtomicInteger calls = new AtomicInteger();
+        FormValidator.Rule same = validator.addRule("field1 equals field2", new Func1<String[], ValidationResult<String>>() {
+            @Override
+            public ValidationResult<String> call(String[] values) {
+                calls.incrementAndGet();
+                return values[0].equals(values[1]) ? ValidationResult.success(values[1])
+                        : ValidationResult.failure("must match", values[1]);
+            }
+        }, validator.getField(1), validator.getField(2));
+
+        TestSubscriber<ValidationResult<String>> results = new TestSubscriber<>();
+        same.results().subscribe(results);
+
+        texts.get(1).onNext("a");
+        assertEquals(0, calls.get());
+        texts.get(2).onNext("b");
+        texts.get(0).onNext("x");
+        texts.get(1).onNext("b");
+        texts.get(1).onNext("b");
+        texts.get(69).onNext("y");
+
+        assertEquals(2, calls.get());
+        assertEquals(2, validator.getRuleEvaluationCount());
+        assertEquals(2, results.getOnNextEvents().size());
+        assertFalse(results.getOnNextEvents().get(0).isValid());
+        assertTrue(results.getOnNextEvents().get(1).isValid());
+    }
+
+    @Test
+    public void rulesUsingRulesRunInDependencyOrder() {
+        final List<String> order = new ArrayList<>();
+        // field0 trimmed, then compared with field1
+        FormValidator.Rule trimmed = validator.addRule("trimmed", new Func1<String[], ValidationResult<String>>() {
+            @Override
+            public ValidationResult<String> call(String[] values) {
+                order.add("trimmed");
+                return ValidationResult.success(values[0].trim());
+            }
+        }, validator.getField(0));
+        FormValidator.Rule matches = validator.addRule("matches", new Func1<String[], ValidationResult<String>>() {
+            @Override
+            public ValidationResult<String> call(String[] values) {
+                order.add("matches " + values[0] + "=" + values[1]);
+                return values[0].equals(values[1]) ? ValidationResult.success(values[0])
+                        : ValidationResult.failure("must match", values[0]);
+            }
+        }, trimmed, validator.getField(1));
+
+        TestSubscriber<ValidationResult<String>> results = new TestSubscriber<>();
+        matches.results().subscribe(results);
+
+        texts.get(1).onNext("ab");
+        texts.get(0).onNext("ab ");
+        // Same trimmed value, so "matches" keeps its result
+        texts.get(0).onNext(" ab");
+        texts.get(0).onNext("abc");
+
+        assertEquals(Arrays.asList("trimmed", "matches ab=ab", "trimmed", "trimmed", "matches abc=ab"), order);
+        assertEquals(2, results.getOnNextEvents().size());
+        assertTrue(results.getOnNextEvents().get(0).isValid());
+        assertFalse(results.getOnNextEvents().get(1).isValid());
+    }
+
+    @Test
+    public void rulesCountTowardsSubmitState() {
+        validator.addRule("field0 differs from field1", new Func1<String[], ValidationResult<String>>() {
+            @Override
+            public ValidationResult<String> call(String[] values) {
+                return values[0].equals(values[1]) ? ValidationResult.failure("must differ", values[0])
+                        : ValidationResult.success(values[0]);
+            }
+        }, validator.getField(0), validator.getField(1));
+
+        TestSubscriber<Boolean> submit = new TestSubscriber<>();
+        validator.submitEnabled().subscribe(submit);
+
+        for (PublishSubject<String> text : texts) {
+            text.onNext("a");
+        }
+        assertEquals(Arrays.asList(false), submit.getOnNextEvents());
+
+        texts.get(1).onNext("b");
+        assertEquals(Arrays.asList(false, true), submit.getOnNextEvents());
+    }
+
+    @Test
+    public void keystrokeInLargeFormRunsOnlyItsRules() {
+        // A rule for every pair of neighbouring fields
+        for (int i = 0; i + 1 < FIELD_COUNT; i++) {
+            validator.addRule("pair" + i, new Func1<String[], ValidationResult<String>>() {
+                @Override
+                public ValidationResult<String> call(String[] values) {
+                    return ValidationResult.success(values[0] + values[1]);
+                }
+            }, validator.getField(i), validator.getField(i + 1));
+        }
+
+        TestSubscriber<Boolean> submit = new TestSubscriber<>();
+        validator.submitEnabled().subscribe(submit);
+        for (PublishSubject<String> text : texts) {
+            text.onNext("a");
+        }
+        assertEquals(FIELD_COUNT - 1, validator.getRuleEvaluationCount());
+        assertEquals(Arrays.asList(false, true), submit.getOnNextEvents());
+
+        texts.get(30).onNext("ab");
+
+        assertEquals(FIELD_COUNT - 1 + 2, validator.getRuleEvaluationCount());
+    }
+}
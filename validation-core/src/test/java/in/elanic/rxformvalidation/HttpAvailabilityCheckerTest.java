@@ -0,0 +1,168 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HttpAvailabilityCheckerTest {
+
+    private LocalAvailabilityServer server;
+    private HttpAvailabilityChecker checker;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new LocalAvailabilityServer();
+        server.addTaken("taken@example.com");
+        server.addTaken("john");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (checker != null) {
+            checker.close();
+        }
+
+        server.close();
+    }
+
+    @Test
+    public void answersAvailableAndTaken() throws IOException {
+        checker = newChecker(2, 4);
+
+        assertTrue(checker.isEmailAvailableSync("free@example.com").isValid());
+        ValidationResult<String> taken = checker.isEmailAvailableSync("taken@example.com");
+        assertFalse(taken.isValid());
+        assertEquals("Email is already taken", taken.getReason());
+        assertFalse(checker.isUsernameAvailableSync("john").isValid());
+        assertTrue(checker.isUsernameAvailableSync("jane doe+&?").isValid());
+    }
+
+    @Test
+    public void sequentialLookupsReuseOneConnection() throws IOException {
+        checker = newChecker(4, 4);
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(checker.isUsernameAvailableSync("user" + i).isValid());
+        }
+
+        assertEquals(1, server.getAcceptedConnectionCount());
+        assertEquals(1, checker.getConnectionsOpenedCount());
+        assertEquals(20, checker.getRequestCount());
+    }
+
+    @Test
+    public void concurrentLookupsArePipelinedOnBoundedConnections() throws IOException {
+        server.setResponseDelay(20, TimeUnit.MILLISECONDS);
+        checker = newChecker(2, 8);
+
+        List<TestSubscriber<ValidationResult<String>>> subscribers = lookups(16);
+        for (TestSubscriber<ValidationResult<String>> subscriber : subscribers) {
+            subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+            subscriber.assertNoErrors();
+            assertEquals(1, subscriber.getOnNextEvents().size());
+        }
+
+        assertTrue(server.getAcceptedConnectionCount() <= 2);
+        assertEquals(16, checker.getRequestCount());
+        assertTrue(checker.getPipelinedCount() >= 14);
+    }
+
+    @Test
+    public void lookupsBeyondThePoolWaitInTheQueue() throws IOException {
+        server.setResponseDelay(200, TimeUnit.MILLISECONDS);
+        checker = newChecker(1, 2);
+
+        List<TestSubscriber<ValidationResult<String>>> subscribers = lookups(6);
+        sleep(100);
+        assertEquals(4, checker.getQueuedCount());
+
+        for (TestSubscriber<ValidationResult<String>> subscriber : subscribers) {
+            subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+            subscriber.assertNoErrors();
+        }
+
+        assertEquals(1, server.getAcceptedConnectionCount());
+        assertEquals(0, checker.getQueuedCount());
+    }
+
+    @Test
+    public void reconnectsWhenServerClosesConnections() throws IOException {
+        server.setMaxRequestsPerConnection(2);
+        checker = newChecker(1, 1);
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(checker.isEmailAvailableSync("user" + i + "@example.com").isValid());
+        }
+
+        assertEquals(3, server.getAcceptedConnectionCount());
+    }
+
+    @Test
+    public void cancelledLookupDoesNotBreakThePipeline() throws IOException {
+        server.setResponseDelay(100, TimeUnit.MILLISECONDS);
+        checker = newChecker(1, 4);
+
+        TestSubscriber<ValidationResult<String>> cancelled = new TestSubscriber<>();
+        Subscription subscription = checker.isEmailAvailable("taken@example.com").subscribe(cancelled);
+        TestSubscriber<ValidationResult<String>> next = new TestSubscriber<>();
+        checker.isEmailAvailable("free@example.com").subscribe(next);
+        sleep(20);
+        subscription.unsubscribe();
+
+        next.awaitTerminalEvent(10, TimeUnit.SECONDS);
+        assertTrue(next.getOnNextEvents().get(0).isValid());
+        assertEquals(0, cancelled.getOnNextEvents().size());
+        assertEquals(1, server.getAcceptedConnectionCount());
+    }
+
+    @Test
+    public void failsLookupsWhenServerIsDown() throws IOException {
+        int port = server.getPort();
+        server.close();
+        checker = new HttpAvailabilityChecker("127.0.0.1", port, 1, 1);
+
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        checker.isEmailAvailable("a@example.com").subscribe(subscriber);
+        subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+
+        assertEquals(1, subscriber.getOnErrorEvents().size());
+        assertTrue(subscriber.getOnErrorEvents().get(0) instanceof IOException);
+    }
+
+    private HttpAvailabilityChecker newChecker(int maxConnections, int maxPipelineDepth) throws IOException {
+        return new HttpAvailabilityChecker(server.getHost(), server.getPort(), maxConnections, maxPipelineDepth);
+    }
+
+    private List<TestSubscriber<ValidationResult<String>>> lookups(int count) {
+        List<TestSubscriber<ValidationResult<String>>> subscribers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+            Observable<ValidationResult<String>> lookup = checker.isUsernameAvailable("user" + i);
+            lookup.subscribe(subscriber);
+            subscribers.add(subscriber);
+        }
+
+        return subscribers;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks every edit against a full rescan with {@link ValidationUtils}.
+ */
+public class IncrementalContactInfoValidatorTest {
+
+    private static final char[] ALPHABET = {
+            'a', 'Z', '0', '5', '7', '8', '9', '.', '_', '@', '+', '%', '-', ' ', '\n',
+    };
+
+    // Long alphanumeric runs, to reach the longest domains
+    private static final char[] DOMAIN_ALPHABET = {
+            'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', 'a', '.', '@',
+    };
+
+    @Test
+    public void findsContactInfoTypedOneCharacterAtATime() {
+        IncrementalContactInfoValidator validator = new IncrementalContactInfoValidator();
+        StringBuilder text = new StringBuilder();
+        validator.reset(text);
+
+        String typed = "call me on 98765 43210 or mail john@example.com";
+        for (int i = 0; i < typed.length(); i++) {
+            text.append(typed.charAt(i));
+            validator.update(text, i, 0, 1);
+            assertEquals(text.toString(), ValidationUtils.checkNoContactInfo(text), validator.check());
+        }
+
+        assertTrue(validator.containsDigitRun());
+        assertFalse(validator.containsMobileNumber());
+        assertTrue(validator.containsEmailAddress());
+        assertEquals(1, validator.getFullScanCount());
+    }
+
+    @Test
+    public void deletingTheMatchClearsIt() {
+        IncrementalContactInfoValidator validator = new IncrementalContactInfoValidator();
+        StringBuilder text = new StringBuilder("text me at 9876543210 please");
+        assertEquals(ValidationReason.CONTACT_INFO, validator.reset(text));
+        assertTrue(validator.containsMobileNumber());
+
+        text.delete(11, 22);
+
+        assertEquals(ValidationReason.NONE, validator.update(text, 11, 11, 0));
+        assertFalse(validator.containsContactInfo());
+    }
+
+    @Test
+    public void randomEditsMatchFullRescan() {
+        assertSameAsFullRescan(new Random(23), ALPHABET, 200);
+    }
+
+    @Test
+    public void randomEditsAroundLongDomainsMatchFullRescan() {
+        assertSameAsFullRescan(new Random(29), DOMAIN_ALPHABET, 400);
+    }
+
+    private static void assertSameAsFullRescan(Random random, char[] alphabet, int maxLength) {
+        for (int n = 0; n < 300; n++) {
+            IncrementalContactInfoValidator validator = new IncrementalContactInfoValidator();
+            StringBuilder text = new StringBuilder(randomText(random, alphabet, random.nextInt(maxLength)));
+            validator.reset(text);
+
+            for (int edit = 0; edit < 100; edit++) {
+                int start = random.nextInt(text.length() + 1);
+                int before = random.nextInt(Math.min(text.length() - start, 12) + 1);
+                String inserted = randomText(random, alphabet, random.nextInt(12));
+                text.replace(start, start + before, inserted);
+
+                ValidationReason reason = validator.update(text, start, before, inserted.length());
+
+                String current = text.toString();
+                assertEquals(current, ValidationUtils.checkNoContactInfo(current), reason);
+                assertEquals(current, ValidationUtils.containsMobileNumber(current), validator.containsMobileNumber());
+                assertEquals(current, ValidationUtils.containsFourConsecutiveNumbers(current), validator.containsDigitRun());
+                assertEquals(current, ValidationUtils.containsEmailAddress(current), validator.containsEmailAddress());
+            }
+
+            assertEquals(1, validator.getFullScanCount());
+        }
+    }
+
+    @Test
+    public void editCostDoesNotDependOnTextLength() {
+        Random random = new Random(5);
+        IncrementalContactInfoValidator validator = new IncrementalContactInfoValidator();
+        StringBuilder text = new StringBuilder(randomText(random, ALPHABET, 100000));
+        validator.reset(text);
+        long fullScan = validator.getScannedCharCount();
+
+        text.insert(50000, '7');
+        validator.update(text, 50000, 0, 1);
+
+        long edit = validator.getScannedCharCount() - fullScan;
+        assertTrue("scanned " + edit, edit < 100);
+        assertEquals(ValidationUtils.checkNoContactInfo(text), validator.check());
+    }
+
+    @Test
+    public void eventThatDoesNotFitFallsBackToFullScan() {
+        IncrementalContactInfoValidator validator = new IncrementalContactInfoValidator();
+        validator.reset("hello");
+
+        assertEquals(ValidationReason.CONTACT_INFO, validator.update("write to a@b.co", 5, 0, 1));
+        assertEquals(2, validator.getFullScanCount());
+        assertEquals(15, validator.getLength());
+    }
+
+    @Test
+    public void resultHasContactInfoMessage() {
+        ValidationResult<String> result = ValidationResult.of(ValidationUtils.checkNoContactInfo("a@b.co"), "a@b.co");
+
+        assertFalse(result.isValid());
+        assertEquals("Please don't share phone numbers or email addresses", result.getReason());
+        assertEquals(ValidationReason.NONE, ValidationUtils.checkNoContactInfo(""));
+    }
+
+    private static String randomText(Random random, char[] alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+
+        return builder.toString();
+    }
+}
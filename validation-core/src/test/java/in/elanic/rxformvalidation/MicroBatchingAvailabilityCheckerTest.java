@@ -0,0 +1,165 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MicroBatchingAvailabilityCheckerTest {
+
+    private TestScheduler scheduler;
+    private FakeBatchChecker upstream;
+    private MicroBatchingAvailabilityChecker checker;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        upstream = new FakeBatchChecker();
+        checker = new MicroBatchingAvailabilityChecker(upstream, 10, TimeUnit.MILLISECONDS, 3, scheduler);
+    }
+
+    @Test
+    public void lookupsWithinWindowAreSentTogether() {
+        TestSubscriber<ValidationResult<String>> john = lookup("john");
+        TestSubscriber<ValidationResult<String>> taken = lookup("taken");
+        scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+        assertTrue(upstream.batches.isEmpty());
+
+        scheduler.advanceTimeBy(5, TimeUnit.MILLISECONDS);
+        assertEquals(1, upstream.batches.size());
+        assertEquals(2, upstream.batches.get(0).size());
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        john.assertTerminalEvent();
+        assertTrue(john.getOnNextEvents().get(0).isValid());
+        assertEquals("john", john.getOnNextEvents().get(0).getData());
+        assertFalse(taken.getOnNextEvents().get(0).isValid());
+    }
+
+    @Test
+    public void fullBatchIsSentImmediately() {
+        lookup("a");
+        lookup("b");
+        lookup("c");
+        assertEquals(1, upstream.batches.size());
+
+        lookup("d");
+        scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+        assertEquals(2, upstream.batches.size());
+        assertEquals(1, upstream.batches.get(1).size());
+        assertEquals(2, checker.getBatchCount());
+        assertEquals(4, checker.getBatchedLookupCount());
+    }
+
+    @Test
+    public void duplicateValuesAreSentOnce() {
+        TestSubscriber<ValidationResult<String>> first = lookup("john");
+        TestSubscriber<ValidationResult<String>> second = lookup("john");
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, upstream.batches.get(0).size());
+        first.assertTerminalEvent();
+        second.assertTerminalEvent();
+    }
+
+    @Test
+    public void unsubscribedLookupsAreDroppedFromPendingBatch() {
+        Subscription subscription = checker.isUsernameAvailable("john")
+                .subscribe(new TestSubscriber<ValidationResult<String>>());
+        subscription.unsubscribe();
+        scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        assertTrue(upstream.batches.isEmpty());
+    }
+
+    @Test
+    public void sentBatchIsCancelledWhenEveryoneLeaves() {
+        Subscription first = checker.isUsernameAvailable("a").subscribe(new TestSubscriber<ValidationResult<String>>());
+        Subscription second = checker.isUsernameAvailable("b").subscribe(new TestSubscriber<ValidationResult<String>>());
+        scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+
+        first.unsubscribe();
+        assertEquals(0, upstream.cancelled);
+        second.unsubscribe();
+        assertEquals(1, upstream.cancelled);
+    }
+
+    @Test
+    public void batchErrorsReachEverySubscriber() {
+        upstream.error = new RuntimeException("backend down");
+        TestSubscriber<ValidationResult<String>> first = lookup("a");
+        TestSubscriber<ValidationResult<String>> second = lookup("b");
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, first.getOnErrorEvents().size());
+        assertEquals(1, second.getOnErrorEvents().size());
+    }
+
+    @Test
+    public void closeFailsPendingLookupsAndStopsTheTimer() {
+        TestSubscriber<ValidationResult<String>> pending = lookup("a");
+        checker.close();
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, pending.getOnErrorEvents().size());
+        assertTrue(upstream.batches.isEmpty());
+        assertEquals(1, lookup("b").getOnErrorEvents().size());
+    }
+
+    private TestSubscriber<ValidationResult<String>> lookup(String username) {
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        checker.isUsernameAvailable(username).subscribe(subscriber);
+        return subscriber;
+    }
+
+    private class FakeBatchChecker implements BatchAvailabilityChecker {
+
+        final List<List<String>> batches = new ArrayList<>();
+        int cancelled;
+        RuntimeException error;
+
+        @Override
+        public Observable<Map<String, ValidationResult<String>>> isEmailsAvailable(Collection<String> emails) {
+            return isUsernamesAvailable(emails);
+        }
+
+        @Override
+        public Observable<Map<String, ValidationResult<String>>> isUsernamesAvailable(Collection<String> usernames) {
+            batches.add(new ArrayList<>(usernames));
+            if (error != null) {
+                return Observable.error(error);
+            }
+
+            Map<String, ValidationResult<String>> results = new HashMap<>();
+            for (String username : usernames) {
+                results.put(username, "taken".equals(username)
+                        ? ValidationResult.failure("Username is already taken", username)
+                        : ValidationResult.success(username));
+            }
+
+            return Observable.just(results)
+                    .delay(100, TimeUnit.MILLISECONDS, scheduler)
+                    .doOnUnsubscribe(new Action0() {
+                        @Override
+                        public void call() {
+                            cancelled++;
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentAvailabilityCheckerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestScheduler scheduler;
+    private FakeAvailabilityChecker upstream;
+    private File file;
+    private PersistentAvailabilityChecker checker;
+
+    @Before
+    public void setUp() throws IOException {
+        scheduler = new TestScheduler();
+        upstream = new FakeAvailabilityChecker(scheduler, 1200);
+        upstream.taken.add("taken@example.com");
+        upstream.taken.add("taken");
+        file = new File(folder.getRoot(), "availability.cache");
+        checker = open(100);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        checker.close();
+    }
+
+    @Test
+    public void warmStartAnswersWithoutUpstream() throws IOException {
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        checker.isEmailAvailable("John@Example.com").subscribe(subscriber);
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+        subscriber.assertTerminalEvent();
+        checker.isEmailAvailableSync("taken@example.com");
+        checker.isUsernameAvailableSync("taken");
+        assertEquals(3, upstream.calls.get());
+        checker.close();
+
+        checker = open(100);
+        assertEquals(3, checker.size());
+        assertTrue(checker.isEmailAvailableSync("john@example.com").isValid());
+        ValidationResult<String> email = checker.isEmailAvailableSync("taken@example.com");
+        assertFalse(email.isValid());
+        assertEquals("Email is already taken", email.getReason());
+        ValidationResult<String> username = checker.isUsernameAvailableSync("taken");
+        assertEquals("Username is already taken", username.getReason());
+        assertEquals(3, upstream.calls.get());
+        assertEquals(3, checker.getHitCount());
+    }
+
+    @Test
+    public void emailAndUsernameKeysDoNotCollide() throws IOException {
+        assertTrue(checker.isUsernameAvailableSync("john").isValid());
+        upstream.taken.add("john");
+
+        assertFalse(checker.isEmailAvailableSync("john").isValid());
+        assertEquals(2, upstream.calls.get());
+    }
+
+    @Test
+    public void noValuesAreWrittenToDisk() throws IOException {
+        checker.isEmailAvailableSync("john@example.com");
+
+        byte[] bytes = read(file);
+        assertEquals(PersistentAvailabilityChecker.HEADER_SIZE + PersistentAvailabilityChecker.RECORD_SIZE,
+                bytes.length);
+        assertFalse(new String(bytes, "ISO-8859-1").contains("john"));
+    }
+
+    @Test
+    public void appendsRunOnTheWriter() throws IOException {
+        TestScheduler writes = new TestScheduler();
+        checker.close();
+        checker = new PersistentAvailabilityChecker(upstream, file, 100, 10, 60, TimeUnit.SECONDS, scheduler, writes);
+
+        assertTrue(checker.isEmailAvailableSync("john@example.com").isValid());
+        assertEquals(1, checker.size());
+        assertEquals(PersistentAvailabilityChecker.HEADER_SIZE, file.length());
+
+        writes.triggerActions();
+        assertEquals(PersistentAvailabilityChecker.HEADER_SIZE + PersistentAvailabilityChecker.RECORD_SIZE,
+                file.length());
+    }
+
+    @Test
+    public void entriesExpireAcrossRestarts() throws IOException {
+        checker.isEmailAvailableSync("john@example.com");
+        checker.isEmailAvailableSync("taken@example.com");
+        checker.close();
+
+        // Available results live 10 seconds, taken ones 60.
+        scheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+        checker = open(100);
+        assertEquals(1, checker.size());
+        checker.isEmailAvailableSync("john@example.com");
+        checker.isEmailAvailableSync("taken@example.com");
+        assertEquals(3, upstream.calls.get());
+    }
+
+    @Test
+    public void laterRecordsWin() throws IOException {
+        checker.isEmailAvailableSync("john@example.com");
+        scheduler.advanceTimeBy(11, TimeUnit.SECONDS);
+        upstream.taken.add("john@example.com");
+        checker.isEmailAvailableSync("john@example.com");
+        checker.close();
+
+        checker = open(100);
+        assertFalse(checker.isEmailAvailableSync("john@example.com").isValid());
+        assertEquals(2, checker.getRecordCount());
+    }
+
+    @Test
+    public void logIsCompactedWhenItOutgrowsTheIndex() throws IOException {
+        checker.close();
+        checker = open(4);
+        for (int i = 0; i < 20; i++) {
+            checker.isEmailAvailableSync("user" + i + "@example.com");
+        }
+
+        assertEquals(4, checker.size());
+        assertTrue(checker.getCompactionCount() > 0);
+        assertTrue(checker.getRecordCount() < 8);
+        assertEquals(PersistentAvailabilityChecker.HEADER_SIZE
+                + checker.getRecordCount() * PersistentAvailabilityChecker.RECORD_SIZE, file.length());
+        checker.close();
+
+        // Only the most recent entries survive.
+        checker = open(4);
+        checker.isEmailAvailableSync("user19@example.com");
+        checker.isEmailAvailableSync("user0@example.com");
+        assertEquals(1, checker.getHitCount());
+    }
+
+    @Test
+    public void tornRecordIsDropped() throws IOException {
+        checker.isEmailAvailableSync("john@example.com");
+        checker.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(raf.length());
+        raf.write(new byte[]{1, 2, 3});
+        raf.close();
+
+        checker = open(100);
+        assertEquals(1, checker.size());
+        assertEquals(PersistentAvailabilityChecker.HEADER_SIZE + PersistentAvailabilityChecker.RECORD_SIZE,
+                file.length());
+    }
+
+    @Test
+    public void foreignFileIsStartedOver() throws IOException {
+        checker.close();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        raf.write("not a cache file at all".getBytes("US-ASCII"));
+        raf.close();
+
+        checker = open(100);
+        assertEquals(0, checker.size());
+        assertEquals(PersistentAvailabilityChecker.HEADER_SIZE, file.length());
+        assertTrue(checker.isEmailAvailableSync("john@example.com").isValid());
+    }
+
+    @Test
+    public void fullFileLoadsQuickly() throws IOException {
+        checker.close();
+        checker = open(5000);
+        for (int i = 0; i < 5000; i++) {
+            checker.isUsernameAvailableSync("user" + i);
+        }
+        checker.close();
+
+        checker = open(5000);
+        assertEquals(5000, checker.size());
+        // Generous bound for slow CI machines; a warm JVM reads this in about a millisecond.
+        assertTrue(checker.getLoadTime(TimeUnit.MILLISECONDS) < 200);
+    }
+
+    private PersistentAvailabilityChecker open(int maxEntries) throws IOException {
+        return new PersistentAvailabilityChecker(upstream, file, maxEntries, 10, 60, TimeUnit.SECONDS, scheduler,
+                Schedulers.immediate());
+    }
+
+    private static byte[] read(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrefetchTest {
+
+    private static final long WINDOW_MS = 800;
+    private static final long PREFETCH_DELAY_MS = 200;
+
+    private TestScheduler scheduler;
+    private FakeAvailabilityChecker checker;
+    private PrefetchBudget budget;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        checker = new FakeAvailabilityChecker(scheduler, 3000);
+        budget = new PrefetchBudget(PREFETCH_DELAY_MS, TimeUnit.MILLISECONDS, 1);
+    }
+
+    @Test
+    public void debouncedCheckTakesOverThePrefetch() {
+        PublishSubject<String> text = PublishSubject.create();
+        TestSubscriber<ValidationResult<String>> subscriber = validate(text);
+
+        text.onNext("john");
+        scheduler.advanceTimeBy(PREFETCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertEquals(1, checker.calls.get());
+
+        scheduler.advanceTimeBy(WINDOW_MS - PREFETCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        // Still the one call, the window ending does not start another.
+        assertEquals(1, checker.calls.get());
+        assertEquals(1, budget.getUsedCount());
+
+        // The answer arrives 3000ms after the prefetch started instead of after the window.
+        scheduler.advanceTimeBy(3000 - (WINDOW_MS - PREFETCH_DELAY_MS), TimeUnit.MILLISECONDS);
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertTrue(subscriber.getOnNextEvents().get(0).isValid());
+        assertEquals(0, budget.getInFlightCount());
+    }
+
+    @Test
+    public void prefetchUsesResultThatAlreadyArrived() {
+        checker.delayMs = 100;
+        PublishSubject<String> text = PublishSubject.create();
+        TestSubscriber<ValidationResult<String>> subscriber = validate(text);
+
+        text.onNext("john");
+        scheduler.advanceTimeBy(PREFETCH_DELAY_MS + 100, TimeUnit.MILLISECONDS);
+        assertEquals(0, subscriber.getOnNextEvents().size());
+
+        scheduler.advanceTimeBy(WINDOW_MS, TimeUnit.MILLISECONDS);
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals(1, checker.calls.get());
+    }
+
+    @Test
+    public void typingCancelsThePrefetch() {
+        PublishSubject<String> text = PublishSubject.create();
+        validate(text);
+
+        text.onNext("john");
+        scheduler.advanceTimeBy(PREFETCH_DELAY_MS + 50, TimeUnit.MILLISECONDS);
+        text.onNext("johnd");
+
+        assertEquals(1, checker.unsubscriptions.get());
+        assertEquals(0, checker.active());
+        assertEquals(1, budget.getWastedCount());
+        assertEquals(0, budget.getInFlightCount());
+    }
+
+    @Test
+    public void budgetLimitsPrefetchesAcrossFields() {
+        PublishSubject<String> first = PublishSubject.create();
+        PublishSubject<String> second = PublishSubject.create();
+        validate(first);
+        TestSubscriber<ValidationResult<String>> secondSubscriber = validate(second);
+
+        first.onNext("john");
+        second.onNext("jane");
+        scheduler.advanceTimeBy(PREFETCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertEquals(1, checker.calls.get());
+        assertEquals(1, budget.getDeniedCount());
+
+        // The denied field falls back to the normal debounced check.
+        scheduler.advanceTimeBy(WINDOW_MS + 3000, TimeUnit.MILLISECONDS);
+        assertEquals(2, checker.calls.get());
+        assertEquals(1, secondSubscriber.getOnNextEvents().size());
+    }
+
+    private TestSubscriber<ValidationResult<String>> validate(PublishSubject<String> text) {
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        text.compose(RemoteValidation.latestOnly(
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return ValidationUtils.isValidUsername(s);
+                    }
+                },
+                new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        return checker.isUsernameAvailable(s);
+                    }
+                },
+                new DebouncePolicy(WINDOW_MS, WINDOW_MS, WINDOW_MS, TimeUnit.MILLISECONDS), scheduler,
+                null, null, budget))
+                .subscribe(subscriber);
+
+        return subscriber;
+    }
+}
@@ -0,0 +1,217 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimitedAvailabilityCheckerTest {
+
+    private TestScheduler scheduler;
+    private FakeAvailabilityChecker backend;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        backend = new FakeAvailabilityChecker(scheduler, 100);
+    }
+
+    @Test
+    public void burstGoesOutThenRateApplies() {
+        RateLimitedAvailabilityChecker checker = new RateLimitedAvailabilityChecker.Builder(backend)
+                .rate(1, 2)
+                .maxInFlight(10)
+                .scheduler(scheduler)
+                .build();
+
+        TestSubscriber<ValidationResult<String>> first = lookup(checker.isEmailAvailable("a@b.co"));
+        TestSubscriber<ValidationResult<String>> second = lookup(checker.isUsernameAvailable("john"));
+        TestSubscriber<ValidationResult<String>> third = lookup(checker.isEmailAvailable("c@d.co"));
+
+        assertEquals(2, backend.calls.get());
+        assertEquals(1, checker.getThrottledCount());
+        assertEquals(1, checker.getWaitingCount());
+
+        scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+        assertEquals(2, backend.calls.get());
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(3, backend.calls.get());
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        assertEquals(1, first.getOnNextEvents().size());
+        assertEquals(1, second.getOnNextEvents().size());
+        assertEquals(1, third.getOnNextEvents().size());
+        assertEquals(1000, checker.getThrottleDelay().getMax() / 1000);
+    }
+
+    @Test
+    public void waitingLookupIsSupersededByTheLatestOfItsField() {
+        RateLimitedAvailabilityChecker checker = new RateLimitedAvailabilityChecker.Builder(backend)
+                .rate(1, 1)
+                .scheduler(scheduler)
+                .build();
+        AvailabilityChecker field = checker.forField("signup");
+
+        lookup(field.isEmailAvailable("a@b.co"));
+        TestSubscriber<ValidationResult<String>> stale = lookup(field.isEmailAvailable("a@b.c"));
+        TestSubscriber<ValidationResult<String>> staleUsername = lookup(field.isUsernameAvailable("jo"));
+        TestSubscriber<ValidationResult<String>> latest = lookup(field.isEmailAvailable("a@b.com"));
+        TestSubscriber<ValidationResult<String>> latestUsername = lookup(field.isUsernameAvailable("john"));
+
+        stale.assertTerminalEvent();
+        assertEquals(ValidationReason.EMAIL_NOT_VERIFIED, stale.getOnNextEvents().get(0).getReasonCode());
+        assertEquals("a@b.c", stale.getOnNextEvents().get(0).getData());
+        staleUsername.assertTerminalEvent();
+        assertEquals(ValidationReason.USERNAME_NOT_VERIFIED, staleUsername.getOnNextEvents().get(0).getReasonCode());
+        assertEquals(2, checker.getDroppedCount());
+        assertEquals(2, checker.getWaitingCount());
+
+        scheduler.advanceTimeBy(3, TimeUnit.SECONDS);
+
+        // Only the latest of each kind went out, oldest first
+        assertEquals(3, backend.calls.get());
+        assertEquals("a@b.com", latest.getOnNextEvents().get(0).getData());
+        assertEquals("john", latestUsername.getOnNextEvents().get(0).getData());
+        assertEquals(3, checker.getStartedCount());
+        assertEquals(5, checker.getLookupCount());
+    }
+
+    @Test
+    public void independentCallersOfTheSameKindAreAllAnswered() {
+        RateLimitedAvailabilityChecker checker = new RateLimitedAvailabilityChecker.Builder(backend)
+                .rate(1, 1)
+                .scheduler(scheduler)
+                .build();
+
+        lookup(checker.isEmailAvailable("a@b.co"));
+        TestSubscriber<ValidationResult<String>> signup = lookup(checker.isEmailAvailable("c@d.co"));
+        TestSubscriber<ValidationResult<String>> invite = lookup(checker.isEmailAvailable("e@f.co"));
+        TestSubscriber<ValidationResult<String>> otherForm = lookup(checker.forField("invite").isEmailAvailable("g@h.co"));
+        assertEquals(3, checker.getWaitingCount());
+        assertEquals(3, checker.getThrottledCount());
+
+        scheduler.advanceTimeBy(4, TimeUnit.SECONDS);
+
+        assertEquals("c@d.co", signup.getOnNextEvents().get(0).getData());
+        assertEquals("e@f.co", invite.getOnNextEvents().get(0).getData());
+        assertEquals("g@h.co", otherForm.getOnNextEvents().get(0).getData());
+        assertEquals(0, checker.getDroppedCount());
+        assertEquals(4, backend.calls.get());
+    }
+
+    @Test
+    public void closeFailsWaitingLookupsAndStopsTheTimer() {
+        RateLimitedAvailabilityChecker checker = new RateLimitedAvailabilityChecker.Builder(backend)
+                .rate(1, 1)
+                .scheduler(scheduler)
+                .build();
+
+        TestSubscriber<ValidationResult<String>> running = lookup(checker.isEmailAvailable("a@b.co"));
+        TestSubscriber<ValidationResult<String>> waiting = lookup(checker.isUsernameAvailable("john"));
+        checker.close();
+        scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+
+        assertEquals(1, running.getOnNextEvents().size());
+        assertEquals(1, waiting.getOnErrorEvents().size());
+        assertEquals(1, backend.calls.get());
+        assertEquals(0, checker.getWaitingCount());
+        assertEquals(1, lookup(checker.isEmailAvailable("c@d.co")).getOnErrorEvents().size());
+    }
+
+    @Test
+    public void inFlightCapHoldsLookupsUntilOneFinishes() {
+        backend.delayMs = 500;
+        RateLimitedAvailabilityChecker checker = new RateLimitedAvailabilityChecker.Builder(backend)
+                .rate(100, 10)
+                .maxInFlight(1)
+                .scheduler(scheduler)
+                .build();
+
+        lookup(checker.isEmailAvailable("a@b.co"));
+        TestSubscriber<ValidationResult<String>> username = lookup(checker.isUsernameAvailable("john"));
+        assertEquals(1, backend.calls.get());
+
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        assertEquals(2, backend.calls.get());
+        assertEquals(1, checker.getInFlightCount());
+
+        scheduler.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        assertEquals(1, username.getOnNextEvents().size());
+        assertEquals(0, checker.getInFlightCount());
+        assertEquals(1, checker.getPeakInFlightCount());
+    }
+
+    @Test
+    public void cancelledLookupsFreeTheirSlot() {
+        backend.delayMs = 5000;
+        RateLimitedAvailabilityChecker checker = new RateLimitedAvailabilityChecker.Builder(backend)
+                .rate(100, 10)
+                .maxInFlight(1)
+                .scheduler(scheduler)
+                .build();
+
+        Subscription running = checker.isEmailAvailable("a@b.co").subscribe(new TestSubscriber<ValidationResult<String>>());
+        Subscription waiting = checker.isUsernameAvailable("jo").subscribe(new TestSubscriber<ValidationResult<String>>());
+        waiting.unsubscribe();
+        assertEquals(1, checker.getCancelledCount());
+        assertEquals(0, checker.getWaitingCount());
+
+        running.unsubscribe();
+        assertEquals(0, checker.getInFlightCount());
+        TestSubscriber<ValidationResult<String>> next = lookup(checker.isUsernameAvailable("john"));
+        scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+
+        assertEquals(1, next.getOnNextEvents().size());
+        assertEquals(2, backend.calls.get());
+        assertEquals(0, backend.active());
+    }
+
+    @Test
+    public void randomBurstsNeverExceedTheLimits() {
+        backend.delayMs = 300;
+        RateLimitedAvailabilityChecker checker = new RateLimitedAvailabilityChecker.Builder(backend)
+                .rate(4, 4)
+                .maxInFlight(2)
+                .scheduler(scheduler)
+                .build();
+
+        AvailabilityChecker field = checker.forField("signup");
+        Random random = new Random(3);
+        List<TestSubscriber<ValidationResult<String>>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String value = "user" + i;
+            subscribers.add(lookup(random.nextBoolean() ? field.isEmailAvailable(value + "@b.co")
+                    : field.isUsernameAvailable(value)));
+            assertTrue(backend.active() <= 2);
+            scheduler.advanceTimeBy(random.nextInt(50), TimeUnit.MILLISECONDS);
+        }
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        // ~12.5 seconds of typing at 4 per second, plus the burst
+        long elapsedMs = scheduler.now();
+        assertTrue(backend.calls.get() <= 4 + elapsedMs * 4 / 1000);
+        assertEquals(500, checker.getStartedCount() + checker.getDroppedCount());
+        assertEquals(2, checker.getPeakInFlightCount());
+        assertEquals(0, checker.getInFlightCount());
+        for (TestSubscriber<ValidationResult<String>> subscriber : subscribers) {
+            subscriber.assertTerminalEvent();
+        }
+    }
+
+    private static TestSubscriber<ValidationResult<String>> lookup(Observable<ValidationResult<String>> lookup) {
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        lookup.subscribe(subscriber);
+        return subscriber;
+    }
+}
@@ -0,0 +1,143 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RemoteValidationTest {
+
+    private static final long WINDOW_MS = 800;
+
+    private TestScheduler scheduler;
+    private FakeAvailabilityChecker checker;
+    private PublishSubject<String> text;
+    private TestSubscriber<ValidationResult<String>> subscriber;
+    private Subscription subscription;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        checker = new FakeAvailabilityChecker(scheduler, 1200);
+        text = PublishSubject.create();
+        subscriber = new TestSubscriber<>();
+        subscription = text.compose(RemoteValidation.latestOnly(
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return ValidationUtils.isValidUsername(s);
+                    }
+                },
+                new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        return checker.isUsernameAvailable(s);
+                    }
+                },
+                new DebouncePolicy(WINDOW_MS, WINDOW_MS, WINDOW_MS, TimeUnit.MILLISECONDS), scheduler))
+                .subscribe(subscriber);
+    }
+
+    @Test
+    public void remoteCheckRunsAfterWindow() {
+        text.onNext("john");
+        scheduler.advanceTimeBy(WINDOW_MS - 1, TimeUnit.MILLISECONDS);
+        assertEquals(0, checker.calls.get());
+
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals(1, checker.calls.get());
+
+        scheduler.advanceTimeBy(1200, TimeUnit.MILLISECONDS);
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertTrue(subscriber.getOnNextEvents().get(0).isValid());
+    }
+
+    @Test
+    public void textChangeCancelsInFlightCallImmediately() {
+        text.onNext("john");
+        scheduler.advanceTimeBy(WINDOW_MS + 100, TimeUnit.MILLISECONDS);
+        assertEquals(1, checker.active());
+
+        // Still inside the next debounce window, but the old call is already gone.
+        text.onNext("johnd");
+        assertEquals(0, checker.active());
+
+        scheduler.advanceTimeBy(10000, TimeUnit.MILLISECONDS);
+        assertEquals(2, checker.calls.get());
+        assertEquals(1, checker.completions.get());
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals("johnd", subscriber.getOnNextEvents().get(0).getData());
+    }
+
+    @Test
+    public void slowStaleResponseNeverArrivesAfterNewerOne() {
+        checker.delays.put("john", 5000L);
+        checker.delays.put("johnd", 100L);
+        checker.taken.add("johnd");
+
+        text.onNext("john");
+        scheduler.advanceTimeBy(WINDOW_MS + 10, TimeUnit.MILLISECONDS);
+        text.onNext("johnd");
+        scheduler.advanceTimeBy(10000, TimeUnit.MILLISECONDS);
+
+        List<ValidationResult<String>> results = subscriber.getOnNextEvents();
+        assertEquals(1, results.size());
+        assertEquals("johnd", results.get(0).getData());
+        assertFalse(results.get(0).isValid());
+    }
+
+    @Test
+    public void localFailureCancelsPendingCheck() {
+        text.onNext("john");
+        scheduler.advanceTimeBy(WINDOW_MS + 100, TimeUnit.MILLISECONDS);
+        text.onNext("jo");
+
+        assertEquals(0, checker.active());
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertFalse(subscriber.getOnNextEvents().get(0).isValid());
+
+        scheduler.advanceTimeBy(10000, TimeUnit.MILLISECONDS);
+        assertEquals(1, subscriber.getOnNextEvents().size());
+    }
+
+    @Test
+    public void burstOfTypingLeavesNoSubscriptionsBehind() {
+        long last = TypingTrace.type(scheduler, text, "john.doe_1990", 0, 1000);
+        scheduler.advanceTimeBy(last + 10000, TimeUnit.MILLISECONDS);
+
+        // Every keystroke from "joh" on starts a call, each one is cancelled by the next.
+        assertEquals(0, checker.active());
+        assertEquals(checker.calls.get(), checker.subscriptions.get());
+        assertEquals(1, checker.completions.get());
+
+        String previous = "";
+        for (ValidationResult<String> result : subscriber.getOnNextEvents()) {
+            // Results follow the typing order.
+            assertTrue(result.getData().length() >= previous.length());
+            previous = result.getData();
+        }
+        assertEquals("john.doe_1990", previous);
+    }
+
+    @Test
+    public void unsubscribingCancelsEverything() {
+        text.onNext("john");
+        scheduler.advanceTimeBy(WINDOW_MS + 100, TimeUnit.MILLISECONDS);
+        subscription.unsubscribe();
+
+        assertEquals(0, checker.active());
+        assertFalse(text.hasObservers());
+    }
+}
@@ -0,0 +1,231 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResilientAvailabilityCheckerTest {
+
+    private TestScheduler scheduler;
+    private ScriptedChecker backend;
+
+    @Before
+    public void setUp() {
+        scheduler = new TestScheduler();
+        backend = new ScriptedChecker(scheduler);
+    }
+
+    @Test
+    public void slowCallTimesOutAsNotVerified() {
+        backend.answer(10000);
+        ResilientAvailabilityChecker checker = builder().retries(0, 100, 100, TimeUnit.MILLISECONDS).build();
+
+        TestSubscriber<ValidationResult<String>> subscriber = lookup(checker);
+        scheduler.advanceTimeBy(999, TimeUnit.MILLISECONDS);
+        assertEquals(0, subscriber.getOnNextEvents().size());
+
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        subscriber.assertNoErrors();
+        ValidationResult<String> result = subscriber.getOnNextEvents().get(0);
+        assertFalse(result.isValid());
+        assertEquals(ValidationReason.EMAIL_NOT_VERIFIED, result.getReasonCode());
+        assertEquals(1, checker.getTimeoutCount());
+        assertEquals(1, checker.getUnverifiedCount());
+    }
+
+    @Test
+    public void failedAttemptsAreRetriedWithBackoff() {
+        backend.fail(100);
+        backend.fail(100);
+        backend.answer(100);
+        ResilientAvailabilityChecker checker = builder().retries(2, 200, 1000, TimeUnit.MILLISECONDS).build();
+
+        TestSubscriber<ValidationResult<String>> subscriber = lookup(checker);
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        assertTrue(subscriber.getOnNextEvents().get(0).isValid());
+        assertEquals(3, backend.calls);
+        assertEquals(2, checker.getRetryCount());
+        // 100 + 100..200 + 100 + 200..400 + 100
+        assertTrue(backend.lastCallAtMs >= 500 && backend.lastCallAtMs <= 800);
+    }
+
+    @Test
+    public void hedgedRequestWinsOverSlowFirstRequest() {
+        backend.answer(3000);
+        backend.answer(100);
+        ResilientAvailabilityChecker checker = builder().hedging(500, TimeUnit.MILLISECONDS).build();
+
+        TestSubscriber<ValidationResult<String>> subscriber = lookup(checker);
+        // Without enough samples the hedge goes out at half the timeout.
+        scheduler.advanceTimeBy(600, TimeUnit.MILLISECONDS);
+
+        assertTrue(subscriber.getOnNextEvents().get(0).isValid());
+        assertEquals(1, checker.getHedgeCount());
+        assertEquals(1, checker.getHedgeWinCount());
+        // The slow request was cancelled.
+        assertEquals(0, backend.active);
+    }
+
+    @Test
+    public void fastAnswerCancelsTheHedge() {
+        backend.answer(100);
+        ResilientAvailabilityChecker checker = builder().hedging(500, TimeUnit.MILLISECONDS).build();
+
+        lookup(checker);
+        scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+
+        assertEquals(0, checker.getHedgeCount());
+        assertEquals(1, backend.calls);
+    }
+
+    @Test
+    public void openBreakerShortCircuitsUntilTrialSucceeds() {
+        for (int i = 0; i < 2; i++) {
+            backend.fail(10);
+        }
+        ResilientAvailabilityChecker checker = builder()
+                .retries(0, 100, 100, TimeUnit.MILLISECONDS)
+                .circuitBreaker(2, 30, TimeUnit.SECONDS)
+                .build();
+
+        lookup(checker);
+        lookup(checker);
+        scheduler.advanceTimeBy(10, TimeUnit.MILLISECONDS);
+        assertEquals(ResilientAvailabilityChecker.State.OPEN, checker.getState());
+
+        TestSubscriber<ValidationResult<String>> shortCircuited = lookup(checker);
+        assertEquals(ValidationReason.EMAIL_NOT_VERIFIED,
+                shortCircuited.getOnNextEvents().get(0).getReasonCode());
+        assertEquals(2, backend.calls);
+        assertEquals(1, checker.getShortCircuitCount());
+
+        scheduler.advanceTimeBy(30, TimeUnit.SECONDS);
+        assertEquals(ResilientAvailabilityChecker.State.HALF_OPEN, checker.getState());
+        backend.answer(100);
+        TestSubscriber<ValidationResult<String>> trial = lookup(checker);
+        // Only one trial at a time.
+        lookup(checker);
+        assertEquals(2, checker.getShortCircuitCount());
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        assertTrue(trial.getOnNextEvents().get(0).isValid());
+        assertEquals(ResilientAvailabilityChecker.State.CLOSED, checker.getState());
+    }
+
+    @Test
+    public void cancelledTrialLetsTheNextCheckThrough() {
+        backend.fail(10);
+        ResilientAvailabilityChecker checker = builder()
+                .retries(0, 100, 100, TimeUnit.MILLISECONDS)
+                .circuitBreaker(1, 1, TimeUnit.SECONDS)
+                .build();
+        lookup(checker);
+        scheduler.advanceTimeBy(1010, TimeUnit.MILLISECONDS);
+
+        backend.answer(500);
+        Subscription trial = checker.isEmailAvailable("john@example.com").subscribe(new TestSubscriber<ValidationResult<String>>());
+        trial.unsubscribe();
+
+        backend.answer(100);
+        TestSubscriber<ValidationResult<String>> next = lookup(checker);
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        assertTrue(next.getOnNextEvents().get(0).isValid());
+        assertEquals(0, checker.getShortCircuitCount());
+    }
+
+    private ResilientAvailabilityChecker.Builder builder() {
+        return new ResilientAvailabilityChecker.Builder(backend)
+                .timeout(1, TimeUnit.SECONDS)
+                .jitterSeed(1)
+                .scheduler(scheduler);
+    }
+
+    private TestSubscriber<ValidationResult<String>> lookup(ResilientAvailabilityChecker checker) {
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        checker.isEmailAvailable("john@example.com").subscribe(subscriber);
+
+        return subscriber;
+    }
+
+    /**
+     * Answers or fails each call after the next scripted delay, in order.
+     */
+    private static class ScriptedChecker implements AvailabilityChecker {
+
+        private final TestScheduler scheduler;
+        private final Deque<Long> delays = new ArrayDeque<>();
+        private final Deque<Boolean> failures = new ArrayDeque<>();
+        int calls;
+        int active;
+        long lastCallAtMs;
+
+        ScriptedChecker(TestScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        void answer(long delayMs) {
+            delays.add(delayMs);
+            failures.add(false);
+        }
+
+        void fail(long delayMs) {
+            delays.add(delayMs);
+            failures.add(true);
+        }
+
+        @Override
+        public Observable<ValidationResult<String>> isEmailAvailable(final String email) {
+            calls++;
+            active++;
+            lastCallAtMs = scheduler.now();
+            final Observable<ValidationResult<String>> result = failures.poll()
+                    ? Observable.<ValidationResult<String>>error(new IOException("down"))
+                    : Observable.just(ValidationResult.success(email));
+
+            return Observable.timer(delays.poll(), TimeUnit.MILLISECONDS, scheduler)
+                    .flatMap(new Func1<Long, Observable<ValidationResult<String>>>() {
+                        @Override
+                        public Observable<ValidationResult<String>> call(Long tick) {
+                            return result;
+                        }
+                    })
+                    .doOnUnsubscribe(new Action0() {
+                        @Override
+                        public void call() {
+                            active--;
+                        }
+                    });
+        }
+
+        @Override
+        public Observable<ValidationResult<String>> isUsernameAvailable(String username) {
+            return isEmailAvailable(username);
+        }
+
+        @Override
+        public ValidationResult<String> isEmailAvailableSync(String email) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ValidationResult<String> isUsernameAvailableSync(String username) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
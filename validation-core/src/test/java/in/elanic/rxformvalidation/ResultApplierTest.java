@@ -0,0 +1,158 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import rx.Observable;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResultApplierTest {
+
+    private List<Runnable> frames;
+    private ValidationMetrics metrics;
+    private ResultApplier applier;
+    private List<String> errors;
+    private List<Boolean> enabled;
+    private ResultApplier.Slot<String> error;
+    private ResultApplier.Slot<Boolean> submit;
+
+    @Before
+    public void setUp() {
+        frames = new ArrayList<>();
+        metrics = new ValidationMetrics();
+        applier = new ResultApplier(new ResultApplier.FrameScheduler() {
+            @Override
+            public void postFrame(Runnable frame) {
+                frames.add(frame);
+            }
+        }, metrics);
+        errors = new ArrayList<>();
+        enabled = new ArrayList<>();
+        error = applier.slot("email", new ResultApplier.Target<String>() {
+            @Override
+            public void apply(String state) {
+                errors.add(state);
+            }
+        });
+        submit = applier.slot("submit", new ResultApplier.Target<Boolean>() {
+            @Override
+            public void apply(Boolean state) {
+                enabled.add(state);
+            }
+        });
+    }
+
+    @Test
+    public void onlyTheLatestStateOfAFrameIsApplied() {
+        error.set("Invalid email");
+        error.set("Email is already taken");
+        error.set(null);
+
+        assertEquals(1, frames.size());
+        runFrames();
+        assertEquals(Arrays.asList((String) null), errors);
+        assertEquals(3, applier.getSubmittedCount());
+        assertEquals(2, applier.getCoalescedCount());
+        assertEquals(1, applier.getAppliedCount());
+    }
+
+    @Test
+    public void unchangedStateIsNotApplied() {
+        error.set("Invalid email");
+        runFrames();
+        error.set("Invalid email");
+        runFrames();
+        error.set("Invalid email");
+        runFrames();
+
+        assertEquals(Arrays.asList("Invalid email"), errors);
+        assertEquals(2, applier.getUnchangedCount());
+        assertEquals(2, applier.getAvoidedCount());
+    }
+
+    @Test
+    public void stateClearedOutsideTheApplierIsAppliedAgain() {
+        final String[] visible = new String[1];
+        ResultApplier.Slot<String> viewError = applier.slot("username", new ResultApplier.ReadableTarget<String>() {
+            @Override
+            public String current() {
+                return visible[0];
+            }
+
+            @Override
+            public void apply(String state) {
+                visible[0] = state;
+                errors.add(state);
+            }
+        });
+
+        viewError.set("Invalid username");
+        runFrames();
+        viewError.set("Invalid username");
+        runFrames();
+        // The view drops its error on a key event.
+        visible[0] = null;
+        viewError.set("Invalid username");
+        runFrames();
+
+        assertEquals(Arrays.asList("Invalid username", "Invalid username"), errors);
+        assertEquals(1, applier.getUnchangedCount());
+    }
+
+    @Test
+    public void changeAndChangeBackWithinAFrameIsNotApplied() {
+        submit.set(true);
+        runFrames();
+        submit.set(false);
+        submit.set(true);
+        runFrames();
+
+        assertEquals(Arrays.asList(true), enabled);
+        assertEquals(1, applier.getCoalescedCount());
+        assertEquals(1, applier.getUnchangedCount());
+    }
+
+    @Test
+    public void slotsShareOneFramePost() {
+        error.set("Invalid email");
+        submit.set(false);
+
+        assertEquals(1, frames.size());
+        runFrames();
+        assertEquals(Arrays.asList("Invalid email"), errors);
+        assertEquals(Arrays.asList(false), enabled);
+        assertEquals(1, applier.getFrameCount());
+    }
+
+    @Test
+    public void nothingPendingPostsNoFrame() {
+        error.set("Invalid email");
+        runFrames();
+
+        assertEquals(0, frames.size());
+        submit.set(true);
+        assertEquals(1, frames.size());
+    }
+
+    @Test
+    public void setterAppliesEmissions() {
+        Observable.just("a", "b", "c").subscribe(error.setter());
+        runFrames();
+
+        assertEquals(Arrays.asList("c"), errors);
+        assertEquals(1, metrics.histogram("email", ValidationMetrics.Stage.THREAD_HOP).getCount());
+    }
+
+    private void runFrames() {
+        List<Runnable> posted = new ArrayList<>(frames);
+        frames.clear();
+        for (Runnable frame : posted) {
+            frame.run();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import rx.Subscription;
+import rx.observers.TestSubscriber;
+import rx.schedulers.TestScheduler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimulatedAvailabilityCheckerTest {
+
+    @Test
+    public void sameSeedReplaysSameLatencies() {
+        assertEquals(answerTimes(42), answerTimes(42));
+        assertTrue(!answerTimes(42).equals(answerTimes(43)));
+    }
+
+    @Test
+    public void takenDependsOnlyOnSeedAndValue() {
+        SimulatedAvailabilityChecker checker = new SimulatedAvailabilityChecker.Builder()
+                .seed(1).takenFraction(0.5).build();
+        int taken = 0;
+        for (int i = 0; i < 1000; i++) {
+            String value = "user" + i;
+            assertEquals(checker.isTaken(value), checker.isTaken(value));
+            if (checker.isTaken(value)) {
+                taken++;
+            }
+        }
+
+        assertTrue(taken > 400 && taken < 600);
+    }
+
+    @Test
+    public void callsOverTheLimitWaitForASlot() {
+        TestScheduler scheduler = new TestScheduler();
+        SimulatedAvailabilityChecker checker = new SimulatedAvailabilityChecker.Builder()
+                .latency(LatencyDistribution.fixed(100))
+                .maxConcurrentCalls(2)
+                .scheduler(scheduler)
+                .build();
+
+        List<TestSubscriber<ValidationResult<String>>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+            checker.isEmailAvailable("user" + i + "@example.com").subscribe(subscriber);
+            subscribers.add(subscriber);
+        }
+
+        assertEquals(2, checker.getInFlightCount());
+        assertEquals(3, checker.getQueuedCount());
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        subscribers.get(1).assertTerminalEvent();
+        assertEquals(0, subscribers.get(2).getOnNextEvents().size());
+        assertEquals(2, checker.getInFlightCount());
+
+        scheduler.advanceTimeBy(200, TimeUnit.MILLISECONDS);
+        subscribers.get(4).assertTerminalEvent();
+        assertEquals(0, checker.getInFlightCount());
+        assertEquals(3, checker.getPeakQueueLength());
+    }
+
+    @Test
+    public void cancellingAQueuedCallKeepsItOffTheBackend() {
+        TestScheduler scheduler = new TestScheduler();
+        SimulatedAvailabilityChecker checker = new SimulatedAvailabilityChecker.Builder()
+                .latency(LatencyDistribution.fixed(100))
+                .maxConcurrentCalls(1)
+                .scheduler(scheduler)
+                .build();
+
+        Subscription running = checker.isEmailAvailable("a@example.com").subscribe(new TestSubscriber<ValidationResult<String>>());
+        Subscription queued = checker.isEmailAvailable("b@example.com").subscribe(new TestSubscriber<ValidationResult<String>>());
+        TestSubscriber<ValidationResult<String>> last = new TestSubscriber<>();
+        checker.isEmailAvailable("c@example.com").subscribe(last);
+
+        queued.unsubscribe();
+        running.unsubscribe();
+
+        // c gets the slot right away and answers after its own latency.
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        last.assertTerminalEvent();
+        assertEquals(2, checker.getCancelledCount());
+        assertEquals(0, checker.getQueuedCount());
+    }
+
+    @Test
+    public void errorsAndTimeoutsFollowTheirRates() {
+        TestScheduler scheduler = new TestScheduler();
+        SimulatedAvailabilityChecker checker = new SimulatedAvailabilityChecker.Builder()
+                .seed(5)
+                .latency(LatencyDistribution.fixed(100))
+                .errorRate(0.1)
+                .timeouts(0.2, 10, TimeUnit.SECONDS)
+                .scheduler(scheduler)
+                .build();
+
+        List<TestSubscriber<ValidationResult<String>>> subscribers = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+            checker.isUsernameAvailable("user" + i).subscribe(subscriber);
+            subscribers.add(subscriber);
+        }
+
+        scheduler.advanceTimeBy(100, TimeUnit.MILLISECONDS);
+        assertTrue(checker.getErrorCount() > 60 && checker.getErrorCount() < 140);
+        assertEquals(0, checker.getTimeoutCount());
+
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+        assertTrue(checker.getTimeoutCount() > 160 && checker.getTimeoutCount() < 240);
+        int ioErrors = 0;
+        int timeouts = 0;
+        for (TestSubscriber<ValidationResult<String>> subscriber : subscribers) {
+            subscriber.assertTerminalEvent();
+            if (!subscriber.getOnErrorEvents().isEmpty()) {
+                Throwable error = subscriber.getOnErrorEvents().get(0);
+                if (error instanceof IOException) {
+                    ioErrors++;
+                } else if (error instanceof TimeoutException) {
+                    timeouts++;
+                }
+            }
+        }
+
+        assertEquals(checker.getErrorCount(), ioErrors);
+        assertEquals(checker.getTimeoutCount(), timeouts);
+    }
+
+    @Test
+    public void lognormalHitsItsPercentiles() {
+        LatencyDistribution latency = LatencyDistribution.lognormal(200, 2000);
+        Random random = new Random(9);
+        long[] samples = new long[20000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = latency.sampleMillis(random);
+        }
+
+        Arrays.sort(samples);
+        long p50 = samples[samples.length / 2];
+        long p99 = samples[samples.length * 99 / 100];
+        assertTrue("p50 " + p50, p50 > 180 && p50 < 220);
+        assertTrue("p99 " + p99, p99 > 1700 && p99 < 2300);
+    }
+
+    private static List<Long> answerTimes(long seed) {
+        final TestScheduler scheduler = new TestScheduler();
+        SimulatedAvailabilityChecker checker = new SimulatedAvailabilityChecker.Builder()
+                .seed(seed)
+                .latency(LatencyDistribution.bimodal(LatencyDistribution.lognormal(100, 300),
+                        LatencyDistribution.fixed(3000), 0.05))
+                .scheduler(scheduler)
+                .build();
+
+        final List<Long> times = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            checker.isEmailAvailable("user" + i + "@example.com").subscribe(new TestSubscriber<ValidationResult<String>>() {
+                @Override
+                public void onNext(ValidationResult<String> result) {
+                    times.add(scheduler.now());
+                }
+            });
+        }
+
+        scheduler.advanceTimeBy(1, TimeUnit.MINUTES);
+
+        return times;
+    }
+}
@@ -0,0 +1,37 @@
+package in.elanic.rxformvalidation;
+
+import java.util.concurrent.TimeUnit;
+
+import rx.functions.Action0;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+/**
+ * Replays typing on a TestScheduler: each character of the text is typed after the given
+ * interval, and every keystroke emits the whole text typed so far.
+ */
+class TypingTrace {
+
+    private TypingTrace() {
+    }
+
+    /**
+     * Schedules the keystrokes starting at {@code startMs} and returns when the last one happens.
+     */
+    static long type(final TestScheduler scheduler, final PublishSubject<String> subject,
+                     final String text, long startMs, long intervalMs) {
+        long time = startMs;
+        for (int i = 1; i <= text.length(); i++) {
+            final String typed = text.substring(0, i);
+            scheduler.createWorker().schedule(new Action0() {
+                @Override
+                public void call() {
+                    subject.onNext(typed);
+                }
+            }, time - scheduler.now(), TimeUnit.MILLISECONDS);
+            time += intervalMs;
+        }
+
+        return time - intervalMs;
+    }
+}
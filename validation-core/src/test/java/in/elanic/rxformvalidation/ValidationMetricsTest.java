@@ -0,0 +1,156 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import rx.Observable;
+import rx.Subscriber;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
+import rx.subjects.PublishSubject;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ValidationMetricsTest {
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10000, snapshot.getCount());
+        assertEquals(10000, snapshot.getMax());
+        assertEquals(5000.5, snapshot.getMean(), 0.001);
+        assertWithin(5000, snapshot.getPercentile(50));
+        assertWithin(9900, snapshot.getPercentile(99));
+        assertEquals(1, snapshot.getPercentile(0));
+        assertEquals(10000, snapshot.getPercentile(100));
+    }
+
+    @Test
+    public void bucketsCoverTheirValues() {
+        for (long value = 0; value < 1 << 20; value += 7) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketValue(index));
+            assertTrue(index == 0 || value > LatencyHistogram.bucketValue(index - 1));
+        }
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(i % 5000);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void remoteValidationReportsStagesAndCounters() {
+        TestScheduler scheduler = new TestScheduler();
+        FakeAvailabilityChecker checker = new FakeAvailabilityChecker(scheduler, 1200);
+        ValidationMetrics metrics = new ValidationMetrics();
+        PublishSubject<String> text = PublishSubject.create();
+        text.compose(latestOnly(checker, scheduler, metrics)).subscribe(new TestSubscriber<ValidationResult<String>>());
+
+        text.onNext("john");
+        scheduler.advanceTimeBy(900, TimeUnit.MILLISECONDS);
+        text.onNext("johnd");
+        scheduler.advanceTimeBy(5000, TimeUnit.MILLISECONDS);
+
+        ValidationMetrics.FieldSnapshot snapshot = metrics.snapshot().getFields().get("username");
+        assertEquals(2, snapshot.getRemoteCallsIssued());
+        assertEquals(1, snapshot.getRemoteCallsCancelled());
+        assertEquals(0, snapshot.getStaleResultsDropped());
+        assertEquals(2, snapshot.getStage(ValidationMetrics.Stage.LOCAL_RULE).getCount());
+        assertEquals(2, snapshot.getStage(ValidationMetrics.Stage.DEBOUNCE).getCount());
+        assertWithin(800000, snapshot.getStage(ValidationMetrics.Stage.DEBOUNCE).getPercentile(50));
+        assertEquals(1, snapshot.getStage(ValidationMetrics.Stage.REMOTE_CHECK).getCount());
+        assertWithin(1200000, snapshot.getStage(ValidationMetrics.Stage.REMOTE_CHECK).getMax());
+
+        Map<String, Long> exported = metrics.snapshot().toMap();
+        assertEquals(Long.valueOf(1), exported.get("username.remote.cancelled"));
+        assertEquals(Long.valueOf(1), exported.get("username.remote_check.count"));
+    }
+
+    @Test
+    public void resultsAfterCancellationAreCountedAsStale() {
+        // A backend client which ignores unsubscription and answers anyway.
+        final List<Subscriber<? super ValidationResult<String>>> pending = new ArrayList<>();
+        AvailabilityChecker stubborn = new FakeAvailabilityChecker(Schedulers.immediate(), 0) {
+            @Override
+            public Observable<ValidationResult<String>> isUsernameAvailable(String username) {
+                return Observable.create(new Observable.OnSubscribe<ValidationResult<String>>() {
+                    @Override
+                    public void call(Subscriber<? super ValidationResult<String>> subscriber) {
+                        pending.add(subscriber);
+                    }
+                });
+            }
+        };
+
+        TestScheduler scheduler = new TestScheduler();
+        ValidationMetrics metrics = new ValidationMetrics();
+        PublishSubject<String> text = PublishSubject.create();
+        TestSubscriber<ValidationResult<String>> subscriber = new TestSubscriber<>();
+        text.compose(latestOnly(stubborn, scheduler, metrics)).subscribe(subscriber);
+
+        text.onNext("john");
+        scheduler.advanceTimeBy(900, TimeUnit.MILLISECONDS);
+        text.onNext("jo");
+        pending.get(0).onNext(ValidationResult.success("john"));
+
+        assertEquals(1, subscriber.getOnNextEvents().size());
+        assertEquals("jo", subscriber.getOnNextEvents().get(0).getData());
+        assertEquals(1, metrics.snapshot().getFields().get("username").getStaleResultsDropped());
+    }
+
+    private static Observable.Transformer<String, ValidationResult<String>> latestOnly(
+            final AvailabilityChecker checker, TestScheduler scheduler, ValidationMetrics metrics) {
+        return RemoteValidation.latestOnly(
+                new Func1<String, ValidationResult<String>>() {
+                    @Override
+                    public ValidationResult<String> call(String s) {
+                        return ValidationUtils.isValidUsername(s);
+                    }
+                },
+                new Func1<String, Observable<ValidationResult<String>>>() {
+                    @Override
+                    public Observable<ValidationResult<String>> call(String s) {
+                        return checker.isUsernameAvailable(s);
+                    }
+                },
+                new DebouncePolicy(800, 800, 800, TimeUnit.MILLISECONDS), scheduler, metrics, "username");
+    }
+
+    // Buckets are at most 1/8 of their value wide
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 8);
+    }
+}
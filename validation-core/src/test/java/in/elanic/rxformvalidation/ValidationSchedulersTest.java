@@ -0,0 +1,242 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Func1;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ValidationSchedulersTest {
+
+    private ValidationSchedulers schedulers;
+
+    @Before
+    public void setUp() {
+        schedulers = new ValidationSchedulers(1, 2);
+    }
+
+    @After
+    public void tearDown() {
+        schedulers.shutdown();
+    }
+
+    @Test
+    public void ioLaneNeverRunsMoreThanItsThreads() throws InterruptedException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(40);
+        for (int i = 0; i < 40; i++) {
+            schedulers.io().createWorker().schedule(new Action0() {
+                @Override
+                public void call() {
+                    int now = running.incrementAndGet();
+                    int seen;
+                    do {
+                        seen = peak.get();
+                    } while (now > seen && !peak.compareAndSet(seen, now));
+                    sleep(2);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, peak.get());
+        assertTrue(schedulers.getPeakQueueDepth(ValidationSchedulers.Lane.IO) >= 30);
+        assertEquals(0, schedulers.getQueueDepth(ValidationSchedulers.Lane.IO));
+        assertEquals(40, schedulers.getExecutedCount(ValidationSchedulers.Lane.IO));
+        assertEquals(40, schedulers.getQueueWait(ValidationSchedulers.Lane.IO).getCount());
+    }
+
+    @Test
+    public void focusedFieldJumpsTheQueue() throws InterruptedException {
+        CountDownLatch blocker = blockCpuLane();
+
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch done = new CountDownLatch(6);
+        schedulers.setFocusedField("username");
+        for (String field : new String[]{"email", "username", "phone", "email", "username", "phone"}) {
+            final String name = field;
+            schedulers.cpu(name).createWorker().schedule(new Action0() {
+                @Override
+                public void call() {
+                    order.add(name);
+                    done.countDown();
+                }
+            });
+        }
+
+        assertEquals(6, schedulers.getQueueDepth(ValidationSchedulers.Lane.CPU));
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("username", "username", "email", "phone", "email", "phone"), order);
+    }
+
+    @Test
+    public void actionsOfOneWorkerRunInOrderOneAtATime() throws InterruptedException {
+        Scheduler.Worker worker = schedulers.io().createWorker();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(200);
+        for (int i = 0; i < 200; i++) {
+            final int index = i;
+            worker.schedule(new Action0() {
+                @Override
+                public void call() {
+                    if (running.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    order.add(index);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void delayedActionsRunWhenDueAndCanBeCancelled() throws InterruptedException {
+        Scheduler.Worker worker = schedulers.cpu().createWorker();
+        final CountDownLatch ran = new CountDownLatch(1);
+        final AtomicInteger cancelledRuns = new AtomicInteger();
+        long start = System.nanoTime();
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                ran.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        Subscription cancelled = worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                cancelledRuns.incrementAndGet();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+        cancelled.unsubscribe();
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, cancelledRuns.get());
+    }
+
+    @Test
+    public void unsubscribedWorkerDropsQueuedActions() throws InterruptedException {
+        CountDownLatch blocker = blockCpuLane();
+
+        final AtomicInteger runs = new AtomicInteger();
+        Scheduler.Worker worker = schedulers.cpu().createWorker();
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                runs.incrementAndGet();
+            }
+        });
+        worker.unsubscribe();
+        worker.schedule(new Action0() {
+            @Override
+            public void call() {
+                runs.incrementAndGet();
+            }
+        });
+
+        final CountDownLatch drained = new CountDownLatch(1);
+        schedulers.cpu().createWorker().schedule(new Action0() {
+            @Override
+            public void call() {
+                drained.countDown();
+            }
+        });
+        blocker.countDown();
+        assertTrue(drained.await(5, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    public void pipelinesRunOnTheirLane() {
+        String thread = Observable.just("john@example.com")
+                .map(new Func1<String, String>() {
+                    @Override
+                    public String call(String s) {
+                        return Thread.currentThread().getName();
+                    }
+                })
+                .subscribeOn(schedulers.io("email"))
+                .toBlocking()
+                .single();
+
+        assertTrue(thread, thread.startsWith("validation-io-"));
+    }
+
+    @Test
+    public void workAfterShutdownIsNotRun() {
+        Scheduler.Worker worker = schedulers.cpu("email").createWorker();
+        schedulers.shutdown();
+        Action0 action = new Action0() {
+            @Override
+            public void call() {
+                throw new AssertionError("ran after shutdown");
+            }
+        };
+
+        assertTrue(worker.schedule(action).isUnsubscribed());
+        assertTrue(worker.schedule(action, 10, TimeUnit.MILLISECONDS).isUnsubscribed());
+        assertTrue(schedulers.io().createWorker().schedule(action).isUnsubscribed());
+    }
+
+    /**
+     * Occupies the only CPU thread until the returned latch is released.
+     */
+    private CountDownLatch blockCpuLane() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        schedulers.cpu().createWorker().schedule(new Action0() {
+            @Override
+            public void call() {
+                started.countDown();
+                await(blocker);
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        return blocker;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package in.elanic.rxformvalidation;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the TextScanner based rules against the original regexes.
+ */
+public class ValidationUtilsTest {
+
+    private static final String[] SAMPLES = {
+            "", "a", "ab", "abc", "a_c", "a.c", "1bc", "_bc", "abc\n", "abc\r\n", "abc\r", "abc\n\n",
+            "abc\u2028", "abcdefghijklmnopqrst", "abcdefghijklmnopqrstu", "abcdefghijklmnopqrst\n",
+            "ab-c", "ab c", "abc ", " abc",
+            "9876543210", "6876543210", "98765432101", "x9876543210", "9876543210x", "987654321",
+            "9876543210\n", "9876543210\r\n", "98765 43210", "call me at 9876543210 now",
+            "a 8123456789", "12345", "1234", "a12345b", "1234 5",
+            "a@b.c", "@b.c", "a@.c", "a@b.", "a@b", "ab@cd.ef", "john.doe+x@mail.example.com",
+            "mail me: john@example.com thanks", "a@@b.c", "a@b@c.d", "%@b.c", "a @b.c", "a@b .c",
+            "a@" + repeat('b', 64) + ".c", "a@" + repeat('b', 65) + ".c", "a@b.c\n", "\na@b.c",
+            "a\n@b.c", "a@b\n.c", "a@b.\nc",
+    };
+
+    private static final char[] ALPHABET = {
+            'a', 'Z', '0', '5', '7', '8', '9', '.', '_', '@', '+', '%', '-', ' ', '\n', '\r', '\u2029',
+    };
+
+    @Test
+    public void samplesMatchRegexes() {
+        for (String sample : SAMPLES) {
+            assertSameAsRegexes(sample);
+        }
+    }
+
+    @Test
+    public void randomInputsMatchRegexes() {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        for (int n = 0; n < 50000; n++) {
+            builder.setLength(0);
+            int length = random.nextInt(24);
+            for (int i = 0; i < length; i++) {
+                builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+            }
+
+            assertSameAsRegexes(builder.toString());
+        }
+    }
+
+    @Test
+    public void randomEmailLikeInputsMatchRegexes() {
+        Random random = new Random(7);
+        StringBuilder builder = new StringBuilder();
+        for (int n = 0; n < 1000; n++) {
+            builder.setLength(0);
+            builder.append(repeat('x', random.nextInt(3)));
+            builder.append('@');
+            builder.append(repeat('d', 60 + random.nextInt(8)));
+            builder.append(random.nextBoolean() ? "." : "");
+            builder.append(repeat('c', random.nextInt(3)));
+            assertSameAsRegexes(builder.toString());
+        }
+    }
+
+    @Test
+    public void emailScanIsLinearOnAdversarialInput() {
+        // The backtracking regex needs seconds for this; the scanner should not notice it.
+        String text = repeat('a', 50000) + "@" + repeat('b', 50000);
+        long start = System.nanoTime();
+        assertFalse(ValidationUtils.isValidEmailAddress(text).isValid());
+        assertTrue(System.nanoTime() - start < 1000000000L);
+    }
+
+    @Test
+    public void keepsReasons() {
+        assertNull(ValidationUtils.isValidUsername("").getReason());
+        assertEquals("username should have 3 or more characters",
+                ValidationUtils.isValidUsername("ab").getReason());
+        assertEquals("username should contain only alphanumeric characters",
+                ValidationUtils.isValidUsername("ab c").getReason());
+        assertNull(ValidationUtils.isValidUsername("abc").getReason());
+
+        assertNull(ValidationUtils.isValidEmailAddress("").getReason());
+        assertEquals("Please enter correct email address",
+                ValidationUtils.isValidEmailAddress("a@b").getReason());
+        assertTrue(ValidationUtils.isValidEmailAddress("a@b.c").isValid());
+    }
+
+    @Test
+    public void checksReturnReasonCodes() {
+        assertEquals(ValidationReason.EMPTY, ValidationUtils.checkUsername(""));
+        assertEquals(ValidationReason.USERNAME_TOO_SHORT, ValidationUtils.checkUsername("ab"));
+        assertEquals(ValidationReason.USERNAME_INVALID_CHARACTERS, ValidationUtils.checkUsername("ab c"));
+        assertEquals(ValidationReason.NONE, ValidationUtils.checkUsername("abc"));
+        assertEquals(ValidationReason.EMAIL_INVALID, ValidationUtils.checkEmailAddress("a@b"));
+        assertEquals(ValidationReason.PHONE_INVALID, ValidationUtils.checkPhoneNumber("12345"));
+        assertEquals(ValidationReason.NONE, ValidationUtils.checkPhoneNumber("9876543210"));
+        assertEquals(ValidationReason.EMAIL_INVALID, ValidationUtils.isValidEmailAddress("a@b").getReasonCode());
+        // Empty input shares one result.
+        assertSame(ValidationUtils.isValidEmailAddress(""), ValidationUtils.isValidUsername(""));
+    }
+
+    @Test
+    public void messagesAreResolvedWhenAskedFor() {
+        ValidationResult<String> result = ValidationUtils.isValidEmailAddress("a@b");
+        ValidationReason.setMessageResolver(new ValidationReason.MessageResolver() {
+            @Override
+            public String getMessage(ValidationReason reason) {
+                return "msg" + reason.getCode();
+            }
+        });
+        try {
+            assertEquals("msg20", result.getReason());
+            assertEquals("custom", ValidationResult.failure("custom", "a@b").getReason());
+        } finally {
+            ValidationReason.setMessageResolver(null);
+        }
+
+        assertEquals("Please enter correct email address", result.getReason());
+        assertEquals(ValidationReason.EMAIL_INVALID, ValidationReason.fromCode(20));
+    }
+
+    private static void assertSameAsRegexes(String text) {
+        String message = "input: \"" + text + "\"";
+        assertEquals(message, find(ValidationUtils.MOBILE_NUMBER_PATTERN, text),
+                ValidationUtils.isValidMobileNumber(text));
+        assertEquals(message, find(ValidationUtils.TEXT_WITH_MOBILE_NUMBER_PATTERN, text),
+                ValidationUtils.containsMobileNumber(text));
+        assertEquals(message, find(ValidationUtils.TEXT_WITH_FOUR_CONSECUTIVE_NUMBERS_PATTERN, text),
+                ValidationUtils.containsFourConsecutiveNumbers(text));
+        assertEquals(message, !text.isEmpty() && find(ValidationUtils.TEXT_WITH_EMAIL_ADDRESS_PATTERN, text),
+                ValidationUtils.isValidEmailAddress(text).isValid());
+        assertEquals(message, text.length() >= 3 && find(ValidationUtils.USERNAME_PATTERN, text),
+                ValidationUtils.isValidUsername(text).isValid());
+    }
+
+    private static boolean find(Pattern pattern, String text) {
+        return pattern.matcher(text).find();
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+
+        return builder.toString();
+    }
+}
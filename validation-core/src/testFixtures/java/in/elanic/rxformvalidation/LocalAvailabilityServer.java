@@ -0,0 +1,222 @@
+package in.elanic.rxformvalidation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Stand-in availability backend on the loopback interface, speaking the protocol of
+ * {@link HttpAvailabilityChecker}, for tests and benchmarks that need real sockets but no
+ * network.
+ *
+ * Connections are kept alive and pipelined requests are answered in order, each after the
+ * configured delay. Values added with {@link #addTaken(String)} are taken, everything else is
+ * available. A thread per connection keeps it simple; it is not meant to be fast, only to count
+ * what the client does to it.
+ */
+public class LocalAvailabilityServer implements Closeable {
+
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService threads;
+    private final Set<String> taken = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final Set<Socket> sockets = Collections.newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+    private volatile long responseDelayMs;
+    private volatile int maxRequestsPerConnection = Integer.MAX_VALUE;
+
+    private final AtomicLong acceptedConnections = new AtomicLong();
+    private final AtomicLong servedRequests = new AtomicLong();
+
+    public LocalAvailabilityServer() throws IOException {
+        serverSocket = new ServerSocket(0, 64, InetAddress.getByName("127.0.0.1"));
+        threads = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(@Nonnull Runnable runnable) {
+                Thread thread = new Thread(runnable, "LocalAvailabilityServer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        threads.execute(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        });
+    }
+
+    public String getHost() {
+        return serverSocket.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public void addTaken(@Nonnull String value) {
+        taken.add(value);
+    }
+
+    public void setResponseDelay(long delay, @Nonnull TimeUnit unit) {
+        this.responseDelayMs = unit.toMillis(delay);
+    }
+
+    /**
+     * Closes each connection after this many responses (with "Connection: close"), to test
+     * reconnects and measure connection churn.
+     */
+    public void setMaxRequestsPerConnection(int maxRequestsPerConnection) {
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+    }
+
+    public long getAcceptedConnectionCount() {
+        return acceptedConnections.get();
+    }
+
+    public long getServedRequestCount() {
+        return servedRequests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+
+        threads.shutdownNow();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+
+            acceptedConnections.incrementAndGet();
+            sockets.add(socket);
+            threads.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            });
+        }
+    }
+
+    private void serve(@Nonnull Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            int served = 0;
+            String requestLine;
+            while ((requestLine = readHead(in)) != null) {
+                long delayMs = responseDelayMs;
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+
+                boolean last = ++served >= maxRequestsPerConnection;
+                respond(requestLine, last, out);
+                // Answer pipelined requests in one write when they are already here.
+                if (in.available() == 0 || last) {
+                    out.flush();
+                }
+
+                servedRequests.incrementAndGet();
+                if (last) {
+                    break;
+                }
+            }
+        } catch (SocketException e) {
+            // Closed by the client or by close().
+        } catch (IOException | InterruptedException e) {
+            // Nothing to report to, drop the connection.
+        } finally {
+            sockets.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed.
+            }
+        }
+    }
+
+    /**
+     * Reads a request head and returns its request line, or null at the end of the stream.
+     * Requests have no body.
+     */
+    private static String readHead(@Nonnull InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream(256);
+        int matched = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            head.write(b);
+            // Counts how much of "\r\n\r\n" we have just seen.
+            if (b == '\r') {
+                matched = matched == 2 ? 3 : 1;
+            } else if (b == '\n' && (matched == 1 || matched == 3)) {
+                matched++;
+            } else {
+                matched = 0;
+            }
+
+            if (matched == 4) {
+                String text = new String(head.toByteArray(), US_ASCII);
+                return text.substring(0, text.indexOf("\r\n"));
+            }
+        }
+
+        return null;
+    }
+
+    private void respond(@Nonnull String requestLine, boolean last, @Nonnull OutputStream out)
+            throws IOException {
+        String[] parts = requestLine.split(" ");
+        int status = 404;
+        String body = "not found";
+        if (parts.length == 3 && "GET".equals(parts[0])) {
+            String target = parts[1];
+            int query = target.indexOf("?value=");
+            String path = query < 0 ? target : target.substring(0, query);
+            if (query >= 0 && ("/v1/email/available".equals(path) || "/v1/username/available".equals(path))) {
+                String value = URLDecoder.decode(target.substring(query + "?value=".length()), "UTF-8");
+                status = 200;
+                body = taken.contains(value.trim()) ? "taken" : "available";
+            }
+        }
+
+        String response = "HTTP/1.1 " + status + (status == 200 ? " OK" : " Not Found") + "\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "Content-Length: " + body.length() + "\r\n"
+                + (last ? "Connection: close\r\n" : "")
+                + "\r\n"
+                + body;
+        out.write(response.getBytes(US_ASCII));
+    }
+}